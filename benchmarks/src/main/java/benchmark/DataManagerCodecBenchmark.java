@@ -0,0 +1,52 @@
+package benchmark;
+
+import model.Message;
+import org.openjdk.jmh.annotations.*;
+import service.DataManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * emotion_data.txt 한 줄 ↔ Message 변환 비용
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataManagerCodecBenchmark {
+
+    private static final int POOL = 1024;
+
+    private Message[] messages;
+    private String[] lines;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Quiet.silence();
+        List<Message> generated = new DatasetGenerator().messages(POOL);
+        messages = generated.toArray(new Message[0]);
+        lines = new String[POOL];
+        for (int i = 0; i < POOL; i++) {
+            lines[i] = DataManager.messageToString(messages[i]);
+        }
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (POOL - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    public String messageToString() {
+        return DataManager.messageToString(messages[next()]);
+    }
+
+    @Benchmark
+    public Message stringToMessage() {
+        return DataManager.stringToMessage(lines[next()]);
+    }
+}
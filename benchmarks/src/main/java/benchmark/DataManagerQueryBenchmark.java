@@ -0,0 +1,79 @@
+package benchmark;
+
+import model.Emotion;
+import model.Message;
+import org.openjdk.jmh.annotations.*;
+import service.DataManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 전체 기록 크기에 비례하는 경로: 파일 로드, 일별 통계, 상대방별 조회
+ *
+ * 빠르게 돌릴 때: java -jar benchmarks.jar DataManagerQuery -p scale=SMALL
+ * LARGE는 힙이 넉넉해야 한다: -jvmArgs -Xmx12g
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DataManagerQueryBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public DatasetGenerator.Scale scale;
+
+    private Path dataFile;
+    private DataManager dataManager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Quiet.silence();
+        dataFile = Files.createTempFile("emotion-bench-", ".txt");
+        new DatasetGenerator().writeDataFile(dataFile, scale.getMessageCount());
+        dataManager = new DataManager(dataFile.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        dataManager.close();
+        Files.deleteIfExists(dataFile);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public int loadData() {
+        try (DataManager loaded = new DataManager(dataFile.toString())) {
+            return loaded.getTotalMessageCount();
+        }
+    }
+
+    @Benchmark
+    public Map<LocalDate, Map<Emotion, Integer>> getDailyEmotionStats7() {
+        return dataManager.getDailyEmotionStats(7);
+    }
+
+    @Benchmark
+    public Map<LocalDate, Map<Emotion, Integer>> getDailyEmotionStats30() {
+        return dataManager.getDailyEmotionStats(30);
+    }
+
+    @Benchmark
+    public List<Message> getMessagesByContact() {
+        return dataManager.getMessagesByContact(DatasetGenerator.CONTACTS[0]);
+    }
+
+    // handleAnalyze가 맥락 생성에 쓰는 경로 (최근 10개)
+    @Benchmark
+    public List<Message> getMessagesByContactRecent10() {
+        return dataManager.getMessagesByContact(DatasetGenerator.CONTACTS[0], 10);
+    }
+}
@@ -0,0 +1,163 @@
+package benchmark;
+
+import model.Emotion;
+import model.Message;
+import service.DataManager;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * 벤치마크용 합성 데이터 생성기
+ * 같은 seed면 항상 같은 데이터가 나오므로 실행 간 수치 비교가 가능하다.
+ *
+ * 단독 실행:
+ *   java -cp benchmarks/target/benchmarks.jar benchmark.DatasetGenerator LARGE out/
+ *   → out/emotion_data.txt, out/kakao.csv 생성
+ */
+public class DatasetGenerator {
+
+    public static final long SEED = 20240404L;
+
+    public enum Scale {
+        SMALL(10_000),
+        MEDIUM(1_000_000),
+        LARGE(10_000_000);
+
+        private final int messageCount;
+
+        Scale(int messageCount) {
+            this.messageCount = messageCount;
+        }
+
+        public int getMessageCount() {
+            return messageCount;
+        }
+    }
+
+    static final String[] CONTACTS = {
+        "윤정우", "김민지", "이서준", "박지현", "최도윤", "정하은", "강시우", "조수아",
+        "윤예준", "장지민", "임서연", "한주원", "오하린", "서건우", "신유나", "권민재",
+        "황채원", "안지호", "송다은", "알 수 없음"
+    };
+
+    private static final String[] PHRASES = {
+        "오늘 진짜 너무 힘들었어", "괜찮아 신경 쓰지 마", "와 대박 합격했어!!", "그건 좀 아닌 것 같은데",
+        "내일 몇 시에 만나?", "ㅋㅋㅋㅋ 완전 웃기다", "왜 연락이 없어", "무서워서 잠이 안 와",
+        "그 사람 진짜 별로야", "헐 진짜?? 말도 안 돼", "I'm so happy today", "That was really annoying",
+        "밥은 먹었어?", "요즘 좀 우울해", "고마워 덕분에 살았다", "A|B 테스트 결과 나왔어",
+        "회의가 3시간이나 걸렸어", "주말에 뭐 해?", "이번 프로젝트 망한 듯", "생일 축하해!! 🎉"
+    };
+
+    private static final String[] RESPONSES = {
+        "많이 힘들었겠다. 오늘은 푹 쉬어!", "정말 축하해! 너무 잘됐다 😊", "무슨 일 있었어? 얘기해줄래?",
+        "그랬구나, 충분히 그럴 수 있어.", "걱정하지 마, 내가 옆에 있을게.", "That sounds great, congrats!",
+        "말씀 잘 들었어요. 어떻게 도와드릴까요?", "나도 궁금하다! 자세히 알려줘"
+    };
+
+    private final SplittableRandom random;
+    private final LocalDateTime end;
+
+    public DatasetGenerator() {
+        this(SEED, LocalDateTime.now());
+    }
+
+    public DatasetGenerator(long seed, LocalDateTime end) {
+        this.random = new SplittableRandom(seed);
+        this.end = end;
+    }
+
+    // 최근 1년에 고르게 퍼진 메시지 (getDailyEmotionStats가 실제 데이터를 만나도록)
+    public Message nextMessage() {
+        String content = PHRASES[random.nextInt(PHRASES.length)];
+        if (random.nextInt(4) == 0) {
+            content = content + " " + PHRASES[random.nextInt(PHRASES.length)];
+        }
+        Emotion emotion = Emotion.values()[random.nextInt(Emotion.values().length)];
+        double intensity = Math.round(random.nextDouble() * 1000) / 1000.0;
+        String response = RESPONSES[random.nextInt(RESPONSES.length)];
+        String contact = CONTACTS[random.nextInt(CONTACTS.length)];
+
+        Message msg = new Message(content, emotion, intensity, response, contact);
+        msg.setTimestamp(end.minusSeconds(random.nextLong(365L * 24 * 60 * 60)));
+        return msg;
+    }
+
+    public List<Message> messages(int count) {
+        List<Message> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(nextMessage());
+        }
+        return list;
+    }
+
+    // DataManager 저장 형식(emotion_data.txt)으로 기록
+    public void writeDataFile(Path path, int count) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < count; i++) {
+                writer.write(DataManager.messageToString(nextMessage()));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * 카카오톡 내보내기 형식 CSV
+     * 일부 줄은 '오전/오후' 시각, 쉼표가 들어간 인용 필드를 섞는다.
+     */
+    public void writeKakaoCsv(Path path, int count) throws IOException {
+        DateTimeFormatter plain = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        DateTimeFormatter ampm = DateTimeFormatter.ofPattern("yyyy-MM-dd a h:mm:ss", Locale.ENGLISH);
+        LocalDateTime time = end.minusSeconds(count * 30L);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("\uFEFFDate,User,Message");
+            writer.newLine();
+            for (int i = 0; i < count; i++) {
+                time = time.plusSeconds(1 + random.nextInt(59));
+                writer.write(kakaoLine(time, plain, ampm));
+                writer.newLine();
+            }
+        }
+    }
+
+    public String nextKakaoLine() {
+        return kakaoLine(end.minusSeconds(random.nextLong(365L * 24 * 60 * 60)),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd a h:mm:ss", Locale.ENGLISH));
+    }
+
+    private String kakaoLine(LocalDateTime time, DateTimeFormatter plain, DateTimeFormatter ampm) {
+        String date = random.nextInt(5) == 0
+            ? time.format(ampm).replace("AM", "오전").replace("PM", "오후")
+            : time.format(plain);
+        String user = random.nextBoolean() ? "나" : CONTACTS[random.nextInt(3)];
+        String text = PHRASES[random.nextInt(PHRASES.length)];
+        if (random.nextInt(3) == 0) {
+            text = text + ", " + PHRASES[random.nextInt(PHRASES.length)];
+        }
+        return date + ",\"" + user + "\",\"" + text + "\"";
+    }
+
+    public static void main(String[] args) throws IOException {
+        Scale scale = args.length > 0 ? Scale.valueOf(args[0].toUpperCase()) : Scale.SMALL;
+        Path dir = Paths.get(args.length > 1 ? args[1] : ".");
+        Files.createDirectories(dir);
+
+        long start = System.nanoTime();
+        new DatasetGenerator().writeDataFile(dir.resolve("emotion_data.txt"), scale.getMessageCount());
+        new DatasetGenerator().writeKakaoCsv(dir.resolve("kakao.csv"), scale.getMessageCount());
+
+        System.out.printf("✅ %s 데이터셋 생성 완료: %,d개 (%d ms) → %s%n",
+            scale, scale.getMessageCount(), (System.nanoTime() - start) / 1_000_000, dir.toAbsolutePath());
+    }
+}
@@ -0,0 +1,24 @@
+package benchmark;
+
+import model.Emotion;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmotionBenchmark {
+
+    // 응답에서 실제로 보이는 형태들: 정확히 일치, 괄호/공백 포함, 문장형, 미인식
+    @Param({"기쁨", " 슬픔 ", "분노에 가까움", "중립", "unknown"})
+    public String input;
+
+    @Benchmark
+    public Emotion fromKorean() {
+        return Emotion.fromKorean(input);
+    }
+}
@@ -0,0 +1,49 @@
+package benchmark;
+
+import model.Message;
+import org.openjdk.jmh.annotations.*;
+import service.GeminiService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 녹화해 둔 Gemini 응답(resources/payloads)으로 parseEmotionResponse 측정
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeminiResponseBenchmark {
+
+    @Param({"korean_simple", "korean_context", "english", "percent_intensity"})
+    public String payload;
+
+    private GeminiService geminiService;
+    private String response;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Quiet.silence();
+        geminiService = new GeminiService();
+        response = readPayload(payload);
+    }
+
+    @Benchmark
+    public Message parseEmotionResponse() {
+        return geminiService.parseEmotionResponse("벤치마크 원문", response);
+    }
+
+    static String readPayload(String name) throws IOException {
+        try (InputStream in = GeminiResponseBenchmark.class.getResourceAsStream("/payloads/" + name + ".json")) {
+            if (in == null) {
+                throw new IOException("payload 없음: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
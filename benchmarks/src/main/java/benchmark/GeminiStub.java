@@ -0,0 +1,197 @@
+package benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import service.TokenEstimator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gemini API 로컬 스텁 (generateContent + cachedContents) — 키/네트워크 없이 캐시 동작과 지연을 확인할 때
+ *
+ * 사용법:
+ *   java -cp benchmarks/target/benchmarks.jar benchmark.GeminiStub [port=8089] [minCacheTokens=0]
+ *   java -Demotion.gemini.baseUrl=http://localhost:8089 -Demotion.gemini.apiKey=stub ... main.MainApp
+ *
+ * - 응답은 항상 같은 형식의 감정 분석 결과, usageMetadata 에 토큰 수(TokenEstimator 어림값)와 캐시 토큰 수
+ * - 지연 = BASE_MILLIS + 읽은 토큰(캐시분 제외) × MICROS_PER_TOKEN → 캐시를 쓰면 첫 응답이 빨라지는 것을 흉내냄
+ *   이미지(inline_data)가 있으면 -Demotion.stub.imageMillis=1000 만큼 더 (OCR 묶음 병렬 확인용)
+ * - 만료됐거나 없는 cachedContent 를 참조하면 404. POST /stub/expire 로 모든 캐시를 만료시킨다
+ */
+public final class GeminiStub {
+
+    private static final long BASE_MILLIS = 20;
+    private static final long MICROS_PER_TOKEN = 50;
+    private static final long IMAGE_MILLIS = Long.getLong("emotion.stub.imageMillis", 1000);
+
+    private static final class Cached {
+        final int tokens;
+        final long expiresAt;
+
+        Cached(int tokens, long expiresAt) {
+            this.tokens = tokens;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final HttpServer server;
+    private final int minCacheTokens;
+    private final Map<String, Cached> caches = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    private GeminiStub(int port, int minCacheTokens) throws IOException {
+        this.minCacheTokens = minCacheTokens;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/", this::handle);
+        // 실제 API 처럼 요청을 동시에 처리 (기본 실행기는 한 번에 하나)
+        server.setExecutor(Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "gemini-stub");
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+
+    public static GeminiStub start(int port, int minCacheTokens) throws IOException {
+        GeminiStub stub = new GeminiStub(port, minCacheTokens);
+        stub.server.start();
+        return stub;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        int minCacheTokens = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        GeminiStub stub = start(port, minCacheTokens);
+        System.out.println("🧪 Gemini 스텁 실행 중: http://localhost:" + stub.port());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if ("POST".equals(method) && path.endsWith(":generateContent")) {
+                generate(exchange, path.startsWith("/v1beta/"));
+            } else if ("POST".equals(method) && path.equals("/v1beta/cachedContents")) {
+                createCache(exchange);
+            } else if ("DELETE".equals(method) && path.startsWith("/v1beta/cachedContents/")) {
+                caches.remove(path.substring("/v1beta/".length()));
+                send(exchange, 200, new JSONObject());
+            } else if ("POST".equals(method) && path.equals("/stub/expire")) {
+                caches.clear();
+                send(exchange, 200, new JSONObject());
+            } else {
+                send(exchange, 404, error(404, "no such endpoint: " + method + " " + path));
+            }
+        } catch (Exception e) {
+            send(exchange, 400, error(400, String.valueOf(e.getMessage())));
+        }
+    }
+
+    private void createCache(HttpExchange exchange) throws IOException {
+        JSONObject body = readBody(exchange);
+        int tokens = TokenEstimator.estimate(text(body.optJSONObject("systemInstruction")))
+            + tokens(body.optJSONArray("contents"));
+        if (tokens < minCacheTokens) {
+            send(exchange, 400, error(400, "Cached content is too small. total_token_count=" + tokens
+                + ", min_total_token_count=" + minCacheTokens));
+            return;
+        }
+        long ttlSeconds = Long.parseLong(body.optString("ttl", "3600s").replace("s", ""));
+        String name = "cachedContents/stub-" + nextId.getAndIncrement();
+        caches.put(name, new Cached(tokens, System.currentTimeMillis() + ttlSeconds * 1000));
+        send(exchange, 200, new JSONObject()
+            .put("name", name)
+            .put("usageMetadata", new JSONObject().put("totalTokenCount", tokens)));
+    }
+
+    private void generate(HttpExchange exchange, boolean beta) throws IOException {
+        JSONObject body = readBody(exchange);
+        int cachedTokens = 0;
+        if (body.has("cachedContent")) {
+            Cached cached = beta ? caches.get(body.getString("cachedContent")) : null;
+            if (cached == null || cached.expiresAt < System.currentTimeMillis()) {
+                send(exchange, 404, error(404, "CachedContent not found (or permission denied)"));
+                return;
+            }
+            cachedTokens = cached.tokens;
+        }
+        int promptTokens = tokens(body.optJSONArray("contents"));
+        boolean hasImage = body.toString().contains("\"inline_data\"");
+
+        // 새로 읽는 토큰만큼 느리게 (캐시분은 거의 공짜)
+        try {
+            Thread.sleep(BASE_MILLIS + promptTokens * MICROS_PER_TOKEN / 1000 + (hasImage ? IMAGE_MILLIS : 0));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        String text = "감정: 기쁨\n강도: 0.7\n분석: (스텁) 고정된 분석 결과입니다.\n추천답변: (스텁) 좋아, 잘 됐다!";
+        JSONObject candidate = new JSONObject().put("content", new JSONObject()
+            .put("role", "model")
+            .put("parts", new JSONArray().put(new JSONObject().put("text", text))));
+        send(exchange, 200, new JSONObject()
+            .put("candidates", new JSONArray().put(candidate))
+            .put("usageMetadata", new JSONObject()
+                .put("promptTokenCount", promptTokens + cachedTokens)
+                .put("cachedContentTokenCount", cachedTokens)));
+    }
+
+    private static int tokens(JSONArray contents) {
+        int tokens = 0;
+        if (contents != null) {
+            for (int i = 0; i < contents.length(); i++) {
+                tokens += TokenEstimator.estimate(text(contents.getJSONObject(i)));
+            }
+        }
+        return tokens;
+    }
+
+    // { parts: [ { text } ... ] } 의 글 전부
+    private static String text(JSONObject content) {
+        if (content == null || !content.has("parts")) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        JSONArray parts = content.getJSONArray("parts");
+        for (int i = 0; i < parts.length(); i++) {
+            sb.append(parts.getJSONObject(i).optString("text"));
+        }
+        return sb.toString();
+    }
+
+    private static JSONObject error(int code, String message) {
+        return new JSONObject().put("error", new JSONObject()
+            .put("code", code)
+            .put("message", message)
+            .put("status", code == 404 ? "NOT_FOUND" : "INVALID_ARGUMENT"));
+    }
+
+    private static JSONObject readBody(HttpExchange exchange) throws IOException {
+        return new JSONObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int code, JSONObject body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
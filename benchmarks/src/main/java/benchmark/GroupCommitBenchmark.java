@@ -0,0 +1,53 @@
+package benchmark;
+
+import model.Message;
+import org.openjdk.jmh.annotations.*;
+import service.DataManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 대량 분석처럼 저장이 몰릴 때 saveMessage 처리량 (그룹 커밋 창 크기별)
+ * 각 호출은 디스크에 내려갈 때까지 기다린다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class GroupCommitBenchmark {
+
+    @Param({"0", "2", "20"})
+    public String windowMs;
+
+    private Path dataFile;
+    private DataManager dataManager;
+    private Message[] messages;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Quiet.silence();
+        System.setProperty("emotion.commit.windowMs", windowMs);
+        dataFile = Files.createTempFile("group-commit-bench-", ".txt");
+        dataManager = new DataManager(dataFile.toString());
+        messages = new DatasetGenerator().messages(1024).toArray(new Message[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        dataManager.close();
+        Files.deleteIfExists(dataFile);
+    }
+
+    @Benchmark
+    public void saveMessageDurable() throws Exception {
+        CompletableFuture<Void> durable = dataManager.saveMessage(
+            messages[(int) (Thread.currentThread().getId() & 1023)]);
+        durable.get();
+    }
+}
@@ -0,0 +1,87 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import service.KakaoParser;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KakaoParserBenchmark {
+
+    private static final int LINE_POOL = 1024;
+
+    private String[] lines;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Quiet.silence();
+        DatasetGenerator generator = new DatasetGenerator();
+        lines = new String[LINE_POOL];
+        for (int i = 0; i < LINE_POOL; i++) {
+            lines[i] = generator.nextKakaoLine();
+        }
+    }
+
+    private String nextLine() {
+        cursor = (cursor + 1) & (LINE_POOL - 1);
+        return lines[cursor];
+    }
+
+    @Benchmark
+    public List<String> parseCSVLine() {
+        return KakaoParser.parseCSVLine(nextLine());
+    }
+
+    @Benchmark
+    public LocalDateTime parseDateTime24h() {
+        return KakaoParser.parseDateTime("2025-04-04 17:48:56");
+    }
+
+    // 기본 형식 파싱이 예외로 실패한 뒤 오전/오후 형식으로 재시도하는 경로
+    @Benchmark
+    public LocalDateTime parseDateTimeAmPm() {
+        return KakaoParser.parseDateTime("2025-04-04 오후 5:48:56");
+    }
+
+    @State(Scope.Benchmark)
+    public static class CsvFile {
+
+        @Param({"SMALL", "MEDIUM", "LARGE"})
+        public DatasetGenerator.Scale scale;
+
+        File file;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            Quiet.silence();
+            Path path = Files.createTempFile("kakao-bench-", ".csv");
+            new DatasetGenerator().writeKakaoCsv(path, scale.getMessageCount());
+            file = path.toFile();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public KakaoParser.ParseResult parseCSV(CsvFile csv) throws Exception {
+        return KakaoParser.parseCSV(csv.file);
+    }
+}
@@ -0,0 +1,58 @@
+package benchmark;
+
+import model.Message;
+import org.openjdk.jmh.annotations.*;
+import service.MessageLog;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 쓰기 1 스레드 + 읽기 N 스레드가 동시에 돌 때 MessageLog 처리량
+ * 읽기 스레드 수 조절: -tg 1,4
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageLogBenchmark {
+
+    private static final int POOL = 1024;
+
+    private Message[] messages;
+    private MessageLog log;
+    private int cursor;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        messages = new DatasetGenerator().messages(POOL).toArray(new Message[0]);
+        log = new MessageLog();
+        for (Message m : messages) {
+            log.append(m);
+        }
+    }
+
+    @Benchmark
+    @Group("appendWhileReading")
+    @GroupThreads(1)
+    public void append() {
+        cursor = (cursor + 1) & (POOL - 1);
+        log.append(messages[cursor]);
+    }
+
+    // loadHistory 처럼 최근 20개를 읽는 경로
+    @Benchmark
+    @Group("appendWhileReading")
+    @GroupThreads(3)
+    public Message readRecent() {
+        List<Message> snapshot = log.snapshot();
+        int size = snapshot.size();
+        Message last = null;
+        for (int i = Math.max(0, size - 20); i < size; i++) {
+            last = snapshot.get(i);
+        }
+        return last;
+    }
+}
@@ -0,0 +1,62 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import service.ContactStatsTable;
+import service.EmotionStats;
+import service.MessageLog;
+import service.ParallelStats;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 통계 탭 집계(전체 + 상대방별)를 코어 수별로 비교
+ * parallelism=1 은 순차 경로, 나머지는 해당 크기의 ForkJoinPool 로 fork-join
+ *
+ *   java -jar benchmarks.jar ParallelStats -p scale=MEDIUM
+ *   java -jar benchmarks.jar ParallelStats -p scale=LARGE -p parallelism=1,8 -jvmArgs -Xmx4g
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelStatsBenchmark {
+
+    @Param({"MEDIUM", "LARGE"})
+    public DatasetGenerator.Scale scale;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private MessageLog.Snapshot history;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Quiet.silence();
+        MessageLog log = new MessageLog();
+        DatasetGenerator generator = new DatasetGenerator();
+        int count = scale.getMessageCount();
+        for (int i = 0; i < count; i += 10_000) {
+            log.appendAll(generator.messages(Math.min(10_000, count - i)));
+        }
+        history = log.snapshot();
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public EmotionStats statsByContact() {
+        EmotionStats total = new EmotionStats();
+        ContactStatsTable byContact = new ContactStatsTable();
+        int minRows = parallelism == 1 ? Integer.MAX_VALUE : 0;
+        ParallelStats.collect(history, total, byContact, pool, minRows);
+        return total;
+    }
+}
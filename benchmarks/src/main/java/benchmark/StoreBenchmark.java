@@ -0,0 +1,113 @@
+package benchmark;
+
+import model.Emotion;
+import model.Message;
+import org.openjdk.jmh.annotations.*;
+import service.ContactStatsTable;
+import service.DataManager;
+import service.EmotionStats;
+import service.H2MessageStore;
+import service.MessageStore;
+import service.TextMessageStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 저장소 구현 비교: text (메모리 + 자바 스트림) vs h2 (인덱스 + SQL 집계)
+ *
+ * 빠르게 돌릴 때: java -jar benchmarks.jar Store -p scale=SMALL
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class StoreBenchmark {
+
+    @Param({"text", "h2"})
+    public String backend;
+
+    @Param({"SMALL", "MEDIUM"})
+    public DatasetGenerator.Scale scale;
+
+    private Path dir;
+    private DataManager dataManager;
+    private Message next;
+    private final EmotionStats overallStats = new EmotionStats();
+    private final ContactStatsTable contactStats = new ContactStatsTable();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Quiet.silence();
+        dir = Files.createTempDirectory("store-bench-");
+        int count = scale.getMessageCount();
+
+        MessageStore store;
+        if ("h2".equals(backend)) {
+            store = new H2MessageStore(dir.resolve("emotion"), 10_000);
+            DatasetGenerator generator = new DatasetGenerator();
+            for (int i = 0; i < count; i += 10_000) {
+                store.appendAll(generator.messages(Math.min(10_000, count - i))).join();
+            }
+        } else {
+            Path dataFile = dir.resolve("emotion_data.txt");
+            new DatasetGenerator().writeDataFile(dataFile, count);
+            store = new TextMessageStore(dataFile.toString(), 2, 512);
+        }
+        dataManager = new DataManager(store);
+        next = new DatasetGenerator(1L, LocalDateTime.now()).nextMessage();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dataManager.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Map<LocalDate, Map<Emotion, Integer>> dailyEmotionStats30() {
+        return dataManager.getDailyEmotionStats(30);
+    }
+
+    @Benchmark
+    public Map<Emotion, Integer> emotionDistribution() {
+        return dataManager.getEmotionDistribution();
+    }
+
+    // 통계 탭 새로고침 (전체 + 상대방별, 누적기 재사용)
+    @Benchmark
+    public EmotionStats statsByContact() {
+        overallStats.reset();
+        contactStats.reset();
+        dataManager.collectStats(overallStats, contactStats);
+        return overallStats;
+    }
+
+    @Benchmark
+    public List<Message> messagesByContactRecent10() {
+        return dataManager.getMessagesByContact(DatasetGenerator.CONTACTS[0], 10);
+    }
+
+    @Benchmark
+    public int todayMessageCount() {
+        return dataManager.getTodayMessageCount();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void saveMessageDurable() {
+        dataManager.saveMessage(next).join();
+    }
+}
@@ -8,11 +8,15 @@ import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
+import metrics.AnalysisStageEvent;
+import metrics.AnalysisTrace;
+import metrics.Metrics;
 import model.*;
 import service.*;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 public class MainController {
 
@@ -44,13 +48,46 @@ public class MainController {
     private Label contactCountLabel;
 
     private GeminiService geminiService;
-    private DataManager dataManager;
+    // 🆕 기록은 배경에서 불러옴 (attachData). 다 불러오기 전에는 null → 기록/통계 탭은 불러오는 중 표시
+    private volatile DataManager dataManager;
+    private CompletableFuture<DataManager> dataReady;
+    // 🆕 전체 기록을 다 불러오기 전에는 시작 스냅샷으로 기록/통계 탭을 그림 (없으면 불러오는 중 표시)
+    private StartupSnapshot snapshot;
+    private volatile ConversationSummarizer summarizer; // 🆕 대화 요약 배경 갱신
+    private volatile ProfileUpdater profileUpdater; // 🆕 프로필 배경 갱신
     private ContactManager contactManager; // 🆕
 
+    // 🆕 연락처 자동완성
+    private static final int AUTOCOMPLETE_LIMIT = 20;
+    private final TreeSet<String> historyContactNames = new TreeSet<>();
+    private boolean updatingContactItems = false;
+
+    // 🆕 기록 검색
+    private static final int SEARCH_LIMIT = 50;
+    private static final String ALL_CONTACTS = "전체 상대";
+    private static final String ALL_EMOTIONS = "전체 감정";
+    private HBox historySearchBar;
+    private TextField historySearchField;
+    private ComboBox<String> historyContactFilter;
+    private ComboBox<String> historyEmotionFilter;
+    private DatePicker historyFromPicker;
+    private DatePicker historyToPicker;
+
+    // 🆕 분석 맥락 예산 (토큰 어림값, -Demotion.context.maxTokens)
+    private static final int CONTEXT_MAX_TOKENS = Integer.getInteger("emotion.context.maxTokens", 800);
+    // 한 항목의 번호/시각/이름/감정 표시 몫
+    private static final int CONTEXT_ENTRY_TOKENS = 36;
+    // 요약과 함께 보내는 최근 메시지 수의 최소 (요약 뒤 메시지는 모두 원문으로, 답변 제외)
+    private static final int SUMMARY_RECENT_MESSAGES = 2;
+    // 카카오톡 가져오기 맥락 후보 수 (실제로 들어가는 양은 PromptBuilder 예산이 정함)
+    private static final int KAKAO_CONTEXT_MESSAGES = 40;
+    // 통계 탭 누적기 (새로고침마다 reset 후 재사용)
+    private final EmotionStats overallStats = new EmotionStats();
+    private final ContactStatsTable contactStats = new ContactStatsTable();
+
     @FXML
     public void initialize() {
         geminiService = new GeminiService();
-        dataManager = new DataManager();
         contactManager = new ContactManager(); // 🆕
 
         if (loadingIndicator != null) {
@@ -58,6 +95,7 @@ public class MainController {
         }
 
         updateContactList();
+        setupContactAutocomplete();
 
         if (!GeminiService.isApiKeySet()) {
             Platform.runLater(() -> {
@@ -73,7 +111,96 @@ public class MainController {
         loadHistory();
         loadStats();
 
-        System.out.println("✅ UI 컨트롤러 초기화 완료");
+        Log.info("✅ UI 컨트롤러 초기화 완료");
+    }
+
+    /**
+     * 배경에서 불러오는 기록 연결 (MainApp 이 PIN 입력과 동시에 시작)
+     * 시작 스냅샷이 먼저 오면 그걸로 연락처/기록/통계를 그려 두고,
+     * 다 불러오면 요약/프로필 갱신을 붙이고 전체 기록으로 다시 그린다
+     */
+    public void attachData(CompletableFuture<DataManager> loading, CompletableFuture<StartupSnapshot> startup) {
+        long start = System.nanoTime();
+        startup.thenAccept(loaded -> {
+            if (loaded != null) {
+                Platform.runLater(() -> {
+                    if (dataManager != null) {
+                        return;
+                    }
+                    snapshot = loaded;
+                    updateContactList();
+                    loadHistory();
+                    loadStats();
+                    Metrics.histogram("ui_snapshot_ready_seconds").recordSince(start);
+                });
+            }
+        });
+        dataReady = loading.thenApply(manager -> {
+            summarizer = new ConversationSummarizer(geminiService, manager, contactManager);
+            profileUpdater = new ProfileUpdater(geminiService, manager, contactManager,
+                    name -> Platform.runLater(this::loadStats));
+            dataManager = manager;
+            return manager;
+        });
+        dataReady.whenComplete((manager, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                showAlert("데이터 불러오기 오류",
+                        "저장된 기록을 불러오지 못했습니다:\n\n" + cause.getMessage(),
+                        Alert.AlertType.ERROR);
+                return;
+            }
+            snapshot = null;
+            updateContactList();
+            loadHistory();
+            loadStats();
+            Metrics.histogram("ui_data_ready_seconds").recordSince(start);
+            Log.info("✅ 기록 불러오기 완료 (화면 표시 후 " + (System.nanoTime() - start) / 1_000_000 + "ms)");
+        }));
+    }
+
+    // 배경 작업용: 기록을 다 불러올 때까지 기다림 (FX 스레드에서는 부르지 않는다)
+    private DataManager awaitData() throws Exception {
+        try {
+            return dataReady.get();
+        } catch (ExecutionException e) {
+            throw new Exception("저장된 기록을 불러오지 못했습니다: " + e.getCause().getMessage());
+        }
+    }
+
+    // 화면 그리기용 (FX 스레드): 전체 기록, 아직이면 시작 스냅샷, 둘 다 없으면 null
+    private HistoryOverview overview() {
+        DataManager manager = dataManager;
+        return manager != null ? manager : snapshot;
+    }
+
+    // 기록을 불러오는 동안 기록/통계 탭에 보여줄 안내
+    private Label createLoadingLabel() {
+        Label label = new Label("⏳ 저장된 기록을 불러오는 중입니다...");
+        label.setStyle(
+                "-fx-text-fill: gray; " +
+                        "-fx-font-size: 14px; " +
+                        "-fx-padding: 20;");
+        return label;
+    }
+
+    // 앱 종료 시 남은 저장 내용을 디스크에 내려쓰기
+    public void shutdown() {
+        if (summarizer != null) {
+            summarizer.close();
+        }
+        if (profileUpdater != null) {
+            profileUpdater.close();
+        }
+        if (dataManager != null) {
+            dataManager.close();
+        }
+        if (contactManager != null) {
+            contactManager.close();
+        }
+        if (geminiService != null) {
+            geminiService.flushOcrCache();
+        }
     }
 
     private void updateContactList() {
@@ -82,7 +209,12 @@ public class MainController {
 
         // 🔧 수정: ContactManager도 추가!
         Set<String> contacts = new HashSet<>();
-        contacts.addAll(dataManager.getAllContactNames());
+        HistoryOverview history = overview();
+        if (history != null) {
+            contacts.addAll(history.getAllContactNames());
+            historyContactNames.clear();
+            historyContactNames.addAll(contacts);
+        }
         contacts.addAll(contactManager.getAllContactNames()); // 🆕 이 줄 추가!
 
         List<String> sortedContacts = new ArrayList<>(contacts);
@@ -91,8 +223,8 @@ public class MainController {
 
         contactComboBox.setItems(FXCollections.observableArrayList(sortedContacts));
 
-        if (!sortedContacts.isEmpty() && contactComboBox.getSelectionModel().isEmpty()) {
-            List<Message> recent = dataManager.getRecentMessages(1);
+        if (!sortedContacts.isEmpty() && contactComboBox.getSelectionModel().isEmpty() && history != null) {
+            List<Message> recent = history.getRecentMessages(1);
             if (!recent.isEmpty()) {
                 contactComboBox.setValue(recent.get(0).getContactName());
             }
@@ -103,6 +235,51 @@ public class MainController {
         }
     }
 
+    // 🆕 입력한 글자로 시작하는 연락처만 목록에 보여주기
+    private void setupContactAutocomplete() {
+        if (contactComboBox == null || !contactComboBox.isEditable())
+            return;
+
+        contactComboBox.getEditor().textProperty().addListener((obs, oldText, newText) -> {
+            if (updatingContactItems || newText == null || newText.equals(contactComboBox.getValue()))
+                return;
+
+            List<String> matches = findContactNames(newText.trim());
+            Platform.runLater(() -> {
+                TextField editor = contactComboBox.getEditor();
+                String text = editor.getText();
+                int caret = editor.getCaretPosition();
+
+                updatingContactItems = true;
+                try {
+                    contactComboBox.getItems().setAll(matches);
+                    editor.setText(text);
+                    editor.positionCaret(caret);
+                } finally {
+                    updatingContactItems = false;
+                }
+
+                if (!matches.isEmpty() && editor.isFocused()) {
+                    contactComboBox.show();
+                } else {
+                    contactComboBox.hide();
+                }
+            });
+        });
+    }
+
+    private List<String> findContactNames(String prefix) {
+        // 저장된 연락처는 저장소 접두사 검색, 기록에만 있는 이름은 정렬된 캐시에서
+        TreeSet<String> matches = new TreeSet<>(contactManager.findNamesByPrefix(prefix, AUTOCOMPLETE_LIMIT));
+        for (String name : historyContactNames.tailSet(prefix, true)) {
+            if (!name.startsWith(prefix) || matches.size() >= AUTOCOMPLETE_LIMIT)
+                break;
+            matches.add(name);
+        }
+        matches.remove("알 수 없음");
+        return new ArrayList<>(matches);
+    }
+
     @FXML
     private void handleAddContact() {
         // 🆕 MBTI 포함 다이얼로그
@@ -211,6 +388,7 @@ public class MainController {
 
         final String finalContactName = contactName;
         final MBTI mbti = contact.getMbti();
+        final AnalysisStageEvent totalStage = AnalysisTrace.start("analyze", "total", contactName, text.length());
 
         setUIEnabled(false);
         if (loadingIndicator != null) {
@@ -218,22 +396,40 @@ public class MainController {
         }
 
         new Thread(() -> {
+            AnalysisTrace.begin("analyze", finalContactName, text.length());
             try {
-                System.out.println("🔍 감정 분석 시작... (상대: " + finalContactName +
+                awaitData();
+                Log.info("🔍 감정 분석 시작... (상대: " + finalContactName +
                         (mbti != MBTI.UNKNOWN ? ", MBTI: " + mbti.getCode() : "") + ")");
 
                 // 🆕 이전 대화 가져오기 (맥락 분석)
-                List<Message> previousMessages = dataManager.getMessagesByContact(finalContactName, 10);
+                // 요약이 있으면 요약 + 최근 몇 개, 없으면 최근 + 비슷한 대화 원문
+                AnalysisStageEvent contextStage = AnalysisTrace.start("context");
+                Contact summarized = contactManager.getContact(finalContactName);
+                List<Message> previousMessages;
+                PromptContext context;
+                if (summarized != null && summarized.hasConversationSummary()) {
+                    // 요약에 아직 안 들어간 메시지는 모두 (요약 갱신은 EVERY 개마다라 그 사이 것이 빠지지 않게)
+                    int unsummarized = dataManager.getMessageCount(finalContactName) - summarized.getSummaryMessageCount();
+                    previousMessages = dataManager.getMessagesByContact(finalContactName,
+                            Math.max(SUMMARY_RECENT_MESSAGES, unsummarized));
+                    context = buildSummaryContext(summarized, previousMessages);
+                } else {
+                    previousMessages = dataManager.findContextMessages(finalContactName, text);
+                    context = previousMessages.isEmpty()
+                            ? null
+                            : buildConversationContext(previousMessages, finalContactName, CONTEXT_MAX_TOKENS);
+                }
+                AnalysisTrace.commit(contextStage);
 
                 Message message;
-                if (previousMessages.isEmpty()) {
+                if (context == null) {
                     // 첫 대화 - 맥락 없이 분석
-                    System.out.println("📝 첫 대화입니다. 맥락 없이 분석합니다.");
+                    Log.info("📝 첫 대화입니다. 맥락 없이 분석합니다.");
                     message = geminiService.analyzeEmotion(text, mbti);
                 } else {
                     // 이전 대화 있음 - 맥락 포함 분석
-                    String context = buildConversationContext(previousMessages, finalContactName);
-                    System.out.println("📚 이전 대화 " + previousMessages.size() + "개를 참고합니다.");
+                    Log.info("📚 관련 대화 " + previousMessages.size() + "개를 참고합니다.");
                     message = geminiService.analyzeEmotionWithContext(text, context, mbti);
                 }
 
@@ -241,18 +437,26 @@ public class MainController {
 
                 Platform.runLater(() -> {
                     displayResult(message);
+                    AnalysisStageEvent saveStage = AnalysisTrace.start("analyze", "save", finalContactName, text.length());
                     dataManager.saveMessage(message);
+                    summarizer.onMessageSaved(finalContactName);
+                    profileUpdater.onMessageSaved(finalContactName);
+                    AnalysisTrace.commit(saveStage);
+                    AnalysisStageEvent refreshStage = AnalysisTrace.start("analyze", "refresh", finalContactName, text.length());
                     updateContactList();
                     loadHistory();
                     loadStats();
+                    AnalysisTrace.commit(refreshStage);
                     setUIEnabled(true);
                     if (loadingIndicator != null) {
                         loadingIndicator.setVisible(false);
                     }
+                    AnalysisTrace.commit(totalStage);
                 });
 
             } catch (Exception e) {
                 Platform.runLater(() -> {
+                    AnalysisTrace.commit(totalStage);
                     showAlert("분석 오류",
                             "감정 분석 중 오류가 발생했습니다:\n\n" + e.getMessage(),
                             Alert.AlertType.ERROR);
@@ -261,6 +465,8 @@ public class MainController {
                         loadingIndicator.setVisible(false);
                     }
                 });
+            } finally {
+                AnalysisTrace.end();
             }
         }).start();
     }
@@ -310,9 +516,39 @@ public class MainController {
         if (historyBox == null)
             return;
 
-        historyBox.getChildren().clear();
+        long start = System.nanoTime();
+        try {
+            renderHistory();
+        } finally {
+            Metrics.histogram("ui_refresh_seconds", "view", "history").recordSince(start);
+        }
+    }
 
-        List<Message> messages = dataManager.getRecentMessages(20);
+    private void renderHistory() {
+        // 검색창은 그대로 두고 (입력 중 포커스 유지) 아래 카드만 다시 그림
+        if (historySearchBar == null) {
+            historySearchBar = createHistorySearchBar();
+        }
+        if (historyBox.getChildren().isEmpty() || historyBox.getChildren().get(0) != historySearchBar) {
+            historyBox.getChildren().setAll(historySearchBar);
+        } else {
+            historyBox.getChildren().remove(1, historyBox.getChildren().size());
+        }
+        refreshHistoryContactFilter();
+
+        HistoryOverview history = overview();
+        // 검색은 전체 기록이 있어야 함
+        if (history == null || (dataManager == null && isHistorySearchActive())) {
+            historyBox.getChildren().add(createLoadingLabel());
+            return;
+        }
+
+        if (isHistorySearchActive()) {
+            renderSearchResults();
+            return;
+        }
+
+        List<Message> messages = history.getRecentMessages(20);
 
         if (messages.isEmpty()) {
             Label emptyLabel = new Label("📭 아직 분석 기록이 없습니다.\n\n" +
@@ -332,6 +568,81 @@ public class MainController {
         }
     }
 
+    private HBox createHistorySearchBar() {
+        historySearchField = new TextField();
+        historySearchField.setPromptText("🔎 내용/답변 검색...");
+        historySearchField.setPrefWidth(220);
+        HBox.setHgrow(historySearchField, Priority.ALWAYS);
+
+        historyContactFilter = new ComboBox<>();
+        historyContactFilter.setValue(ALL_CONTACTS);
+
+        historyEmotionFilter = new ComboBox<>();
+        historyEmotionFilter.getItems().add(ALL_EMOTIONS);
+        for (Emotion emotion : Emotion.values()) {
+            historyEmotionFilter.getItems().add(emotion.getEmoji() + " " + emotion.getKorean());
+        }
+        historyEmotionFilter.setValue(ALL_EMOTIONS);
+
+        historyFromPicker = new DatePicker();
+        historyFromPicker.setPromptText("시작일");
+        historyFromPicker.setPrefWidth(120);
+        historyToPicker = new DatePicker();
+        historyToPicker.setPromptText("종료일");
+        historyToPicker.setPrefWidth(120);
+
+        historySearchField.textProperty().addListener((obs, oldText, newText) -> loadHistory());
+        historyContactFilter.setOnAction(e -> loadHistory());
+        historyEmotionFilter.setOnAction(e -> loadHistory());
+        historyFromPicker.valueProperty().addListener((obs, oldDate, newDate) -> loadHistory());
+        historyToPicker.valueProperty().addListener((obs, oldDate, newDate) -> loadHistory());
+
+        HBox bar = new HBox(8, historySearchField, historyContactFilter, historyEmotionFilter,
+                historyFromPicker, new Label("~"), historyToPicker);
+        bar.setAlignment(Pos.CENTER_LEFT);
+        bar.setPadding(new Insets(0, 0, 5, 0));
+        return bar;
+    }
+
+    private void refreshHistoryContactFilter() {
+        List<String> items = new ArrayList<>();
+        items.add(ALL_CONTACTS);
+        items.addAll(historyContactNames);
+        if (!historyContactFilter.getItems().equals(items)) {
+            String selected = historyContactFilter.getValue();
+            historyContactFilter.getItems().setAll(items);
+            historyContactFilter.setValue(items.contains(selected) ? selected : ALL_CONTACTS);
+        }
+    }
+
+    private boolean isHistorySearchActive() {
+        return !historySearchField.getText().trim().isEmpty()
+                || !ALL_CONTACTS.equals(historyContactFilter.getValue())
+                || !ALL_EMOTIONS.equals(historyEmotionFilter.getValue())
+                || historyFromPicker.getValue() != null
+                || historyToPicker.getValue() != null;
+    }
+
+    private void renderSearchResults() {
+        String contact = historyContactFilter.getValue();
+        int emotionIndex = historyEmotionFilter.getSelectionModel().getSelectedIndex();
+        Emotion emotion = emotionIndex > 0 ? Emotion.values()[emotionIndex - 1] : null;
+
+        List<Message> results = dataManager.searchMessages(historySearchField.getText(),
+                ALL_CONTACTS.equals(contact) ? null : contact, emotion,
+                historyFromPicker.getValue(), historyToPicker.getValue(), SEARCH_LIMIT);
+
+        Label resultLabel = new Label(results.isEmpty()
+                ? "🔎 검색 결과가 없습니다."
+                : "🔎 검색 결과 " + results.size() + "개" + (results.size() == SEARCH_LIMIT ? " (최근 " + SEARCH_LIMIT + "개까지)" : ""));
+        resultLabel.setStyle("-fx-text-fill: gray; -fx-font-size: 13px;");
+        historyBox.getChildren().add(resultLabel);
+
+        for (Message msg : results) {
+            historyBox.getChildren().add(createMessageCard(msg));
+        }
+    }
+
     private VBox createMessageCard(Message message) {
         VBox card = new VBox(8);
         card.setPadding(new Insets(12));
@@ -405,9 +716,24 @@ public class MainController {
         if (statsBox == null)
             return;
 
+        long start = System.nanoTime();
+        try {
+            renderStats();
+        } finally {
+            Metrics.histogram("ui_refresh_seconds", "view", "stats").recordSince(start);
+        }
+    }
+
+    private void renderStats() {
         statsBox.getChildren().clear();
 
-        int totalCount = dataManager.getTotalMessageCount();
+        HistoryOverview history = overview();
+        if (history == null) {
+            statsBox.getChildren().add(createLoadingLabel());
+            return;
+        }
+
+        int totalCount = history.getTotalMessageCount();
 
         if (totalCount == 0) {
             Label emptyLabel = new Label("📊 아직 통계 데이터가 없습니다.");
@@ -419,28 +745,36 @@ public class MainController {
             return;
         }
 
-        VBox overallStats = createOverallStatsBox();
-        statsBox.getChildren().add(overallStats);
+        // Message 를 만들지 않고 저장소에서 바로 누적 (누적기는 새로고침마다 재사용)
+        overallStats.reset();
+        contactStats.reset();
+        history.collectStats(overallStats, contactStats);
 
-        List<Message> allMessages = dataManager.getAllMessages();
-        Map<String, List<Message>> messagesByContact = allMessages.stream()
-                .collect(Collectors.groupingBy(Message::getContactName));
+        VBox overallStatsBox = createOverallStatsBox(history, overallStats);
+        statsBox.getChildren().add(overallStatsBox);
 
-        List<String> sortedContacts = new ArrayList<>(messagesByContact.keySet());
-        sortedContacts.remove("알 수 없음");
+        // 상대방 id 가 곧 배열 인덱스
+        ContactDictionary dictionary = history.getContactDictionary();
+        List<String> sortedContacts = new ArrayList<>();
+        for (int id = 0; id < contactStats.idBound(); id++) {
+            if (contactStats.find(id) != null) {
+                sortedContacts.add(dictionary.nameOf(id));
+            }
+        }
+        boolean hasUnknown = sortedContacts.remove("알 수 없음");
         Collections.sort(sortedContacts);
-        if (messagesByContact.containsKey("알 수 없음")) {
+        if (hasUnknown) {
             sortedContacts.add("알 수 없음");
         }
 
         for (String contactName : sortedContacts) {
-            List<Message> contactMessages = messagesByContact.get(contactName);
-            VBox contactStatsBox = createContactStatsBox(contactName, contactMessages);
+            EmotionStats stats = contactStats.find(dictionary.find(contactName));
+            VBox contactStatsBox = createContactStatsBox(contactName, stats);
             statsBox.getChildren().add(contactStatsBox);
         }
     }
 
-    private VBox createContactStatsBox(String contactName, List<Message> messages) {
+    private VBox createContactStatsBox(String contactName, EmotionStats stats) {
         VBox box = new VBox(15);
         box.setPadding(new Insets(20));
         box.setStyle(
@@ -463,45 +797,45 @@ public class MainController {
                         "-fx-font-weight: bold; " +
                         "-fx-text-fill: #667eea;");
 
-        int count = messages.size();
-        double avgIntensity = messages.stream()
-                .mapToDouble(Message::getIntensity)
-                .average()
-                .orElse(0.0);
-
-        Map<Emotion, Long> emotionCount = messages.stream()
-                .collect(Collectors.groupingBy(Message::getEmotion, Collectors.counting()));
-
-        Emotion mostFrequent = emotionCount.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(Emotion.NEUTRAL);
+        int count = (int) stats.count();
+        double avgIntensity = stats.averageIntensity();
+        Emotion mostFrequent = stats.mostFrequent();
 
         Label countLabel = new Label("📝 대화 횟수: " + count + "회");
         countLabel.setStyle("-fx-font-size: 13px;");
 
-        Label avgLabel = new Label(String.format("📈 평균 감정 강도: %.0f%%", avgIntensity * 100));
+        Label avgLabel = new Label(String.format("📈 평균 감정 강도: %.0f%% (중앙값 %.0f%%, 상위 10%% %.0f%%)",
+                avgIntensity * 100, stats.intensityPercentile(0.5) * 100, stats.intensityPercentile(0.9) * 100));
         avgLabel.setStyle("-fx-font-size: 13px;");
 
         Label mostLabel = new Label("⭐ 가장 많은 감정: " + mostFrequent.getEmoji() + " " + mostFrequent.getKorean());
         mostLabel.setStyle("-fx-font-size: 13px;");
 
-        HBox emotionBars = createMiniEmotionBars(emotionCount, count);
+        HBox emotionBars = createMiniEmotionBars(stats, count);
 
         VBox profileSection = createProfileSection(contact, contactName, count);
 
-        box.getChildren().addAll(titleLabel, new Separator(), countLabel, avgLabel, mostLabel, emotionBars,
-                profileSection);
+        box.getChildren().addAll(titleLabel, new Separator(), countLabel, avgLabel, mostLabel, emotionBars);
+
+        // 추세는 전체 기록에만 있음 (시작 스냅샷으로 그릴 때는 생략)
+        EmotionTrends.MoodShift moodShift = dataManager != null ? dataManager.getMoodShift(contactName) : null;
+        if (moodShift != null) {
+            Label shiftLabel = new Label("🌊 최근 분위기 변화: " + moodShift);
+            shiftLabel.setStyle("-fx-font-size: 13px; -fx-text-fill: " + (moodShift.isWorse() ? "#e74c3c" : "#27ae60") + ";");
+            box.getChildren().add(shiftLabel);
+        }
+
+        box.getChildren().add(profileSection);
 
         return box;
     }
 
-    private HBox createMiniEmotionBars(Map<Emotion, Long> emotionCount, int total) {
+    private HBox createMiniEmotionBars(EmotionStats stats, int total) {
         HBox box = new HBox(5);
         box.setAlignment(Pos.CENTER_LEFT);
 
         for (Emotion emotion : Emotion.values()) {
-            long count = emotionCount.getOrDefault(emotion, 0L);
+            long count = stats.count(emotion);
             if (count > 0) {
                 double percentage = (count / (double) total) * 100;
 
@@ -603,14 +937,15 @@ public class MainController {
 
         new Thread(() -> {
             try {
-                System.out.println("🧠 프로필 생성 시작: " + contactName);
+                Log.info("🧠 프로필 생성 시작: " + contactName);
+                awaitData();
 
-                List<Message> messages = dataManager.getMessagesByContact(contactName);
+                int messageCount = dataManager.getMessageCount(contactName);
 
-                if (messages.size() < 5) {
+                if (messageCount < ProfileUpdater.MIN_MESSAGES) {
                     Platform.runLater(() -> {
                         showAlert("프로필 생성 불가",
-                                "최소 5개 이상의 대화가 필요합니다.\n현재: " + messages.size() + "개",
+                                "최소 " + ProfileUpdater.MIN_MESSAGES + "개 이상의 대화가 필요합니다.\n현재: " + messageCount + "개",
                                 Alert.AlertType.WARNING);
                         setUIEnabled(true);
                         if (loadingIndicator != null) {
@@ -620,17 +955,8 @@ public class MainController {
                     return;
                 }
 
-                Contact contact = contactManager.getContact(contactName);
-                if (contact == null) {
-                    contact = new Contact(contactName);
-                    contactManager.saveContact(contact);
-                }
-
-                MBTI mbti = contact.getMbti();
-
-                String profile = geminiService.generateContactProfile(messages, contactName, mbti);
-
-                contactManager.setAutoGeneratedProfile(contactName, profile);
+                // 특징 요약 + 최근 대화로 바로 다시 생성 (기준값도 새로 잡힘)
+                profileUpdater.regenerate(contactName);
 
                 Platform.runLater(() -> {
                     loadStats();
@@ -659,7 +985,7 @@ public class MainController {
         }).start();
     }
 
-    private VBox createOverallStatsBox() {
+    private VBox createOverallStatsBox(HistoryOverview history, EmotionStats stats) {
         VBox box = new VBox(10);
         box.setPadding(new Insets(20));
         box.setStyle(
@@ -673,10 +999,10 @@ public class MainController {
                         "-fx-font-weight: bold; " +
                         "-fx-text-fill: white;");
 
-        int totalCount = dataManager.getTotalMessageCount();
-        int todayCount = dataManager.getTodayMessageCount();
-        double avgIntensity = dataManager.getAverageIntensity();
-        Emotion mostFrequent = dataManager.getMostFrequentEmotion();
+        int totalCount = history.getTotalMessageCount();
+        int todayCount = history.getTodayMessageCount();
+        double avgIntensity = stats.averageIntensity();
+        Emotion mostFrequent = stats.mostFrequent();
 
         Label totalLabel = new Label("📝 총 분석 횟수: " + totalCount + "회");
         totalLabel.setStyle("-fx-font-size: 14px; -fx-text-fill: white;");
@@ -697,6 +1023,11 @@ public class MainController {
 
     @FXML
     private void handleClearData() {
+        if (dataManager == null) {
+            showAlert("잠시만요", "저장된 기록을 불러오는 중입니다. 잠시 후 다시 시도해주세요.", Alert.AlertType.INFORMATION);
+            return;
+        }
+
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
         alert.setTitle("데이터 삭제 확인");
         alert.setHeaderText("모든 데이터를 삭제하시겠습니까?");
@@ -707,6 +1038,8 @@ public class MainController {
         alert.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
                 dataManager.clearAllData();
+                contactManager.clearConversationSummaries();
+                geminiService.clearOcrCache();
                 updateContactList();
                 loadHistory();
                 loadStats();
@@ -770,7 +1103,7 @@ public class MainController {
 
         new Thread(() -> {
             try {
-                System.out.println("📁 CSV 파일 파싱 중: " + file.getName());
+                Log.info("📁 CSV 파일 파싱 중: " + file.getName());
 
                 KakaoParser.ParseResult result = KakaoParser.parseCSV(file);
 
@@ -826,7 +1159,7 @@ public class MainController {
                             otherName = result.getMainUser();
                         }
 
-                        System.out.println("✅ 사용자 선택: 나=" + myName + ", 상대방=" + otherName);
+                        Log.info("✅ 사용자 선택: 나=" + myName + ", 상대방=" + otherName);
                         processKakaoMessages(result, otherName, myName);
                     } else {
                         setUIEnabled(true);
@@ -886,6 +1219,7 @@ public class MainController {
 
         final String finalContactName = contactName;
         final MBTI mbti = contact.getMbti();
+        final AnalysisStageEvent totalStage = AnalysisTrace.start("ocr", "total", contactName, 0);
 
         setUIEnabled(false);
         if (loadingIndicator != null) {
@@ -893,20 +1227,24 @@ public class MainController {
         }
 
         new Thread(() -> {
+            AnalysisTrace.begin("ocr", finalContactName, 0);
             try {
-                System.out.println("📷 이미지 OCR 분석 시작: " + file.getName());
+                Log.info("📷 이미지 OCR 분석 시작: " + file.getName());
 
                 // OCR로 텍스트 추출
-                String base64Image = geminiService.encodeImageToBase64(file);
-                String extractedText = geminiService.extractTextFromImage(base64Image);
+                ImagePreprocessor.Prepared image = geminiService.prepareImage(file);
+                String extractedText = geminiService.extractTextFromImage(image);
                 
-                System.out.println("📝 추출된 전체 대화:\n" + extractedText);
+                Log.debug(() -> "📝 추출된 전체 대화:\n" + extractedText);
                 
                 // 상대방 메시지만 추출
+                AnalysisStageEvent extractStage = AnalysisTrace.start("extract");
                 String targetMessage = parseTargetMessage(extractedText, finalContactName);
+                AnalysisTrace.commit(extractStage);
                 
                 if (targetMessage == null || targetMessage.trim().isEmpty()) {
                     Platform.runLater(() -> {
+                        AnalysisTrace.commit(totalStage);
                         showAlert("메시지 추출 실패", 
                             "상대방의 메시지를 찾을 수 없습니다.\n\n추출된 내용:\n" + extractedText,
                             Alert.AlertType.WARNING);
@@ -918,22 +1256,32 @@ public class MainController {
                     return;
                 }
                 
-                System.out.println("🎯 추출된 상대방 메시지: " + targetMessage);
+                Log.debug(() -> "🎯 추출된 상대방 메시지: " + targetMessage);
+                final int targetLength = targetMessage.length();
+                AnalysisTrace.begin("ocr", finalContactName, targetLength);
                 
                 // 감정 분석
                 Message message = geminiService.analyzeEmotion(targetMessage, mbti);
                 message.setContactName(finalContactName);
+                awaitData();
 
                 Platform.runLater(() -> {
                     displayResult(message);
+                    AnalysisStageEvent saveStage = AnalysisTrace.start("ocr", "save", finalContactName, targetLength);
                     dataManager.saveMessage(message);
+                    summarizer.onMessageSaved(finalContactName);
+                    profileUpdater.onMessageSaved(finalContactName);
+                    AnalysisTrace.commit(saveStage);
+                    AnalysisStageEvent refreshStage = AnalysisTrace.start("ocr", "refresh", finalContactName, targetLength);
                     updateContactList();
                     loadHistory();
                     loadStats();
+                    AnalysisTrace.commit(refreshStage);
                     setUIEnabled(true);
                     if (loadingIndicator != null) {
                         loadingIndicator.setVisible(false);
                     }
+                    AnalysisTrace.commit(totalStage);
 
                     showAlert("OCR 분석 완료!",
                             "이미지에서 텍스트를 추출하여 분석했습니다.\n\n" +
@@ -943,6 +1291,7 @@ public class MainController {
 
             } catch (Exception e) {
                 Platform.runLater(() -> {
+                    AnalysisTrace.commit(totalStage);
                     showAlert("OCR 분석 오류",
                             "이미지 분석 중 오류가 발생했습니다:\n\n" + e.getMessage(),
                             Alert.AlertType.ERROR);
@@ -952,6 +1301,71 @@ public class MainController {
                         loadingIndicator.setVisible(false);
                     }
                 });
+            } finally {
+                AnalysisTrace.end();
+            }
+        }).start();
+    }
+
+    // 🆕 스크린샷 여러 장 → 대화 하나로 묶어서 카카오톡 CSV 와 같은 맥락 분석
+    @FXML
+    private void handleBatchOCR() {
+        javafx.stage.FileChooser fileChooser = new javafx.stage.FileChooser();
+        fileChooser.setTitle("대화 스크린샷 여러 장 선택 (대화 순서대로)");
+        fileChooser.getExtensionFilters().addAll(
+                new javafx.stage.FileChooser.ExtensionFilter("이미지 파일", "*.png", "*.jpg", "*.jpeg", "*.webp", "*.heic"),
+                new javafx.stage.FileChooser.ExtensionFilter("모든 파일", "*.*"));
+
+        List<java.io.File> files = fileChooser.showOpenMultipleDialog(analyzeButton.getScene().getWindow());
+
+        if (files == null || files.isEmpty()) {
+            return;
+        }
+
+        String contactName = contactComboBox.getValue();
+        if (contactName == null || contactName.trim().isEmpty()) {
+            showAlert("상대방 선택",
+                    "대화 상대를 먼저 선택해주세요.",
+                    Alert.AlertType.WARNING);
+            contactComboBox.requestFocus();
+            return;
+        }
+        final String finalContactName = contactName.trim();
+
+        // 고른 순서가 아니라 파일 이름 순 (스크린샷 이름은 보통 찍은 시각)
+        List<java.io.File> ordered = new ArrayList<>(files);
+        ordered.sort(Comparator.comparing(java.io.File::getName));
+
+        setUIEnabled(false);
+        if (loadingIndicator != null) {
+            loadingIndicator.setVisible(true);
+        }
+
+        new Thread(() -> {
+            try {
+                Log.info("📷 스크린샷 " + ordered.size() + "장 OCR 시작");
+
+                OcrBatch.Result batch = new OcrBatch(geminiService).extract(ordered, finalContactName);
+                KakaoParser.ParseResult conversation = batch.getConversation();
+
+                if (!batch.getFailedFiles().isEmpty()) {
+                    Log.warn("⚠️ 추출 실패: " + batch.getFailedFiles());
+                }
+
+                // processKakaoMessages 가 마지막 상대방 메시지를 맥락과 함께 분석하고 UI 를 되돌린다
+                processKakaoMessages(conversation, finalContactName, OcrBatch.ME);
+
+            } catch (Exception e) {
+                Platform.runLater(() -> {
+                    showAlert("OCR 분석 오류",
+                            "스크린샷 분석 중 오류가 발생했습니다:\n\n" + e.getMessage(),
+                            Alert.AlertType.ERROR);
+                    e.printStackTrace();
+                    setUIEnabled(true);
+                    if (loadingIndicator != null) {
+                        loadingIndicator.setVisible(false);
+                    }
+                });
             }
         }).start();
     }
@@ -987,11 +1401,12 @@ public class MainController {
 
     private void processKakaoMessages(KakaoParser.ParseResult result, String contactName, String myName) {
         new Thread(() -> {
+            AnalysisStageEvent totalStage = AnalysisTrace.start("kakao", "total", contactName, 0);
             try {
                 // 전체 메시지 가져오기
                 List<KakaoParser.KakaoMessage> allMessages = result.getMessages();
 
-                System.out.println("📨 전체 메시지: " + allMessages.size() + "개");
+                Log.info("📨 전체 메시지: " + allMessages.size() + "개");
 
                 // 연락처 확인/생성
                 Contact contact = contactManager.getContact(contactName);
@@ -1001,11 +1416,6 @@ public class MainController {
                 }
                 final MBTI mbti = contact.getMbti();
 
-                // 🆕 대화 맥락 생성 (최근 20개 또는 전체)
-                int contextCount = Math.min(20, allMessages.size());
-                String conversationContext = KakaoParser.toConversationContext(
-                        allMessages, contextCount, myName, contactName);
-
                 // 🆕 마지막 상대방 메시지 찾기
                 KakaoParser.KakaoMessage lastMessage = null;
                 for (int i = allMessages.size() - 1; i >= 0; i--) {
@@ -1017,6 +1427,7 @@ public class MainController {
                 }
 
                 if (lastMessage == null) {
+                    AnalysisTrace.commit(totalStage);
                     Platform.runLater(() -> {
                         showAlert("분석 실패",
                                 "상대방의 메시지를 찾을 수 없습니다.",
@@ -1030,10 +1441,19 @@ public class MainController {
                 }
 
                 final KakaoParser.KakaoMessage finalLastMessage = lastMessage;
+                final int messageLength = lastMessage.getMessage().length();
+                totalStage.messageLength = messageLength;
+                AnalysisTrace.begin("kakao", contactName, messageLength);
+
+                // 🆕 대화 맥락 생성 (최근 KAKAO_CONTEXT_MESSAGES 개, 프롬프트 예산을 넘으면 오래된 것부터 빠짐)
+                AnalysisStageEvent contextStage = AnalysisTrace.start("context");
+                int contextCount = Math.min(KAKAO_CONTEXT_MESSAGES, allMessages.size());
+                PromptContext conversationContext = KakaoParser.toConversationContext(
+                        allMessages, contextCount, myName, contactName);
+                AnalysisTrace.commit(contextStage);
 
-                System.out.println("🎯 마지막 상대방 메시지: " + lastMessage.getMessage());
-                System.out.println("📚 대화 맥락 (" + contextCount + "개 메시지):");
-                System.out.println(conversationContext);
+                Log.debug(() -> "🎯 마지막 상대방 메시지: " + finalLastMessage.getMessage());
+                Log.info("📚 대화 맥락 (" + contextCount + "개 메시지)");
 
                 // 🆕 맥락 기반 분석 (마지막 메시지만)
                 Message analyzedMessage = geminiService.analyzeEmotionWithContext(
@@ -1041,14 +1461,23 @@ public class MainController {
                         conversationContext,
                         mbti);
                 analyzedMessage.setContactName(contactName);
-                analyzedMessage.setTimestamp(finalLastMessage.getDateTime());
+                if (finalLastMessage.getDateTime() != null) {
+                    analyzedMessage.setTimestamp(finalLastMessage.getDateTime());
+                }
 
+                AnalysisStageEvent saveStage = AnalysisTrace.start("save");
+                awaitData();
                 dataManager.saveMessage(analyzedMessage);
+                summarizer.onMessageSaved(contactName);
+                profileUpdater.onMessageSaved(contactName);
+                AnalysisTrace.commit(saveStage);
 
                 Platform.runLater(() -> {
+                    AnalysisStageEvent refreshStage = AnalysisTrace.start("kakao", "refresh", contactName, messageLength);
                     updateContactList();
                     loadHistory();
                     loadStats();
+                    AnalysisTrace.commit(refreshStage);
 
                     // 결과 표시
                     displayResult(analyzedMessage);
@@ -1057,6 +1486,7 @@ public class MainController {
                     if (loadingIndicator != null) {
                         loadingIndicator.setVisible(false);
                     }
+                    AnalysisTrace.commit(totalStage);
 
                     showAlert("가져오기 완료!",
                             String.format("📊 전체 대화: %d개 메시지\n" +
@@ -1071,6 +1501,7 @@ public class MainController {
                 });
 
             } catch (Exception e) {
+                AnalysisTrace.commit(totalStage);
                 Platform.runLater(() -> {
                     showAlert("오류",
                             "메시지 처리 중 오류:\n\n" + e.getMessage(),
@@ -1081,38 +1512,66 @@ public class MainController {
                         loadingIndicator.setVisible(false);
                     }
                 });
+            } finally {
+                AnalysisTrace.end();
             }
         }).start();
     }
 
     // 🆕 이전 대화를 맥락 문자열로 변환
-    private String buildConversationContext(List<Message> messages, String contactName) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("이전 대화 맥락 (최근 ").append(messages.size()).append("개):\n\n");
-
-        for (int i = 0; i < messages.size(); i++) {
-            Message msg = messages.get(i);
-
-            // 상대방이 한 말
-            sb.append(String.format("%d. [%s] %s: \"%s\"\n",
-                    i + 1,
-                    msg.getFormattedTimestamp(),
-                    contactName,
-                    msg.getContent()));
-
-            // 감정 분석 결과
-            sb.append(String.format("   └ 감정: %s (%d%%)\n",
-                    msg.getEmotion().getKorean(),
-                    msg.getIntensityPercent()));
-
-            // 내가 답한 내용
-            sb.append(String.format("   └ 나의 답변: \"%s\"\n\n",
-                    msg.getRecommendedResponse()));
+    // messages 는 중요한 순서 (최근 대화 → 비슷한 대화). 앞에서부터 maxTokens 안에 드는 것만 넣고 시간순으로 적는다
+    private PromptContext buildConversationContext(List<Message> messages, String contactName, int maxTokens) {
+        List<Message> selected = new ArrayList<>();
+        int tokens = 0;
+        for (Message msg : messages) {
+            int cost = TokenEstimator.estimate(msg.getContent())
+                    + TokenEstimator.estimate(msg.getRecommendedResponse()) + CONTEXT_ENTRY_TOKENS;
+            if (tokens + cost > maxTokens && !selected.isEmpty()) {
+                continue;
+            }
+            selected.add(msg);
+            tokens += cost;
+        }
+        selected.sort(Comparator.comparing(Message::getTimestamp));
+        Metrics.counter("context_messages_total").add(selected.size());
+        Metrics.counter("context_tokens_total").add(tokens);
+
+        PromptContext context = new PromptContext(
+                "이전 대화 맥락 (관련 " + selected.size() + "개, 시간순):\n\n",
+                "위 대화를 참고하여 지금 받은 메시지를 분석하세요.\n");
+
+        for (int i = 0; i < selected.size(); i++) {
+            Message msg = selected.get(i);
+
+            context.beginEntry(msg.getEmotion())
+                    // 상대방이 한 말
+                    .append(i + 1).append(". [").append(msg.getFormattedTimestamp()).append("] ")
+                    .append(contactName).append(": \"").append(msg.getContent()).append("\"\n")
+                    // 감정 분석 결과
+                    .append("   └ 감정: ").append(msg.getEmotion().getKorean())
+                    .append(" (").append(msg.getIntensityPercent()).append("%)\n")
+                    // 내가 답한 내용
+                    .append("   └ 나의 답변: \"").append(msg.getRecommendedResponse()).append("\"\n\n")
+                    .endEntry();
         }
 
-        sb.append("위 대화를 참고하여 지금 받은 메시지를 분석하세요.\n");
+        return context;
+    }
 
-        return sb.toString();
+    // 🆕 요약 + 최근 메시지 (지난 대화 원문/답변을 다시 보내지 않음)
+    private PromptContext buildSummaryContext(Contact contact, List<Message> recent) {
+        PromptContext context = new PromptContext(
+                "지금까지의 대화 요약:\n" + contact.getConversationSummary() + "\n\n"
+                        + (recent.isEmpty() ? "" : "가장 최근 메시지:\n"),
+                "\n위 요약과 최근 흐름을 참고하여 지금 받은 메시지를 분석하세요.\n");
+        for (Message msg : recent) {
+            context.beginEntry(msg.getEmotion())
+                    .append("- ").append(contact.getName()).append(": \"").append(msg.getContent())
+                    .append("\" (").append(msg.getEmotion().getKorean()).append(")\n")
+                    .endEntry();
+        }
+        Metrics.counter("context_summary_used_total").increment();
+        return context;
     }
 
     private String hexToRgba(String hex, double alpha) {
@@ -3,6 +3,7 @@ package controller;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
+import service.Log;
 import service.PinManager;
 
 public class PinLockController {
@@ -111,7 +112,7 @@ public class PinLockController {
     
     private void handlePinVerification(String pin) {
         if (PinManager.verifyPin(pin)) {
-            System.out.println("✅ PIN 인증 성공!");
+            Log.info("✅ PIN 인증 성공!");
             closeWindow();
         } else {
             showError("PIN이 틀렸습니다");
@@ -1,24 +1,39 @@
 package main;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import javafx.stage.Modality;
+import service.DataManager;
+import service.Log;
+import service.StartupSnapshot;
+
+import java.util.concurrent.CompletableFuture;
 
 public class MainApp extends Application {
     
+    private controller.MainController mainController;
+    // PIN 입력 중에 미리 만들어 둔 메인 화면
+    private Scene mainScene;
+    
     @Override
     public void start(Stage primaryStage) {
-        // PIN 확인 먼저
-        showPinLockScreen(() -> {
+        // 💾 기록 불러오기는 PIN 입력과 동시에 (배경 스레드)
+        CompletableFuture<DataManager> data = DataManager.openAsync();
+        // ⚡ 그보다 먼저 끝나는 시작 스냅샷 (기록/통계 탭을 바로 그리는 요약본, 없으면 null)
+        CompletableFuture<StartupSnapshot> snapshot = StartupSnapshot.loadAsync();
+        
+        // PIN 확인 먼저 (PIN 창이 뜨면 그동안 메인 화면을 미리 만들어 둠)
+        showPinLockScreen(
+            () -> prepareMainScreen(data, snapshot),
             // PIN 인증 성공 후 메인 화면 표시
-            showMainScreen(primaryStage);
-        });
+            () -> showMainScreen(primaryStage, data, snapshot));
     }
     
-    private void showPinLockScreen(Runnable onSuccess) {
+    private void showPinLockScreen(Runnable onShown, Runnable onSuccess) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/resources/pinlock.fxml"));
             Parent root = loader.load();
@@ -32,9 +47,11 @@ public class MainApp extends Application {
             pinStage.setResizable(false);
             pinStage.initModality(Modality.APPLICATION_MODAL);
             pinStage.setOnCloseRequest(e -> {
-                System.out.println("PIN 인증 없이 종료할 수 없습니다.");
+                Log.info("PIN 인증 없이 종료할 수 없습니다.");
                 e.consume();
             });
+            // PIN 창을 먼저 그린 다음 차례에
+            pinStage.setOnShown(e -> Platform.runLater(onShown));
             
             pinStage.showAndWait();
             
@@ -45,27 +62,32 @@ public class MainApp extends Application {
         }
     }
     
-    private void showMainScreen(Stage primaryStage) {
+    // 메인 화면(FXML, 컨트롤러, CSS 적용)을 만들고 배경에서 불러오는 기록을 연결
+    // 기록을 다 불러오기 전이면 기록/통계 탭은 시작 스냅샷(없으면 불러오는 중)으로 표시되고, 끝나면 컨트롤러가 다시 그림
+    private void prepareMainScreen(CompletableFuture<DataManager> data, CompletableFuture<StartupSnapshot> snapshot) {
+        if (mainScene != null) {
+            return;
+        }
+        long start = System.nanoTime();
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/resources/main.fxml"));
             Parent root = loader.load();
+            mainController = loader.getController();
+            mainController.attachData(data, snapshot);
             
             Scene scene = new Scene(root, 1000, 700);
             
             try {
                 scene.getStylesheets().add(getClass().getResource("/resources/style.css").toExternalForm());
             } catch (Exception e) {
-                System.out.println("스타일시트 로드 실패 (선택사항)");
+                Log.warn("스타일시트 로드 실패 (선택사항)");
             }
+            // CSS/배치도 미리 (PIN 후 첫 화면을 바로 그리도록)
+            root.applyCss();
+            root.layout();
             
-            primaryStage.setTitle("💬 감정 분석 & 답변 추천 시스템");
-            primaryStage.setScene(scene);
-            primaryStage.setResizable(true);
-            primaryStage.setMinWidth(800);
-            primaryStage.setMinHeight(600);
-            primaryStage.show();
-            
-            System.out.println("✅ 프로그램이 성공적으로 실행되었습니다!");
+            mainScene = scene;
+            metrics.Metrics.histogram("ui_prepare_seconds").recordSince(start);
             
         } catch (Exception e) {
             System.err.println("❌ 프로그램 실행 중 오류 발생:");
@@ -73,9 +95,41 @@ public class MainApp extends Application {
         }
     }
     
+    private void showMainScreen(Stage primaryStage, CompletableFuture<DataManager> data,
+                                CompletableFuture<StartupSnapshot> snapshot) {
+        long start = System.nanoTime();
+        // PIN 창이 그려지기도 전에 인증된 경우에만 여기서 만듦
+        prepareMainScreen(data, snapshot);
+        if (mainScene == null) {
+            return;
+        }
+        
+        primaryStage.setTitle("💬 감정 분석 & 답변 추천 시스템");
+        primaryStage.setScene(mainScene);
+        primaryStage.setResizable(true);
+        primaryStage.setMinWidth(800);
+        primaryStage.setMinHeight(600);
+        primaryStage.show();
+        
+        metrics.Metrics.histogram("ui_show_seconds").recordSince(start);
+        Log.info("✅ 프로그램이 성공적으로 실행되었습니다! (PIN 후 "
+            + (System.nanoTime() - start) / 1_000_000 + "ms" + (data.isDone() ? "" : ", 기록은 배경에서 불러오는 중") + ")");
+    }
+    
     @Override
     public void stop() {
-        System.out.println("프로그램을 종료합니다.");
+        // 💾 그룹 커밋 대기 중인 메시지 내려쓰기
+        if (mainController != null) {
+            mainController.shutdown();
+        }
+        
+        // 📊 종료 시 메트릭 내보내기 (data/metrics.json, data/metrics.prom)
+        try {
+            metrics.Metrics.writeTo(java.nio.file.Paths.get("data"));
+        } catch (Exception e) {
+            Log.error("메트릭 저장 실패: " + e.getMessage());
+        }
+        Log.info("프로그램을 종료합니다.");
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,48 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 분석 흐름 한 단계의 JFR 이벤트
+ *
+ * flow: analyze(직접 입력) / kakao(CSV 가져오기) / ocr(스크린샷)
+ * stage: context, prompt, http, parse, save, refresh, encode, ocr_http, extract, total
+ */
+@Name(AnalysisStageEvent.NAME)
+@Label("Analysis Stage")
+@Category({"EmotionAnalyzer", "Analysis"})
+@Description("감정 분석 흐름의 단계별 소요 시간")
+@StackTrace(false)
+public class AnalysisStageEvent extends Event {
+    public static final String NAME = "emotionanalyzer.AnalysisStage";
+
+    @Label("Flow")
+    public String flow;
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Contact")
+    public String contact;
+
+    @Label("Message Length")
+    public int messageLength;
+
+    @Label("Request Bytes")
+    @DataAmount
+    public long requestBytes;
+
+    @Label("Response Bytes")
+    @DataAmount
+    public long responseBytes;
+
+    @Label("Prompt Tokens")
+    @Description("프롬프트 토큰 어림값 (prompt 단계)")
+    public int promptTokens;
+}
@@ -0,0 +1,64 @@
+package metrics;
+
+/**
+ * AnalysisStageEvent 생성 도우미
+ *
+ * 컨트롤러가 작업 스레드에서 begin()으로 흐름/상대/길이를 지정해 두면,
+ * 서비스 코드는 start("prompt")처럼 단계 이름만으로 이벤트를 만들 수 있다.
+ * JFR 기록이 꺼져 있으면 이벤트 생성/커밋 비용은 거의 없다.
+ */
+public final class AnalysisTrace {
+
+    private static final class Context {
+        final String flow;
+        final String contact;
+        final int messageLength;
+
+        Context(String flow, String contact, int messageLength) {
+            this.flow = flow;
+            this.contact = contact;
+            this.messageLength = messageLength;
+        }
+    }
+
+    private static final ThreadLocal<Context> CURRENT = new ThreadLocal<>();
+
+    private AnalysisTrace() {
+    }
+
+    public static void begin(String flow, String contact, int messageLength) {
+        CURRENT.set(new Context(flow, contact, messageLength));
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    // 현재 스레드의 흐름 정보로 단계 시작
+    public static AnalysisStageEvent start(String stage) {
+        Context ctx = CURRENT.get();
+        if (ctx == null) {
+            return start("-", stage, null, 0);
+        }
+        return start(ctx.flow, stage, ctx.contact, ctx.messageLength);
+    }
+
+    public static AnalysisStageEvent start(String flow, String stage, String contact, int messageLength) {
+        AnalysisStageEvent event = new AnalysisStageEvent();
+        if (event.isEnabled()) {
+            event.flow = flow;
+            event.stage = stage;
+            event.contact = contact;
+            event.messageLength = messageLength;
+        }
+        event.begin();
+        return event;
+    }
+
+    public static void commit(AnalysisStageEvent event) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 단조 증가 카운터 (LongAdder 기반, 락 없음)
+ */
+public final class Counter {
+    private final String name;
+    private final String labels;
+    private final LongAdder adder = new LongAdder();
+
+    Counter(String name, String labels) {
+        this.name = name;
+        this.labels = labels;
+    }
+
+    public void increment() {
+        adder.increment();
+    }
+
+    public void add(long delta) {
+        adder.add(delta);
+    }
+
+    public long get() {
+        return adder.sum();
+    }
+
+    public String getName() { return name; }
+    public String getLabels() { return labels; }
+}
@@ -0,0 +1,36 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 현재 값 게이지
+ * 직접 set 하거나, 등록 시 넘긴 supplier로 읽을 때마다 계산한다.
+ */
+public final class Gauge {
+    private final String name;
+    private final String labels;
+    private final AtomicLong value = new AtomicLong();
+    private volatile LongSupplier supplier;
+
+    Gauge(String name, String labels) {
+        this.name = name;
+        this.labels = labels;
+    }
+
+    public void set(long newValue) {
+        value.set(newValue);
+    }
+
+    void bind(LongSupplier supplier) {
+        this.supplier = supplier;
+    }
+
+    public long get() {
+        LongSupplier s = supplier;
+        return s != null ? s.getAsLong() : value.get();
+    }
+
+    public String getName() { return name; }
+    public String getLabels() { return labels; }
+}
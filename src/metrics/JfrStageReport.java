@@ -0,0 +1,80 @@
+package metrics;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * .jfr 파일의 AnalysisStageEvent를 흐름/단계별 지연 표로 요약
+ *
+ * 녹화:  java -XX:StartFlightRecording=filename=analysis.jfr ... main.MainApp
+ * 요약:  java -cp app/target/classes metrics.JfrStageReport analysis.jfr
+ */
+public class JfrStageReport {
+
+    private static final class StageStats {
+        final LatencyHistogram latency = new LatencyHistogram("stage", "");
+        long requestBytes;
+        long responseBytes;
+        long messageLength;
+        long promptTokens;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("사용법: JfrStageReport <recording.jfr>");
+            System.exit(1);
+        }
+        System.out.print(summarize(Paths.get(args[0])));
+    }
+
+    public static String summarize(Path recording) throws IOException {
+        Map<String, StageStats> stats = new TreeMap<>();
+
+        for (RecordedEvent event : RecordingFile.readAllEvents(recording)) {
+            if (!AnalysisStageEvent.NAME.equals(event.getEventType().getName())) {
+                continue;
+            }
+            String key = event.getString("flow") + " / " + event.getString("stage");
+            StageStats s = stats.computeIfAbsent(key, k -> new StageStats());
+            s.latency.recordNanos(event.getDuration().toNanos());
+            s.requestBytes += event.getLong("requestBytes");
+            s.responseBytes += event.getLong("responseBytes");
+            s.messageLength += event.getInt("messageLength");
+            // 예전 녹화에는 없는 필드
+            if (event.hasField("promptTokens")) {
+                s.promptTokens += event.getInt("promptTokens");
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-24s %6s %10s %10s %10s %10s %8s %10s %10s %8s%n",
+            "flow / stage", "count", "mean ms", "p50 ms", "p95 ms", "max ms", "avg len", "avg req B", "avg resp B", "avg tok"));
+
+        for (Map.Entry<String, StageStats> entry : stats.entrySet()) {
+            StageStats s = entry.getValue();
+            long count = s.latency.getCount();
+            sb.append(String.format("%-24s %6d %10.2f %10.2f %10.2f %10.2f %8d %10d %10d %8d%n",
+                entry.getKey(),
+                count,
+                s.latency.getMeanNanos() / 1_000_000.0,
+                s.latency.getPercentileNanos(50) / 1_000_000.0,
+                s.latency.getPercentileNanos(95) / 1_000_000.0,
+                s.latency.getMaxNanos() / 1_000_000.0,
+                s.messageLength / count,
+                s.requestBytes / count,
+                s.responseBytes / count,
+                s.promptTokens / count));
+        }
+
+        if (stats.isEmpty()) {
+            sb.append("(AnalysisStage 이벤트 없음)\n");
+        }
+        return sb.toString();
+    }
+}
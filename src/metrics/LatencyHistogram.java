@@ -0,0 +1,116 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HdrHistogram 방식의 로그-선형 버킷 히스토그램 (나노초 단위 기록)
+ *
+ * 0~127은 1 단위, 그 위로는 2의 거듭제곱 구간마다 64칸으로 나눈다.
+ * 상대 오차 약 1.6%, 최대 2^44ns(약 4.9시간)까지 기록하며 넘는 값은 마지막 칸에 들어간다.
+ * 기록은 AtomicLongArray 증가 한 번이라 락이 없다.
+ */
+public final class LatencyHistogram {
+    private static final int LINEAR_COUNT = 128;
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_SHIFT = 38;
+    private static final long MAX_VALUE = (1L << (MAX_SHIFT + SUB_BUCKET_BITS + 1)) - 1;
+    private static final int INDEX_COUNT = LINEAR_COUNT + MAX_SHIFT * SUB_BUCKET_COUNT;
+
+    private final String name;
+    private final String labels;
+    private final AtomicLongArray counts = new AtomicLongArray(INDEX_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalSum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram(String name, String labels) {
+        this.name = name;
+        this.labels = labels;
+    }
+
+    public void recordNanos(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        counts.incrementAndGet(indexOf(value));
+        totalCount.increment();
+        totalSum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public void record(long duration, TimeUnit unit) {
+        recordNanos(unit.toNanos(duration));
+    }
+
+    // 시작 시각(System.nanoTime)부터 지금까지 기록
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getSumNanos() {
+        return totalSum.sum();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public double getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0.0 : (double) getSumNanos() / count;
+    }
+
+    /**
+     * 백분위 값 (0~100)
+     * 동시 기록 중에는 근사치지만 스냅샷 없이 읽는다.
+     */
+    public long getPercentileNanos(double percentile) {
+        long count = 0;
+        long[] snapshot = new long[INDEX_COUNT];
+        for (int i = 0; i < INDEX_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(count * (percentile / 100.0)));
+        long seen = 0;
+        for (int i = 0; i < INDEX_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_COUNT) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return LINEAR_COUNT + (shift - 1) * SUB_BUCKET_COUNT + sub;
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < LINEAR_COUNT) {
+            return index;
+        }
+        int shift = (index - LINEAR_COUNT) / SUB_BUCKET_COUNT + 1;
+        long sub = (index - LINEAR_COUNT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    public String getName() { return name; }
+    public String getLabels() { return labels; }
+}
@@ -0,0 +1,195 @@
+package metrics;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 전역 메트릭 레지스트리
+ *
+ * 사용 예:
+ *   long start = System.nanoTime();
+ *   ...
+ *   Metrics.histogram("gemini_request_seconds").recordSince(start);
+ *   Metrics.counter("gemini_responses_total", "code", "200").increment();
+ *
+ * 조회는 ConcurrentHashMap.get 한 번이므로 핫패스에서도 락이 없다.
+ * 내보내기는 JSON(toJson)과 Prometheus 텍스트(toPrometheus) 두 가지.
+ */
+public final class Metrics {
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name) {
+        return counter(name, null, null);
+    }
+
+    public static Counter counter(String name, String labelName, String labelValue) {
+        String labels = labels(labelName, labelValue);
+        return counters.computeIfAbsent(key(name, labels), k -> new Counter(name, labels));
+    }
+
+    public static Gauge gauge(String name) {
+        return gauges.computeIfAbsent(key(name, ""), k -> new Gauge(name, ""));
+    }
+
+    // 읽을 때마다 supplier로 계산하는 게이지 (예: 기록 크기)
+    public static Gauge gauge(String name, LongSupplier supplier) {
+        Gauge gauge = gauge(name);
+        gauge.bind(supplier);
+        return gauge;
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        return histogram(name, null, null);
+    }
+
+    public static LatencyHistogram histogram(String name, String labelName, String labelValue) {
+        String labels = labels(labelName, labelValue);
+        return histograms.computeIfAbsent(key(name, labels), k -> new LatencyHistogram(name, labels));
+    }
+
+    private static String labels(String labelName, String labelValue) {
+        if (labelName == null || labelValue == null) {
+            return "";
+        }
+        return labelName + "=\"" + labelValue.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static String key(String name, String labels) {
+        return labels.isEmpty() ? name : name + "{" + labels + "}";
+    }
+
+    // ===== 내보내기 =====
+
+    public static JSONObject toJson() {
+        JSONObject root = new JSONObject();
+
+        JSONArray counterArray = new JSONArray();
+        for (Counter c : sorted(counters, Counter::getName, Counter::getLabels)) {
+            counterArray.put(new JSONObject()
+                .put("name", c.getName())
+                .put("labels", c.getLabels())
+                .put("value", c.get()));
+        }
+
+        JSONArray gaugeArray = new JSONArray();
+        for (Gauge g : sorted(gauges, Gauge::getName, Gauge::getLabels)) {
+            gaugeArray.put(new JSONObject()
+                .put("name", g.getName())
+                .put("value", g.get()));
+        }
+
+        JSONArray histogramArray = new JSONArray();
+        for (LatencyHistogram h : sorted(histograms, LatencyHistogram::getName, LatencyHistogram::getLabels)) {
+            JSONObject obj = new JSONObject()
+                .put("name", h.getName())
+                .put("labels", h.getLabels())
+                .put("count", h.getCount())
+                .put("meanMs", h.getMeanNanos() / 1_000_000.0)
+                .put("maxMs", h.getMaxNanos() / 1_000_000.0);
+            for (double q : QUANTILES) {
+                obj.put("p" + formatQuantileKey(q) + "Ms", h.getPercentileNanos(q * 100) / 1_000_000.0);
+            }
+            histogramArray.put(obj);
+        }
+
+        root.put("counters", counterArray);
+        root.put("gauges", gaugeArray);
+        root.put("histograms", histogramArray);
+        return root;
+    }
+
+    /**
+     * Prometheus 텍스트 형식 (히스토그램은 summary로, 초 단위)
+     */
+    public static String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        String lastName = null;
+
+        for (Counter c : sorted(counters, Counter::getName, Counter::getLabels)) {
+            if (!c.getName().equals(lastName)) {
+                sb.append("# TYPE ").append(c.getName()).append(" counter\n");
+                lastName = c.getName();
+            }
+            sb.append(c.getName()).append(braces(c.getLabels())).append(' ').append(c.get()).append('\n');
+        }
+
+        for (Gauge g : sorted(gauges, Gauge::getName, Gauge::getLabels)) {
+            sb.append("# TYPE ").append(g.getName()).append(" gauge\n");
+            sb.append(g.getName()).append(' ').append(g.get()).append('\n');
+        }
+
+        lastName = null;
+        for (LatencyHistogram h : sorted(histograms, LatencyHistogram::getName, LatencyHistogram::getLabels)) {
+            if (!h.getName().equals(lastName)) {
+                sb.append("# TYPE ").append(h.getName()).append(" summary\n");
+                lastName = h.getName();
+            }
+            for (double q : QUANTILES) {
+                String labels = (h.getLabels().isEmpty() ? "" : h.getLabels() + ",") + "quantile=\"" + q + "\"";
+                sb.append(h.getName()).append('{').append(labels).append("} ")
+                    .append(seconds(h.getPercentileNanos(q * 100))).append('\n');
+            }
+            sb.append(h.getName()).append("_sum").append(braces(h.getLabels())).append(' ')
+                .append(seconds(h.getSumNanos())).append('\n');
+            sb.append(h.getName()).append("_count").append(braces(h.getLabels())).append(' ')
+                .append(h.getCount()).append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    // data/metrics.json, data/metrics.prom 으로 기록
+    public static void writeTo(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Files.write(dir.resolve("metrics.json"), toJson().toString(2).getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("metrics.prom"), toPrometheus().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 테스트/벤치마크에서 초기화용
+    public static void reset() {
+        counters.clear();
+        gauges.clear();
+        histograms.clear();
+    }
+
+    private static <T> List<T> sorted(Map<String, T> map,
+                                      java.util.function.Function<T, String> name,
+                                      java.util.function.Function<T, String> labels) {
+        List<T> list = new ArrayList<>(map.values());
+        list.sort(Comparator.comparing(name).thenComparing(labels));
+        return list;
+    }
+
+    private static String braces(String labels) {
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1_000_000_000.0);
+    }
+
+    private static String formatQuantileKey(double q) {
+        // 0.5 → 50, 0.99 → 99, 0.999 → 999
+        String s = Double.toString(q).substring(2);
+        return s.length() == 1 ? s + "0" : s;
+    }
+}
@@ -7,6 +7,8 @@ public class Contact {
     private MBTI mbti;
     private String notes;
     private String autoGeneratedProfile;
+    private String conversationSummary;     // 🆕 대화 요약 (배경에서 갱신, 맥락 분석에 원문 대신 보냄)
+    private int summaryMessageCount;        // 요약에 반영된 메시지 수
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     
@@ -41,6 +43,8 @@ public class Contact {
     public MBTI getMbti() { return mbti; }
     public String getNotes() { return notes; }
     public String getAutoGeneratedProfile() { return autoGeneratedProfile; }
+    public String getConversationSummary() { return conversationSummary; }
+    public int getSummaryMessageCount() { return summaryMessageCount; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     
@@ -64,6 +68,13 @@ public class Contact {
         this.updatedAt = LocalDateTime.now();
     }
     
+    // messageCount: 이 요약이 반영한 이 상대방의 메시지 수 (앞에서부터)
+    public void setConversationSummary(String summary, int messageCount) {
+        this.conversationSummary = summary;
+        this.summaryMessageCount = messageCount;
+        this.updatedAt = LocalDateTime.now();
+    }
+    
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
@@ -80,6 +91,10 @@ public class Contact {
         return autoGeneratedProfile != null && !autoGeneratedProfile.trim().isEmpty();
     }
 
+    public boolean hasConversationSummary() {
+        return conversationSummary != null && !conversationSummary.trim().isEmpty();
+    }
+
     public String getDisplayInfo() {
         String info = name;
         if (hasMbti()) {
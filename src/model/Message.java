@@ -10,6 +10,7 @@ public class Message {
     private String recommendedResponse;
     private LocalDateTime timestamp;
     private String contactName; // 🆕 상대방 이름 추가
+    private int contactId = -1; // 상대방 사전 id (저장소에서 읽은 메시지만, 없으면 -1)
     
     public Message(String content) {
         this.content = content;
@@ -45,6 +46,7 @@ public class Message {
     public String getRecommendedResponse() { return recommendedResponse; }
     public LocalDateTime getTimestamp() { return timestamp; }
     public String getContactName() { return contactName; } // 🆕
+    public int getContactId() { return contactId; }
     
     public void setContent(String content) { this.content = content; }
     public void setEmotion(Emotion emotion) { this.emotion = emotion; }
@@ -54,7 +56,9 @@ public class Message {
     public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
     public void setContactName(String contactName) { // 🆕
         this.contactName = contactName != null && !contactName.trim().isEmpty() ? contactName : "알 수 없음";
+        this.contactId = -1;
     }
+    public void setContactId(int contactId) { this.contactId = contactId; }
     
     public void setIntensity(double intensity) {
         if (intensity < 0.0) this.intensity = 0.0;
@@ -0,0 +1,154 @@
+package service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 상대방 이름 ↔ 0부터 빽빽하게 매기는 int id 사전
+ *
+ * - 같은 이름은 항상 같은 id, 같은 String 인스턴스 (이름 문자열을 메시지마다 따로 들지 않음)
+ * - file 을 주면 새 이름이 생길 때마다 한 줄씩 덧붙여 id 가 실행 간에도 유지된다 (줄 번호 = id)
+ * - 읽기(find/nameOf)는 락 없음, 새 id 발급만 직렬화
+ */
+public class ContactDictionary {
+
+    private final Path file;
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private volatile int size;
+
+    // 메모리 전용 (벤치마크/도구용)
+    public ContactDictionary() {
+        this.file = null;
+    }
+
+    public ContactDictionary(Path file) {
+        this.file = file;
+        load();
+    }
+
+    // 없는 이름이면 -1
+    public int find(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    // 없는 이름이면 새 id 발급 (파일에 먼저 기록한 뒤 공개)
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            persist(name);
+            return register(name);
+        }
+    }
+
+    public String nameOf(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("contact id " + id + ", size " + size);
+        }
+        return names[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int register(String name) {
+        int id = size;
+        String[] current = names;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = name;
+        names = current;
+        size = id + 1;
+        ids.put(name, id);
+        return id;
+    }
+
+    private void load() {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        try {
+            String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            int complete = content.lastIndexOf('\n') + 1;
+            if (complete < content.length()) {
+                // 쓰다 만 마지막 줄은 버리고 파일도 줄 끝에 맞춰 자름
+                Log.warn("⚠️ 상대방 사전의 손상된 마지막 줄을 버립니다.");
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(content.substring(0, complete).getBytes(StandardCharsets.UTF_8).length);
+                }
+            }
+            int start = 0;
+            while (start < complete) {
+                int end = content.indexOf('\n', start);
+                String name = unescape(content.substring(start, end));
+                start = end + 1;
+                // 손으로 고쳐 중복이 생겼으면 뒤 번호가 밀리지 않도록 자리만 차지
+                if (ids.containsKey(name)) {
+                    Log.warn("⚠️ 상대방 사전에 중복 이름: " + name);
+                    name = name + "#" + size;
+                }
+                register(name);
+            }
+        } catch (IOException e) {
+            Log.error("❌ 상대방 사전 로드 실패: " + e.getMessage(), e);
+        }
+    }
+
+    private void persist(String name) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer line = ByteBuffer.wrap((escape(name) + "\n").getBytes(StandardCharsets.UTF_8));
+                while (line.hasRemaining()) {
+                    channel.write(line);
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            // 메모리 id 는 그대로 쓰고, 다음 실행에서 다시 발급된다
+            Log.error("❌ 상대방 사전 저장 실패: " + e.getMessage(), e);
+        }
+    }
+
+    private static String escape(String name) {
+        return name.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String line) {
+        StringBuilder sb = new StringBuilder(line.length());
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                sb.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,436 @@
+package service;
+
+import metrics.Metrics;
+import model.Emotion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.IntToLongFunction;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 상대방별 프로필 특징 요약 (메시지를 저장할 때마다 조금씩 갱신)
+ *
+ * - 감정 비율: 최근 RECENT_WINDOW 개 정도에 무게를 둔 이동 평균 (처음 몇 개는 단순 평균과 같음)
+ * - 강도: 전체 평균/표준편차(Welford) + 최근 가중 평균
+ * - 자주 쓰는 말: 단어 PHRASE_SLOTS 칸짜리 space-saving 집계 (칸이 차면 가장 적은 것을 밀어냄)
+ * - 프로필을 만들 때의 값을 기준으로 남겨 두고(markRendered), 지금과 얼마나 달라졌는지(drift)로 다시 만들지 정한다
+ *
+ * 파일(<데이터>.features)에는 반영한 메시지 수(covered)와 그 메시지들의 지문까지 저장 → 시작할 때 그 뒤 메시지만 더 읽는다
+ * (지문은 검색 색인과 같은 것: 저장소를 지우고 다시 채웠으면 버림)
+ * 스레드: 모두 this 로 동기화
+ */
+public class ContactFeatures {
+
+    private static final int MAGIC = 0x45434654;   // "ECFT"
+    private static final int FORMAT_VERSION = 2;
+
+    static final int RECENT_WINDOW = 50;
+    static final int PHRASE_SLOTS = 32;
+    // 프롬프트/비교에 쓰는 상위 단어 수 (2번 이상 나온 것만)
+    static final int TOP_PHRASES = 5;
+    // 자주 쓰는 말 변화는 감정/강도보다 덜 중요
+    private static final double PHRASE_WEIGHT = 0.2;
+
+    private static final int EMOTIONS = Emotion.values().length;
+    private static final int MAX_WORD_LENGTH = 16;
+
+    static final class Summary {
+        int messages;
+        final double[] mix = new double[EMOTIONS];
+        double intensityMean;
+        double intensityM2;
+        double recentIntensity;
+        final String[] phrases = new String[PHRASE_SLOTS];
+        final int[] phraseCounts = new int[PHRASE_SLOTS];
+        int phraseSize;
+
+        // 마지막 프로필 기준값 (renderedMessages < 0 이면 아직 없음)
+        int renderedMessages = -1;
+        final double[] renderedMix = new double[EMOTIONS];
+        double renderedIntensity;
+        String[] renderedPhrases = new String[0];
+
+        void add(int emotion, double intensity, String content) {
+            messages++;
+            double alpha = 1.0 / Math.min(messages, RECENT_WINDOW);
+            for (int i = 0; i < EMOTIONS; i++) {
+                mix[i] += alpha * ((i == emotion ? 1 : 0) - mix[i]);
+            }
+            recentIntensity += alpha * (intensity - recentIntensity);
+            double delta = intensity - intensityMean;
+            intensityMean += delta / messages;
+            intensityM2 += delta * (intensity - intensityMean);
+            if (content != null) {
+                addWords(content);
+            }
+        }
+
+        private void addWords(String content) {
+            int length = content.length();
+            int i = 0;
+            while (i < length) {
+                while (i < length && !Character.isLetter(content.charAt(i))) {
+                    i++;
+                }
+                int start = i;
+                while (i < length && Character.isLetterOrDigit(content.charAt(i))) {
+                    i++;
+                }
+                if (i - start >= 2 && i - start <= MAX_WORD_LENGTH) {
+                    addPhrase(content.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+
+        private void addPhrase(String word) {
+            int min = 0;
+            for (int i = 0; i < phraseSize; i++) {
+                if (phrases[i].equals(word)) {
+                    phraseCounts[i]++;
+                    return;
+                }
+                if (phraseCounts[i] < phraseCounts[min]) {
+                    min = i;
+                }
+            }
+            if (phraseSize < PHRASE_SLOTS) {
+                phrases[phraseSize] = word;
+                phraseCounts[phraseSize++] = 1;
+            } else {
+                // 밀려난 단어의 수를 이어받음 (과대 추정 쪽으로만 틀림)
+                phrases[min] = word;
+                phraseCounts[min]++;
+            }
+        }
+
+        String[] topPhrases() {
+            Integer[] order = new Integer[phraseSize];
+            for (int i = 0; i < phraseSize; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> phraseCounts[b] - phraseCounts[a]);
+            int count = 0;
+            while (count < Math.min(TOP_PHRASES, phraseSize) && phraseCounts[order[count]] >= 2) {
+                count++;
+            }
+            String[] top = new String[count];
+            for (int i = 0; i < count; i++) {
+                top[i] = phrases[order[i]];
+            }
+            return top;
+        }
+
+        double intensityStdDev() {
+            return messages > 1 ? Math.sqrt(intensityM2 / (messages - 1)) : 0;
+        }
+
+        // 0(그대로) ~ 1(완전히 다름). 감정 비율 차이, 최근 강도 차이, 자주 쓰는 말 교체 비율 중 가장 큰 것
+        double drift() {
+            if (renderedMessages < 0) {
+                return 1;
+            }
+            double mixShift = 0;
+            for (int i = 0; i < EMOTIONS; i++) {
+                mixShift += Math.abs(mix[i] - renderedMix[i]);
+            }
+            mixShift /= 2;
+            double intensityShift = Math.abs(recentIntensity - renderedIntensity);
+            String[] top = topPhrases();
+            int kept = 0;
+            for (String phrase : top) {
+                for (String rendered : renderedPhrases) {
+                    if (phrase.equals(rendered)) {
+                        kept++;
+                        break;
+                    }
+                }
+            }
+            double phraseShift = top.length > 0 ? 1 - (double) kept / top.length : 0;
+            return Math.max(Math.max(mixShift, intensityShift), phraseShift * PHRASE_WEIGHT);
+        }
+
+        void markRendered() {
+            renderedMessages = messages;
+            System.arraycopy(mix, 0, renderedMix, 0, EMOTIONS);
+            renderedIntensity = recentIntensity;
+            renderedPhrases = topPhrases();
+        }
+    }
+
+    private final Path file;
+    // 저장소 앞 n 개 메시지의 지문 (MessageSearchIndex.fingerprint)
+    private final IntToLongFunction fingerprint;
+    private Summary[] summaries = new Summary[16];
+    private int covered;
+
+    public ContactFeatures(Path file, IntToLongFunction fingerprint) {
+        this.file = file;
+        this.fingerprint = fingerprint;
+    }
+
+    // 저장소 순서대로 호출 (covered 가 저장소 위치와 맞아야 함)
+    public synchronized void add(int contactId, int emotion, double intensity, String content) {
+        covered++;
+        if (contactId < 0) {
+            return;
+        }
+        if (contactId >= summaries.length) {
+            summaries = Arrays.copyOf(summaries, Math.max(summaries.length * 2, contactId + 1));
+        }
+        Summary summary = summaries[contactId];
+        if (summary == null) {
+            summary = new Summary();
+            summaries[contactId] = summary;
+        }
+        summary.add(emotion, intensity, content);
+    }
+
+    // 반영한 메시지 수 (저장소 위치 0 ~ covered-1)
+    public synchronized int covered() {
+        return covered;
+    }
+
+    public synchronized int messageCount(int contactId) {
+        Summary summary = find(contactId);
+        return summary != null ? summary.messages : 0;
+    }
+
+    // 마지막 프로필 이후 변화 (프로필이 없으면 1, 메시지가 없으면 0)
+    public synchronized double drift(int contactId) {
+        Summary summary = find(contactId);
+        return summary != null ? summary.drift() : 0;
+    }
+
+    // 마지막 프로필 이후 새 메시지 수 (프로필이 없으면 전부)
+    public synchronized int messagesSinceRender(int contactId) {
+        Summary summary = find(contactId);
+        if (summary == null) {
+            return 0;
+        }
+        return summary.renderedMessages >= 0 ? summary.messages - summary.renderedMessages : summary.messages;
+    }
+
+    public synchronized void markRendered(int contactId) {
+        Summary summary = find(contactId);
+        if (summary != null) {
+            summary.markRendered();
+        }
+    }
+
+    /**
+     * 프롬프트용 한국어 요약, 항목마다 한 줄 (메시지가 없으면 null)
+     * 예: "- 최근 감정 비율: 기쁨 41%, 슬픔 22%" / "- 감정 강도: 평균 63% (편차 18%), 최근 71%" / "- 자주 쓰는 말: 진짜, 시험"
+     */
+    public synchronized String describe(int contactId) {
+        Summary summary = find(contactId);
+        if (summary == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("- 메시지 수: ").append(summary.messages).append("개\n");
+        sb.append("- 최근 감정 비율: ");
+        Integer[] order = new Integer[EMOTIONS];
+        for (int i = 0; i < EMOTIONS; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(summary.mix[b], summary.mix[a]));
+        Emotion[] emotions = Emotion.values();
+        String separator = "";
+        for (int i : order) {
+            int percent = (int) Math.round(summary.mix[i] * 100);
+            if (percent > 0) {
+                sb.append(separator).append(emotions[i].getKorean()).append(' ').append(percent).append('%');
+                separator = ", ";
+            }
+        }
+        sb.append('\n');
+        sb.append("- 감정 강도: 평균 ").append(Math.round(summary.intensityMean * 100))
+            .append("% (편차 ").append(Math.round(summary.intensityStdDev() * 100))
+            .append("%), 최근 ").append(Math.round(summary.recentIntensity * 100)).append("%\n");
+        String[] top = summary.topPhrases();
+        if (top.length > 0) {
+            sb.append("- 자주 쓰는 말: ").append(String.join(", ", top)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public synchronized void clear() {
+        summaries = new Summary[16];
+        covered = 0;
+    }
+
+    private Summary find(int contactId) {
+        if (contactId < 0 || contactId >= summaries.length) {
+            return null;
+        }
+        Summary summary = summaries[contactId];
+        return summary != null && summary.messages > 0 ? summary : null;
+    }
+
+    // ===== 파일 =====
+
+    /**
+     * 저장된 요약을 읽는다. 반영한 메시지 수가 저장소(storeCount)보다 많거나 그 메시지들의 지문이 다르면 맞지 않는 파일이라 버림
+     */
+    public synchronized boolean load(int storeCount) {
+        if (file == null || !Files.exists(file)) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+             CheckedInputStream checked = new CheckedInputStream(raw, crc);
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                Log.warn("⚠️ 프로필 특징 파일 형식이 달라 다시 만듭니다: " + file);
+                return false;
+            }
+            int count = in.readInt();
+            long storedFingerprint = in.readLong();
+            if (count > storeCount) {
+                Log.warn("⚠️ 프로필 특징이 저장소와 맞지 않아 다시 만듭니다 (특징 " + count + ", 저장소 " + storeCount + ")");
+                return false;
+            }
+            if (storedFingerprint != fingerprint.applyAsLong(count)) {
+                Log.warn("⚠️ 프로필 특징이 지금 저장소 내용과 달라 다시 만듭니다: " + file);
+                return false;
+            }
+            int idBound = in.readInt();
+            Summary[] loaded = new Summary[Math.max(16, idBound)];
+            for (int id = 0; id < idBound; id++) {
+                if (in.readBoolean()) {
+                    loaded[id] = read(in);
+                }
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                Log.warn("⚠️ 프로필 특징 체크섬이 맞지 않아 다시 만듭니다: " + file);
+                return false;
+            }
+            summaries = loaded;
+            covered = count;
+            return true;
+        } catch (EOFException e) {
+            Log.warn("⚠️ 프로필 특징 파일이 잘려 있어 다시 만듭니다: " + file);
+            return false;
+        } catch (IOException | RuntimeException e) {
+            Log.warn("⚠️ 프로필 특징을 읽지 못해 다시 만듭니다: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // 임시 파일에 쓰고 fsync 후 원자적 교체
+    public synchronized void save() {
+        if (file == null) {
+            return;
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            CRC32 crc = new CRC32();
+            try (OutputStream raw = Files.newOutputStream(temp);
+                 CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(raw, 1 << 16), crc);
+                 DataOutputStream out = new DataOutputStream(checked)) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(covered);
+                out.writeLong(fingerprint.applyAsLong(covered));
+                out.writeInt(summaries.length);
+                for (Summary summary : summaries) {
+                    out.writeBoolean(summary != null);
+                    if (summary != null) {
+                        write(out, summary);
+                    }
+                }
+                out.flush();
+                out.writeLong(crc.getValue());
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Metrics.counter("profile_features_save_failures_total").increment();
+            Log.error("❌ 프로필 특징 저장 실패: " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized void deleteFile() {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            Log.warn("⚠️ 프로필 특징 파일 삭제 실패: " + e.getMessage());
+        }
+    }
+
+    private static void write(DataOutputStream out, Summary summary) throws IOException {
+        out.writeInt(summary.messages);
+        for (double value : summary.mix) {
+            out.writeDouble(value);
+        }
+        out.writeDouble(summary.intensityMean);
+        out.writeDouble(summary.intensityM2);
+        out.writeDouble(summary.recentIntensity);
+        out.writeByte(summary.phraseSize);
+        for (int i = 0; i < summary.phraseSize; i++) {
+            out.writeUTF(summary.phrases[i]);
+            out.writeInt(summary.phraseCounts[i]);
+        }
+        out.writeInt(summary.renderedMessages);
+        for (double value : summary.renderedMix) {
+            out.writeDouble(value);
+        }
+        out.writeDouble(summary.renderedIntensity);
+        out.writeByte(summary.renderedPhrases.length);
+        for (String phrase : summary.renderedPhrases) {
+            out.writeUTF(phrase);
+        }
+    }
+
+    private static Summary read(DataInputStream in) throws IOException {
+        Summary summary = new Summary();
+        summary.messages = in.readInt();
+        for (int i = 0; i < EMOTIONS; i++) {
+            summary.mix[i] = in.readDouble();
+        }
+        summary.intensityMean = in.readDouble();
+        summary.intensityM2 = in.readDouble();
+        summary.recentIntensity = in.readDouble();
+        summary.phraseSize = in.readUnsignedByte();
+        for (int i = 0; i < summary.phraseSize; i++) {
+            summary.phrases[i] = in.readUTF();
+            summary.phraseCounts[i] = in.readInt();
+        }
+        summary.renderedMessages = in.readInt();
+        for (int i = 0; i < EMOTIONS; i++) {
+            summary.renderedMix[i] = in.readDouble();
+        }
+        summary.renderedIntensity = in.readDouble();
+        summary.renderedPhrases = new String[in.readUnsignedByte()];
+        for (int i = 0; i < summary.renderedPhrases.length; i++) {
+            summary.renderedPhrases[i] = in.readUTF();
+        }
+        return summary;
+    }
+}
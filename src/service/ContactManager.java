@@ -3,19 +3,22 @@ package service;
 import model.Contact;
 import model.MBTI;
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class ContactManager {
-    private static final String CONTACTS_FILE = "data/contacts.txt";
+public class ContactManager implements AutoCloseable {
     private Map<String, Contact> contacts;
+    private final ContactStore store;
     
     public ContactManager() {
-        this.contacts = new HashMap<>();
+        this(Stores.openContactStore()); // 저장소 선택은 Stores 참고
+    }
+    
+    public ContactManager(ContactStore store) {
+        this.contacts = new ConcurrentHashMap<>();
+        this.store = store;
         loadContacts();
-        System.out.println("📇 연락처 매니저 초기화 완료 (연락처 " + contacts.size() + "개)");
+        Log.info("📇 연락처 매니저 초기화 완료 (연락처 " + contacts.size() + "개)");
     }
     
     public void saveContact(Contact contact) {
@@ -24,8 +27,8 @@ public class ContactManager {
         }
         
         contacts.put(contact.getName(), contact);
-        saveToFile();
-        System.out.println("💾 연락처 저장: " + contact.getDisplayInfo());
+        store.put(contact);
+        Log.info("💾 연락처 저장: " + contact.getDisplayInfo());
     }
     
     public Contact getContact(String name) {
@@ -46,12 +49,17 @@ public class ContactManager {
         return new TreeSet<>(contacts.keySet());
     }
     
+    // 이름 자동완성 (접두사 검색, 정렬 순서)
+    public List<String> findNamesByPrefix(String prefix, int limit) {
+        return store.namesWithPrefix(prefix != null ? prefix : "", limit);
+    }
+    
     public void setMbti(String name, MBTI mbti) {
         Contact contact = contacts.get(name);
         if (contact != null) {
             contact.setMbti(mbti);
-            saveToFile();
-            System.out.println("✅ MBTI 설정: " + name + " → " + mbti.getCode());
+            store.put(contact);
+            Log.info("✅ MBTI 설정: " + name + " → " + mbti.getCode());
         }
     }
     
@@ -59,7 +67,7 @@ public class ContactManager {
         Contact contact = contacts.get(name);
         if (contact != null) {
             contact.setNotes(notes);
-            saveToFile();
+            store.put(contact);
         }
     }
     
@@ -67,116 +75,61 @@ public class ContactManager {
         Contact contact = contacts.get(name);
         if (contact != null) {
             contact.setAutoGeneratedProfile(profile);
-            saveToFile();
-            System.out.println("✅ 자동 프로필 저장: " + name);
+            store.put(contact);
+            Log.info("✅ 자동 프로필 저장: " + name);
+        }
+    }
+
+    public void setConversationSummary(String name, String summary, int messageCount) {
+        Contact contact = contacts.get(name);
+        if (contact != null) {
+            contact.setConversationSummary(summary, messageCount);
+            store.put(contact);
+        }
+    }
+
+    // 모든 데이터 삭제 시 (지운 대화가 요약으로 남아 프롬프트에 들어가지 않게)
+    public void clearConversationSummaries() {
+        for (Contact contact : contacts.values()) {
+            if (contact.hasConversationSummary() || contact.getSummaryMessageCount() > 0) {
+                contact.setConversationSummary(null, 0);
+                store.put(contact);
+            }
         }
     }
 
     public void deleteContact(String name) {
         if (contacts.remove(name) != null) {
-            saveToFile();
-            System.out.println("🗑️ 연락처 삭제: " + name);
+            store.remove(name);
+            Log.info("🗑️ 연락처 삭제: " + name);
         }
     }
     
     public void clearAll() {
         contacts.clear();
-        saveToFile();
-        System.out.println("🗑️ 모든 연락처 삭제");
+        store.clear();
+        Log.info("🗑️ 모든 연락처 삭제");
     }
     
-    private void saveToFile() {
-        try {
-            File dataDir = new File("data");
-            if (!dataDir.exists()) {
-                dataDir.mkdirs();
-            }
-            
-            try (PrintWriter writer = new PrintWriter(
-                new OutputStreamWriter(new FileOutputStream(CONTACTS_FILE), StandardCharsets.UTF_8))) {
-                
-                for (Contact contact : contacts.values()) {
-                    writer.println(contactToString(contact));
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("❌ 연락처 저장 실패: " + e.getMessage());
-            e.printStackTrace();
-        }
+    // 아직 디스크에 안 내려간 변경을 기록
+    public void flush() {
+        store.flush();
     }
     
-    private void loadContacts() {
-        File file = new File(CONTACTS_FILE);
-        if (!file.exists()) {
-            System.out.println("📄 연락처 파일이 없습니다. 새로 시작합니다.");
-            return;
-        }
-        
-        try (BufferedReader reader = new BufferedReader(
-            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
-            
-            String line;
-            int loadCount = 0;
-            
-            while ((line = reader.readLine()) != null) {
-                Contact contact = stringToContact(line);
-                if (contact != null) {
-                    contacts.put(contact.getName(), contact);
-                    loadCount++;
-                }
-            }
-            
-            System.out.println("✅ " + loadCount + "개의 연락처를 불러왔습니다.");
-            
-        } catch (IOException e) {
-            System.err.println("❌ 연락처 로드 실패: " + e.getMessage());
-            e.printStackTrace();
-        }
+    @Override
+    public void close() {
+        store.close();
     }
     
-    private String contactToString(Contact contact) {
-        String name = contact.getName().replace("|", "｜");
-        String mbti = contact.getMbti().name();
-        String notes = contact.getNotes().replace("|", "｜").replace("\n", "\\n");
-        String profile = (contact.getAutoGeneratedProfile() != null ? 
-            contact.getAutoGeneratedProfile() : "").replace("|", "｜").replace("\n", "\\n"); // 🆕
-        String createdAt = contact.getCreatedAt().toString();
-        String updatedAt = contact.getUpdatedAt().toString();
+    private void loadContacts() {
+        for (Contact contact : store.loadAll()) {
+            contacts.put(contact.getName(), contact);
+        }
         
-        return String.format("%s|%s|%s|%s|%s|%s",
-            name, mbti, notes, profile, createdAt, updatedAt); // 🆕 profile 추가
-    }
-    
-    private Contact stringToContact(String str) {
-        try {
-            String[] parts = str.split("\\|");
-            if (parts.length < 3) {
-                return null;
-            }
-            
-            String name = parts[0].replace("｜", "|");
-            MBTI mbti = MBTI.valueOf(parts[1]);
-            String notes = parts[2].replace("｜", "|").replace("\\n", "\n");
-            
-            Contact contact = new Contact(name, mbti, notes);
-            
-            // 🆕 자동 프로필 로드
-            if (parts.length >= 4 && !parts[3].isEmpty()) {
-                String profile = parts[3].replace("｜", "|").replace("\\n", "\n");
-                contact.setAutoGeneratedProfile(profile);
-            }
-            
-            // 🔧 인덱스 변경 (profile이 추가되어서 +1)
-            if (parts.length >= 6) {
-                contact.setCreatedAt(LocalDateTime.parse(parts[4]));
-                contact.setUpdatedAt(LocalDateTime.parse(parts[5]));
-            }
-            
-            return contact;
-            
-        } catch (Exception e) {
-            System.err.println("⚠️ 연락처 파싱 실패: " + e.getMessage());
-            return null;
+        if (contacts.isEmpty()) {
+            Log.info("📄 저장된 연락처가 없습니다. 새로 시작합니다.");
+        } else {
+            Log.info("✅ " + contacts.size() + "개의 연락처를 불러왔습니다.");
         }
     }
 }
@@ -0,0 +1,58 @@
+package service;
+
+import java.util.Arrays;
+
+/**
+ * 상대방 id(ContactDictionary 번호)를 배열 인덱스로 쓰는 EmotionStats 표
+ *
+ * - 이름으로 묶는 HashMap 대신 stats[contactId] 에 바로 누적
+ * - reset 은 누적기를 비우기만 하고 버리지 않으므로 새로고침마다 다시 쓰면 할당이 없다
+ *   (처음 보는 상대방이 생길 때만 누적기 1개를 만든다)
+ */
+public class ContactStatsTable {
+    private EmotionStats[] stats = new EmotionStats[16];
+
+    // 누적용: 없으면 만들어서 돌려줌
+    public EmotionStats get(int contactId) {
+        if (contactId >= stats.length) {
+            stats = Arrays.copyOf(stats, Math.max(stats.length * 2, contactId + 1));
+        }
+        EmotionStats s = stats[contactId];
+        if (s == null) {
+            s = new EmotionStats();
+            stats[contactId] = s;
+        }
+        return s;
+    }
+
+    // 조회용: 한 건도 없으면 null
+    public EmotionStats find(int contactId) {
+        if (contactId < 0 || contactId >= stats.length) {
+            return null;
+        }
+        EmotionStats s = stats[contactId];
+        return s != null && !s.isEmpty() ? s : null;
+    }
+
+    // 0 ~ idBound()-1 범위만 보면 된다
+    public int idBound() {
+        return stats.length;
+    }
+
+    public void reset() {
+        for (EmotionStats s : stats) {
+            if (s != null) {
+                s.reset();
+            }
+        }
+    }
+
+    public void merge(ContactStatsTable other) {
+        for (int id = 0; id < other.stats.length; id++) {
+            EmotionStats s = other.stats[id];
+            if (s != null && !s.isEmpty()) {
+                get(id).merge(s);
+            }
+        }
+    }
+}
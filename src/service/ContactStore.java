@@ -0,0 +1,33 @@
+package service;
+
+import model.Contact;
+
+import java.util.List;
+
+/**
+ * 연락처 저장소 인터페이스
+ *
+ * ContactManager 는 메모리에 연락처를 들고 있고, 변경된 연락처 1개씩만 저장소에 넘긴다.
+ * 구현: TextContactStore (contacts.txt 스냅샷), KvContactStore (로그 구조 KV, 기본값)
+ */
+public interface ContactStore extends AutoCloseable {
+
+    // 저장된 모든 연락처
+    List<Contact> loadAll();
+
+    // 연락처 1개 추가/수정
+    void put(Contact contact);
+
+    void remove(String name);
+
+    void clear();
+
+    // 이름 자동완성용 접두사 검색 (정렬 순서)
+    List<String> namesWithPrefix(String prefix, int limit);
+
+    // 아직 디스크에 안 내려간 변경을 기록
+    void flush();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,126 @@
+package service;
+
+import metrics.Metrics;
+import model.Contact;
+import model.Message;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 상대방별 대화 요약을 배경에서 갱신
+ *
+ * - 요약 뒤로 새 메시지가 EVERY 개 쌓이면 기존 요약 + 새 메시지로 Gemini 에 다시 요약을 맡긴다
+ *   밀린 메시지가 많으면(첫 요약, 카카오톡 가져오기) 오래된 것부터 MAX_NEW_MESSAGES 개씩 차례로 이어서 요약
+ * - 결과는 Contact 에 (요약, 반영한 메시지 수) 로 조각마다 저장 → 맥락 분석 때 요약 뒤 메시지만 원문으로 보냄
+ * - 연락처로 저장하지 않은 상대방도 처음 요약할 때 연락처를 만든다 (ProfileUpdater 와 같음)
+ * - 상대방당 한 번에 하나만 돈다. 스레드 1개라 API 호출도 한 번에 하나
+ *
+ * -Demotion.summary.every=10 (0 이면 끔)
+ */
+public class ConversationSummarizer implements AutoCloseable {
+
+    public static final int EVERY = Integer.getInteger("emotion.summary.every", 10);
+
+    private static final int MAX_NEW_MESSAGES = 40;
+
+    private final GeminiService gemini;
+    private final DataManager dataManager;
+    private final ContactManager contactManager;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "conversation-summary");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ConversationSummarizer(GeminiService gemini, DataManager dataManager, ContactManager contactManager) {
+        this.gemini = gemini;
+        this.dataManager = dataManager;
+        this.contactManager = contactManager;
+    }
+
+    // 메시지 저장 직후 호출. 갱신할 때가 됐으면 배경 작업을 건다 (바로 반환)
+    public void onMessageSaved(String contactName) {
+        if (EVERY <= 0 || contactName == null || !GeminiService.isApiKeySet()) {
+            return;
+        }
+        Contact contact = contactManager.getContact(contactName);
+        int unsummarized = contact != null ? unsummarized(contact) : dataManager.getMessageCount(contactName);
+        if (unsummarized < EVERY) {
+            return;
+        }
+        if (!pending.add(contactName)) {
+            return;
+        }
+        worker.execute(() -> {
+            try {
+                refresh(contactName);
+            } finally {
+                pending.remove(contactName);
+            }
+        });
+    }
+
+    private void refresh(String contactName) {
+        long start = System.nanoTime();
+        try {
+            Contact contact = contactManager.getContact(contactName);
+            if (contact == null) {
+                contact = new Contact(contactName);
+                contactManager.saveContact(contact);
+            }
+            int count = dataManager.getMessageCount(contactName);
+            String summary = contact.getConversationSummary();
+            int covered = contact.getSummaryMessageCount();
+            if (covered > count) {
+                // 기록을 지운 뒤: 처음부터 다시
+                summary = null;
+                covered = 0;
+            }
+            if (covered >= count) {
+                return;
+            }
+            // 요약 뒤 메시지 전부 (오래된 것 먼저) → MAX_NEW_MESSAGES 개씩 이어서 요약, 조각마다 반영한 수까지 저장
+            List<Message> fresh = dataManager.getMessagesByContact(contactName, count - covered);
+            for (int from = 0; from < fresh.size(); from += MAX_NEW_MESSAGES) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                List<Message> chunk = fresh.subList(from, Math.min(fresh.size(), from + MAX_NEW_MESSAGES));
+                summary = gemini.summarizeConversation(summary, chunk, contactName);
+                covered += chunk.size();
+                contactManager.setConversationSummary(contactName, summary, covered);
+                Metrics.counter("summary_refreshes_total").increment();
+            }
+            Log.info("📝 대화 요약 갱신: " + contactName + " (메시지 " + covered + "개 반영)");
+        } catch (Exception e) {
+            Metrics.counter("summary_failures_total").increment();
+            Log.warn("⚠️ 대화 요약 갱신 실패 (" + contactName + "): " + e.getMessage());
+        } finally {
+            Metrics.histogram("summary_refresh_seconds").recordSince(start);
+        }
+    }
+
+    // 요약에 아직 안 들어간 메시지 수 (기록을 지웠으면 전부)
+    private int unsummarized(Contact contact) {
+        int count = dataManager.getMessageCount(contact.getName());
+        int covered = contact.getSummaryMessageCount();
+        return count >= covered ? count - covered : count;
+    }
+
+    // 진행 중인 요약은 끝까지 기다리지 않음 (다음 실행 때 다시 잡힌다)
+    @Override
+    public void close() {
+        worker.shutdownNow();
+        try {
+            worker.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
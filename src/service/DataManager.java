@@ -1,36 +1,362 @@
 package service;
 
+import metrics.Metrics;
 import model.Emotion;
 import model.Message;
 
-import java.io.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class DataManager {
-    private static final String DATA_FILE = "emotion_data.txt";
-    private List<Message> messageHistory;
+public class DataManager implements HistoryOverview, AutoCloseable {
+    private static final int SEARCH_CATCH_UP_BATCH = 4096;
+    // 분석 맥락: 최근 대화 몇 개 + 지금 메시지와 비슷한 지난 대화 몇 개
+    private static final int CONTEXT_RECENT = Integer.getInteger("emotion.context.recent", 3);
+    private static final int CONTEXT_SIMILAR = Integer.getInteger("emotion.context.similar", 5);
+    // 시작 스냅샷 주기 저장 (0 이면 종료할 때만)
+    private static final long SNAPSHOT_SECONDS = Long.getLong("emotion.startup.snapshotSeconds", 300);
     
+    private final MessageStore store;
+    private final EmotionTrends trends = new EmotionTrends();
+    private final MessageSearchIndex searchIndex;
+    private final SimilarMessageIndex similarIndex;
+    private final ContactFeatures features;
+    // 저장소 추가 순서 = 검색 색인 문서 번호가 되도록 둘을 함께 묶음
+    private final Object appendLock = new Object();
+    // 상대방 id 별 메시지 수 (appendLock)
+    private int[] contactMessageCounts = new int[16];
+    // 시작 스냅샷: 바뀐 횟수가 마지막 저장 때와 같으면 다시 쓰지 않음
+    private final AtomicLong modifications = new AtomicLong();
+    private long savedModifications = -1;
+    private volatile boolean startupSnapshots;
+    private ScheduledExecutorService snapshotWorker;
+    
+    // 저장소 선택은 Stores 참고 (-Demotion.store=text|h2)
     public DataManager() {
-        this.messageHistory = new ArrayList<>();
-        loadData();
-        System.out.println("📁 데이터 매니저 초기화 완료 (메시지 " + messageHistory.size() + "개)");
+        this(Stores.openMessageStore());
     }
     
-    public void saveMessage(Message message) {
-        if (message == null) {
+    /**
+     * 배경 스레드에서 불러오기 (저장소 열기 + 추세/색인 채우기는 기록이 많으면 오래 걸림)
+     * 앱 시작 시 PIN 입력/화면 만들기와 동시에 돌린다
+     */
+    public static CompletableFuture<DataManager> openAsync() {
+        CompletableFuture<DataManager> future = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            long start = System.nanoTime();
+            try {
+                DataManager manager = new DataManager();
+                manager.enableStartupSnapshots();
+                future.complete(manager);
+                Metrics.histogram("data_open_seconds").recordSince(start);
+            } catch (Throwable e) {
+                Log.error("❌ 기록 불러오기 실패: " + e.getMessage(), e);
+                future.completeExceptionally(e);
+            }
+        }, "data-load");
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+    
+    // 데이터 파일 경로 지정 (벤치마크/도구용, 텍스트 저장소)
+    public DataManager(String dataFile) {
+        this(new TextMessageStore(dataFile, Stores.COMMIT_WINDOW_MS, Stores.COMMIT_MAX_BATCH));
+    }
+    
+    public DataManager(MessageStore store) {
+        this.store = store;
+        this.searchIndex = new MessageSearchIndex(store.sidecarFile(".idx"));
+        this.similarIndex = new SimilarMessageIndex(searchIndex, store);
+        this.features = new ContactFeatures(store.sidecarFile(".features"), searchIndex::fingerprint);
+        long start = System.nanoTime();
+        store.scan((timestampNanos, emotion, intensity, contactId) -> {
+            trends.add(timestampNanos, emotion, intensity, contactId);
+            searchIndex.addMeta(timestampNanos, emotion, contactId);
+            countMessage(contactId);
+        });
+        Metrics.histogram("trend_rebuild_seconds").recordSince(start);
+        loadSearchIndex();
+        Metrics.gauge("data_history_size", store::count);
+        Log.info("📁 데이터 매니저 초기화 완료 (메시지 " + store.count() + "개)");
+    }
+    
+    /**
+     * 시작 스냅샷 켜기 (앱에서만: 종료할 때 + SNAPSHOT_SECONDS 마다, 바뀐 게 있을 때만)
+     */
+    public synchronized void enableStartupSnapshots() {
+        if (startupSnapshots) {
             return;
         }
+        startupSnapshots = true;
+        if (SNAPSHOT_SECONDS > 0) {
+            snapshotWorker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "startup-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotWorker.scheduleWithFixedDelay(this::saveStartupSnapshot,
+                SNAPSHOT_SECONDS, SNAPSHOT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+    
+    public synchronized void saveStartupSnapshot() {
+        long version = modifications.get();
+        if (!startupSnapshots || version == savedModifications) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            StartupSnapshot snapshot = store.captureSnapshot();
+            if (snapshot == null) {
+                return;
+            }
+            snapshot.save(store.sidecarFile(StartupSnapshot.SUFFIX));
+            savedModifications = version;
+            Metrics.histogram("startup_snapshot_save_seconds").recordSince(start);
+            Log.debug(() -> "💾 시작 스냅샷 저장 (" + (System.nanoTime() - start) / 1_000_000 + "ms)");
+        } catch (IOException | RuntimeException e) {
+            Metrics.counter("startup_snapshot_save_failures_total").increment();
+            Log.warn("⚠️ 시작 스냅샷 저장 실패: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 메시지 저장
+     * 메모리/DB 조회에는 바로 반영되고, 디스크에는 백그라운드에서 묶어서 기록된다.
+     * 반환된 future는 디스크에 내려간(fsync/commit) 뒤 완료된다.
+     */
+    public CompletableFuture<Void> saveMessage(Message message) {
+        if (message == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        int contactId = store.contactDictionary().idOf(message.getContactName());
+        CompletableFuture<Void> durable;
+        synchronized (appendLock) {
+            durable = store.append(message);
+            index(message, contactId);
+            modifications.incrementAndGet();
+        }
+        trends.add(message, contactId);
+        Log.debug(() -> "💾 메시지 저장 완료: " + message.getSummary() + " (상대: " + message.getContactName() + ")");
+        return durable;
+    }
+    
+    // 여러 메시지를 한 번에 추가 (가져오기용)
+    public CompletableFuture<Void> saveMessages(Collection<Message> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        ContactDictionary dictionary = store.contactDictionary();
+        CompletableFuture<Void> durable;
+        synchronized (appendLock) {
+            durable = store.appendAll(messages);
+            for (Message message : messages) {
+                index(message, dictionary.idOf(message.getContactName()));
+            }
+            modifications.incrementAndGet();
+        }
+        for (Message message : messages) {
+            trends.add(message, dictionary.idOf(message.getContactName()));
+        }
+        Log.info("💾 메시지 " + messages.size() + "개 저장 완료");
+        return durable;
+    }
+    
+    // 지금까지 저장 요청된 메시지가 모두 디스크에 내려가면 완료
+    public CompletableFuture<Void> flush() {
+        return store.flush();
+    }
+    
+    // 남은 기록을 내려쓰고 기록 스레드 종료 (MainApp.stop 에서 호출)
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (snapshotWorker != null) {
+                snapshotWorker.shutdownNow();
+            }
+        }
+        saveStartupSnapshot();
+        store.close();
+        searchIndex.save();
+        features.save();
+    }
+    
+    private void index(Message message, int contactId) {
+        countMessage(contactId);
+        features.add(contactId, message.getEmotion().ordinal(), message.getIntensity(), message.getContent());
+        // 검색 색인 먼저: 유사 색인이 이 상대방 표를 처음 만드는 중이면 잠금 안 따라잡기(docsOf)가 이 문서를 보고,
+        // 아니면 아래 add 가 넣는다 (이미 들어간 번호는 add 가 건너뜀)
+        searchIndex.add(MessageLog.toNanos(message.getTimestamp()), message.getEmotion().ordinal(), contactId,
+            message.getContent(), message.getRecommendedResponse());
+        similarIndex.add(searchIndex.size() - 1, contactId, message.getContent());
+    }
+    
+    private void countMessage(int contactId) {
+        if (contactId >= contactMessageCounts.length) {
+            contactMessageCounts = Arrays.copyOf(contactMessageCounts,
+                Math.max(contactMessageCounts.length * 2, contactId + 1));
+        }
+        contactMessageCounts[contactId]++;
+    }
+    
+    // ===== 프로필 특징 (ProfileUpdater) =====
+    
+    // 마지막 프로필 이후 특징 변화 0~1 (프로필이 없으면 1, 기록이 없으면 0)
+    public double getProfileDrift(String contactName) {
+        return features.drift(contactIdOf(contactName));
+    }
+    
+    // 마지막 프로필 이후 새 메시지 수
+    public int getMessagesSinceProfile(String contactName) {
+        return features.messagesSinceRender(contactIdOf(contactName));
+    }
+    
+    // 프롬프트용 특징 요약 (기록이 없으면 null)
+    public String describeProfileFeatures(String contactName) {
+        return features.describe(contactIdOf(contactName));
+    }
+    
+    // 지금 특징을 프로필 기준값으로 (프로필을 새로 만든 뒤 호출)
+    public void markProfileRendered(String contactName) {
+        features.markRendered(contactIdOf(contactName));
+    }
+    
+    private int contactIdOf(String contactName) {
+        return contactName != null ? store.contactDictionary().find(contactName) : -1;
+    }
+    
+    // 상대방과의 메시지 수 (기록이 없으면 0)
+    public int getMessageCount(String contactName) {
+        int contactId = contactName != null ? store.contactDictionary().find(contactName) : -1;
+        synchronized (appendLock) {
+            return contactId >= 0 && contactId < contactMessageCounts.length ? contactMessageCounts[contactId] : 0;
+        }
+    }
+    
+    // 저장된 색인/프로필 특징을 읽고, 그 뒤에 저장된 메시지(저장 전에 종료된 경우)만 한 번 읽어서 둘 다 채움
+    private void loadSearchIndex() {
+        long start = System.nanoTime();
+        if (!searchIndex.load()) {
+            searchIndex.clear();
+            store.scan((timestampNanos, emotion, intensity, contactId) ->
+                searchIndex.addMeta(timestampNanos, emotion, contactId));
+        }
+        int to = searchIndex.size();
+        if (!features.load(to)) {
+            features.clear();
+        }
+        int searchFrom = searchIndex.indexedCount();
+        int featuresFrom = features.covered();
+        int from = Math.min(searchFrom, featuresFrom);
+        for (int position = from; position < to; position += SEARCH_CATCH_UP_BATCH) {
+            int[] positions = new int[Math.min(SEARCH_CATCH_UP_BATCH, to - position)];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = position + i;
+            }
+            int doc = position;
+            for (Message message : store.findByPositions(positions)) {
+                if (doc >= searchFrom) {
+                    searchIndex.addText(doc, message.getContent(), message.getRecommendedResponse());
+                }
+                if (doc >= featuresFrom) {
+                    features.add(message.getContactId(), message.getEmotion().ordinal(), message.getIntensity(),
+                        message.getContent());
+                }
+                doc++;
+            }
+        }
+        if (to > searchFrom) {
+            Log.info("🔎 검색 색인 " + (to - searchFrom) + "개 추가");
+        }
+        if (to > featuresFrom) {
+            Log.info("🧠 프로필 특징 " + (to - featuresFrom) + "개 반영");
+        }
+        Metrics.histogram("search_index_build_seconds").recordSince(start);
+    }
+    
+    /**
+     * 내용/추천 답변 검색 (최신순, 최대 limit 개)
+     * query 가 비어 있으면 조건만으로 찾는다. contactName/emotion/from/to 는 null 이면 조건 없음 (날짜는 양쪽 포함)
+     */
+    public List<Message> searchMessages(String query, String contactName, Emotion emotion,
+                                        LocalDate from, LocalDate to, int limit) {
+        List<Message> result = new ArrayList<>();
+        if (limit <= 0) {
+            return result;
+        }
+        long start = System.nanoTime();
+        int contactId = -1;
+        if (contactName != null) {
+            contactId = store.contactDictionary().find(contactName);
+            if (contactId < 0) {
+                return result;
+            }
+        }
+        MessageSearchIndex.Filter filter = new MessageSearchIndex.Filter(contactId,
+            emotion != null ? emotion.ordinal() : -1,
+            from != null ? MessageLog.toNanos(from.atStartOfDay()) : Long.MIN_VALUE,
+            to != null ? MessageLog.toNanos(to.plusDays(1).atStartOfDay()) : Long.MAX_VALUE);
+        String text = query != null ? query.trim() : "";
+        List<String> tokens = MessageSearchIndex.tokens(text);
         
-        messageHistory.add(message);
-        saveData();
-        System.out.println("💾 메시지 저장 완료: " + message.getSummary() + " (상대: " + message.getContactName() + ")");
+        // 후보를 limit 개씩 원문으로 확인 (바이그램만 맞고 문구는 없는 경우를 거름)
+        int cursor = searchIndex.size();
+        while (result.size() < limit && cursor >= 0) {
+            int[] batch = new int[limit - result.size()];
+            int found = 0;
+            while (found < batch.length && (cursor = searchIndex.previousMatch(tokens, filter, cursor)) >= 0) {
+                batch[found++] = cursor;
+            }
+            if (found == 0) {
+                break;
+            }
+            for (Message message : store.findByPositions(Arrays.copyOf(batch, found))) {
+                if (text.isEmpty() || MessageSearchIndex.matches(text, message.getContent(),
+                        message.getRecommendedResponse())) {
+                    result.add(message);
+                }
+            }
+        }
+        Metrics.histogram("search_seconds").recordSince(start);
+        return result;
+    }
+    
+    /**
+     * 분석 맥락으로 보낼 지난 메시지 (앞쪽일수록 중요)
+     * 최근 대화 CONTEXT_RECENT 개(최신순) 다음에 text 와 비슷한 대화 CONTEXT_SIMILAR 개(비슷한 순).
+     * 상대방 기록이 없으면 빈 목록
+     */
+    public List<Message> findContextMessages(String contactName, String text) {
+        if (contactName == null) {
+            return new ArrayList<>();
+        }
+        int contactId = store.contactDictionary().find(contactName);
+        if (contactId < 0) {
+            return new ArrayList<>();
+        }
+        long start = System.nanoTime();
+        int[] recent = similarIndex.recent(contactId, CONTEXT_RECENT);
+        int[] similar = similarIndex.topK(contactId, text, CONTEXT_SIMILAR, recent);
+        int[] positions = Arrays.copyOf(recent, recent.length + similar.length);
+        System.arraycopy(similar, 0, positions, recent.length, similar.length);
+        List<Message> messages = store.findByPositions(positions);
+        Metrics.histogram("context_retrieval_seconds").recordSince(start);
+        return messages;
     }
     
     public List<Message> getAllMessages() {
-        return new ArrayList<>(messageHistory);
+        return store.findAll();
     }
     
     public List<Message> getMessagesByDate(LocalDate date) {
@@ -38,9 +364,7 @@ public class DataManager {
             return new ArrayList<>();
         }
         
-        return messageHistory.stream()
-            .filter(msg -> msg.getTimestamp().toLocalDate().equals(date))
-            .collect(Collectors.toList());
+        return store.findBetween(date.atStartOfDay(), date.plusDays(1).atStartOfDay());
     }
     
     public List<Message> getMessagesByEmotion(Emotion emotion) {
@@ -48,9 +372,7 @@ public class DataManager {
             return new ArrayList<>();
         }
         
-        return messageHistory.stream()
-            .filter(msg -> msg.getEmotion() == emotion)
-            .collect(Collectors.toList());
+        return store.findByEmotion(emotion);
     }
     
     // 🆕 상대방별 메시지 조회
@@ -59,67 +381,55 @@ public class DataManager {
             return new ArrayList<>();
         }
         
-        return messageHistory.stream()
-            .filter(msg -> msg.getContactName().equals(contactName))
-            .collect(Collectors.toList());
+        return store.findByContact(contactName, 0);
     }
     
     // 🆕 상대방별 메시지 조회 (최근 N개만)
     public List<Message> getMessagesByContact(String contactName, int limit) {
-        if (contactName == null || contactName.trim().isEmpty()) {
+        if (contactName == null || contactName.trim().isEmpty() || limit <= 0) {
             return new ArrayList<>();
         }
         
-        List<Message> allMessages = messageHistory.stream()
-            .filter(msg -> msg.getContactName().equals(contactName))
-            .collect(Collectors.toList());
-        
-        // 최근 limit개만 반환
-        int size = allMessages.size();
-        int startIndex = Math.max(0, size - limit);
-        
-        return new ArrayList<>(allMessages.subList(startIndex, size));
+        return store.findByContact(contactName, limit);
     }
     
     // 🆕 모든 상대방 이름 목록
+    @Override
     public Set<String> getAllContactNames() {
-        return messageHistory.stream()
-            .map(Message::getContactName)
-            .collect(Collectors.toSet());
+        return store.contactNames();
     }
     
+    @Override
+    public ContactDictionary getContactDictionary() {
+        return store.contactDictionary();
+    }
+
+    @Override
     public List<Message> getRecentMessages(int count) {
         if (count <= 0) {
             return new ArrayList<>();
         }
         
-        int size = messageHistory.size();
-        int startIndex = Math.max(0, size - count);
-        
-        List<Message> recent = new ArrayList<>(messageHistory.subList(startIndex, size));
-        Collections.reverse(recent);
-        return recent;
+        return store.findRecent(count);
     }
     
     public Map<LocalDate, Map<Emotion, Integer>> getDailyEmotionStats(int days) {
         Map<LocalDate, Map<Emotion, Integer>> stats = new LinkedHashMap<>();
+        if (days <= 0) {
+            return stats;
+        }
         LocalDate today = LocalDate.now();
         
-        for (int i = days - 1; i >= 0; i--) {
-            LocalDate date = today.minusDays(i);
+        // 미리 쌓아둔 일별 구간에서 복사 (전체 기록을 다시 훑지 않음)
+        EmotionTrends.Series series = trends.series(EmotionTrends.ALL, EmotionTrends.Granularity.DAY,
+            today.minusDays(days - 1).atStartOfDay(), today.atStartOfDay());
+        
+        for (int i = 0; i < series.length(); i++) {
             Map<Emotion, Integer> emotionCount = new HashMap<>();
-            
             for (Emotion emotion : Emotion.values()) {
-                emotionCount.put(emotion, 0);
-            }
-            
-            List<Message> dailyMessages = getMessagesByDate(date);
-            for (Message msg : dailyMessages) {
-                emotionCount.put(msg.getEmotion(), 
-                    emotionCount.get(msg.getEmotion()) + 1);
+                emotionCount.put(emotion, series.count(i, emotion));
             }
-            
-            stats.put(date, emotionCount);
+            stats.put(series.start(i).toLocalDate(), emotionCount);
         }
         
         return stats;
@@ -131,133 +441,105 @@ public class DataManager {
         for (Emotion emotion : Emotion.values()) {
             distribution.put(emotion, 0);
         }
-        
-        for (Message msg : messageHistory) {
-            Emotion emotion = msg.getEmotion();
-            distribution.put(emotion, distribution.get(emotion) + 1);
-        }
+        distribution.putAll(store.countByEmotion());
         
         return distribution;
     }
     
     public Emotion getMostFrequentEmotion() {
-        Map<Emotion, Integer> distribution = getEmotionDistribution();
-        
-        return distribution.entrySet().stream()
-            .max(Map.Entry.comparingByValue())
-            .map(Map.Entry::getKey)
-            .orElse(Emotion.NEUTRAL);
+        return getEmotionStats().mostFrequent();
     }
     
-    public double getAverageIntensity() {
-        if (messageHistory.isEmpty()) {
-            return 0.0;
+    // 감정별 개수/평균/백분위 (전체)
+    public EmotionStats getEmotionStats() {
+        EmotionStats stats = new EmotionStats();
+        store.collectStats(stats, null);
+        return stats;
+    }
+    
+    // 통계 화면처럼 자주 다시 그리는 곳은 누적기를 들고 있다가 reset 후 다시 채운다
+    @Override
+    public void collectStats(EmotionStats total, ContactStatsTable byContact) {
+        store.collectStats(total, byContact);
+    }
+    
+    // ===== 추세 (contactName 이 null 이면 전체) =====
+    
+    public EmotionTrends.Series getTrend(String contactName, EmotionTrends.Granularity granularity,
+                                         LocalDateTime from, LocalDateTime to) {
+        return trends.series(trendId(contactName), granularity, from, to);
+    }
+    
+    public double[] getRollingAverageIntensity(String contactName, EmotionTrends.Granularity granularity,
+                                               LocalDateTime from, LocalDateTime to, int window) {
+        return trends.rollingAverageIntensity(trendId(contactName), granularity, from, to, window);
+    }
+    
+    // 최근 메시지일수록 크게 반영한 평균 강도
+    public double getWeightedIntensity(String contactName) {
+        return trends.weightedIntensity(trendId(contactName));
+    }
+    
+    // 최근 분위기가 평소와 크게 다르면 그 값, 아니면 null
+    public EmotionTrends.MoodShift getMoodShift(String contactName) {
+        return trends.moodShift(trendId(contactName));
+    }
+    
+    private int trendId(String contactName) {
+        if (contactName == null) {
+            return EmotionTrends.ALL;
         }
-        
-        double sum = messageHistory.stream()
-            .mapToDouble(Message::getIntensity)
-            .sum();
-        
-        return sum / messageHistory.size();
+        int id = store.contactDictionary().find(contactName);
+        // 기록이 없는 이름은 빈 결과 (ALL 과 겹치지 않게)
+        return id >= 0 ? id : Integer.MAX_VALUE;
+    }
+    
+    public double getAverageIntensity() {
+        return store.averageIntensity();
     }
     
+    @Override
     public int getTotalMessageCount() {
-        return messageHistory.size();
+        return store.count();
     }
     
+    @Override
     public int getTodayMessageCount() {
-        return getMessagesByDate(LocalDate.now()).size();
+        LocalDate today = LocalDate.now();
+        return store.countBetween(today.atStartOfDay(), today.plusDays(1).atStartOfDay());
     }
     
-    private void saveData() {
-        try (PrintWriter writer = new PrintWriter(
-            new OutputStreamWriter(new FileOutputStream(DATA_FILE), "UTF-8"))) {
-            
-            for (Message msg : messageHistory) {
-                writer.println(messageToString(msg));
-            }
-            
-        } catch (IOException e) {
-            System.err.println("❌ 데이터 저장 실패: " + e.getMessage());
-            e.printStackTrace();
-        }
+    // 텍스트 저장 형식 (TextMessageStore 로 옮김, 기존 호출부 호환용)
+    public static String messageToString(Message msg) {
+        return TextMessageStore.messageToString(msg);
     }
     
-    private void loadData() {
-        File file = new File(DATA_FILE);
-        
-        if (!file.exists()) {
-            System.out.println("📄 데이터 파일이 없습니다. 새로 시작합니다.");
-            return;
-        }
-        
-        try (BufferedReader reader = new BufferedReader(
-            new InputStreamReader(new FileInputStream(file), "UTF-8"))) {
-            
-            String line;
-            int loadCount = 0;
-            
-            while ((line = reader.readLine()) != null) {
-                Message msg = stringToMessage(line);
-                if (msg != null) {
-                    messageHistory.add(msg);
-                    loadCount++;
-                }
-            }
-            
-            System.out.println("✅ " + loadCount + "개의 메시지를 불러왔습니다.");
-            
-        } catch (IOException e) {
-            System.err.println("❌ 데이터 로드 실패: " + e.getMessage());
-            e.printStackTrace();
-        }
+    public static Message stringToMessage(String str) {
+        return TextMessageStore.stringToMessage(str);
     }
     
-    // 🆕 contactName 포함하여 저장
-    private String messageToString(Message msg) {
-        String content = msg.getContent().replace("|", "｜");
-        String response = msg.getRecommendedResponse().replace("|", "｜");
-        String contactName = msg.getContactName().replace("|", "｜");
-        
-        return String.format("%s|%s|%.3f|%s|%s|%s",
-            msg.getTimestamp().toString(),
-            msg.getEmotion().name(),
-            msg.getIntensity(),
-            content,
-            response,
-            contactName);
+    public void clearAllData() {
+        synchronized (appendLock) {
+            store.clear();
+            searchIndex.clear();
+            searchIndex.deleteFile();
+            similarIndex.clear();
+            features.clear();
+            features.deleteFile();
+            Arrays.fill(contactMessageCounts, 0);
+            modifications.incrementAndGet();
+        }
+        trends.clear();
+        deleteStartupSnapshot();
+        Log.info("🗑️ 모든 데이터가 삭제되었습니다.");
     }
     
-    // 🆕 contactName 포함하여 로드 (하위 호환성 유지)
-    private Message stringToMessage(String str) {
+    private void deleteStartupSnapshot() {
+        Path file = store.sidecarFile(StartupSnapshot.SUFFIX);
         try {
-            String[] parts = str.split("\\|");
-            
-            if (parts.length < 5) {
-                System.err.println("⚠️ 잘못된 데이터 형식: " + str);
-                return null;
-            }
-            
-            LocalDateTime timestamp = LocalDateTime.parse(parts[0]);
-            Emotion emotion = Emotion.valueOf(parts[1]);
-            double intensity = Double.parseDouble(parts[2]);
-            String content = parts[3].replace("｜", "|");
-            String response = parts[4].replace("｜", "|");
-            String contactName = parts.length > 5 ? parts[5].replace("｜", "|") : "알 수 없음";
-            
-            Message msg = new Message(content, emotion, intensity, response, contactName);
-            msg.setTimestamp(timestamp);
-            return msg;
-            
-        } catch (Exception e) {
-            System.err.println("⚠️ 메시지 파싱 실패: " + e.getMessage());
-            return null;
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            Log.warn("⚠️ 시작 스냅샷 삭제 실패: " + e.getMessage());
         }
     }
-    
-    public void clearAllData() {
-        messageHistory.clear();
-        saveData();
-        System.out.println("🗑️ 모든 데이터가 삭제되었습니다.");
-    }
 }
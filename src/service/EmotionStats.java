@@ -0,0 +1,214 @@
+package service;
+
+import model.Emotion;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 감정별 개수/강도 통계 누적기 (DoubleSummaryStatistics 를 감정 수만큼 펼친 것)
+ *
+ * - 모두 long[]/double[] 배열 칸이라 accept/merge/reset 에서 객체를 만들지 않는다
+ *   (Map<Emotion, Long> 박싱, groupingBy 의 HashMap 없음)
+ * - 강도 백분위는 1% 단위 히스토그램(감정마다 101칸)으로 구한다
+ * - merge 로 조각별 누적기를 합칠 수 있다 (병렬 집계용)
+ * - 스레드 안전하지 않음: 한 스레드가 채운 뒤 읽거나, 조각마다 따로 만들어 merge
+ */
+public class EmotionStats {
+    private static final Emotion[] EMOTIONS = Emotion.values();
+    private static final int EMOTION_COUNT = EMOTIONS.length;
+    private static final int BUCKETS = 101;     // 강도 0%, 1%, ..., 100%
+
+    private final long[] counts = new long[EMOTION_COUNT];
+    private final double[] sums = new double[EMOTION_COUNT];
+    private final double[] mins = new double[EMOTION_COUNT];
+    private final double[] maxs = new double[EMOTION_COUNT];
+    private final long[] histogram = new long[EMOTION_COUNT * BUCKETS];
+
+    public EmotionStats() {
+        reset();
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(sums, 0.0);
+        Arrays.fill(mins, Double.POSITIVE_INFINITY);
+        Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+        Arrays.fill(histogram, 0);
+    }
+
+    public void accept(Emotion emotion, double intensity) {
+        accept(emotion.ordinal(), intensity);
+    }
+
+    public void accept(int emotionOrdinal, double intensity) {
+        counts[emotionOrdinal]++;
+        sums[emotionOrdinal] += intensity;
+        mins[emotionOrdinal] = Math.min(mins[emotionOrdinal], intensity);
+        maxs[emotionOrdinal] = Math.max(maxs[emotionOrdinal], intensity);
+        histogram[emotionOrdinal * BUCKETS + bucket(intensity)]++;
+    }
+
+    public void merge(EmotionStats other) {
+        for (int e = 0; e < EMOTION_COUNT; e++) {
+            counts[e] += other.counts[e];
+            sums[e] += other.sums[e];
+            mins[e] = Math.min(mins[e], other.mins[e]);
+            maxs[e] = Math.max(maxs[e], other.maxs[e]);
+        }
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += other.histogram[i];
+        }
+    }
+
+    // ===== 개수 =====
+
+    public long count() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    public long count(Emotion emotion) {
+        return counts[emotion.ordinal()];
+    }
+
+    public boolean isEmpty() {
+        return count() == 0;
+    }
+
+    // 가장 많은 감정 (동률이면 앞 순서, 비어 있으면 NEUTRAL)
+    public Emotion mostFrequent() {
+        int best = -1;
+        for (int e = 0; e < EMOTION_COUNT; e++) {
+            if (counts[e] > 0 && (best < 0 || counts[e] > counts[best])) {
+                best = e;
+            }
+        }
+        return best < 0 ? Emotion.NEUTRAL : EMOTIONS[best];
+    }
+
+    // ===== 강도 =====
+
+    public double averageIntensity() {
+        long total = count();
+        if (total == 0) {
+            return 0.0;
+        }
+        double sum = 0;
+        for (double s : sums) {
+            sum += s;
+        }
+        return sum / total;
+    }
+
+    public double averageIntensity(Emotion emotion) {
+        int e = emotion.ordinal();
+        return counts[e] > 0 ? sums[e] / counts[e] : 0.0;
+    }
+
+    public double minIntensity(Emotion emotion) {
+        int e = emotion.ordinal();
+        return counts[e] > 0 ? mins[e] : 0.0;
+    }
+
+    public double maxIntensity(Emotion emotion) {
+        int e = emotion.ordinal();
+        return counts[e] > 0 ? maxs[e] : 0.0;
+    }
+
+    // 감정 구분 없이 강도 백분위 (q 는 0.0 ~ 1.0, 0.5 = 중앙값)
+    public double intensityPercentile(double q) {
+        long total = count();
+        if (total == 0) {
+            return 0.0;
+        }
+        long rank = rank(q, total);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            for (int e = 0; e < EMOTION_COUNT; e++) {
+                seen += histogram[e * BUCKETS + b];
+            }
+            if (seen >= rank) {
+                return b / 100.0;
+            }
+        }
+        return 1.0;
+    }
+
+    // 감정별 강도 백분위 (1% 단위 근사, 실제 최소/최대 범위로 자름)
+    public double intensityPercentile(Emotion emotion, double q) {
+        int e = emotion.ordinal();
+        if (counts[e] == 0) {
+            return 0.0;
+        }
+        long rank = rank(q, counts[e]);
+        long seen = 0;
+        int base = e * BUCKETS;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += histogram[base + b];
+            if (seen >= rank) {
+                return Math.max(mins[e], Math.min(maxs[e], b / 100.0));
+            }
+        }
+        return maxs[e];
+    }
+
+    // ===== 파일 (StartupSnapshot) =====
+
+    // 히스토그램은 0 이 아닌 칸만 (칸 번호, 개수)
+    void writeTo(DataOutputStream out) throws IOException {
+        for (int e = 0; e < EMOTION_COUNT; e++) {
+            out.writeLong(counts[e]);
+            out.writeDouble(sums[e]);
+            out.writeDouble(mins[e]);
+            out.writeDouble(maxs[e]);
+        }
+        int used = 0;
+        for (long value : histogram) {
+            if (value != 0) {
+                used++;
+            }
+        }
+        out.writeInt(used);
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] != 0) {
+                out.writeShort(i);
+                out.writeLong(histogram[i]);
+            }
+        }
+    }
+
+    void readFrom(DataInputStream in) throws IOException {
+        reset();
+        for (int e = 0; e < EMOTION_COUNT; e++) {
+            counts[e] = in.readLong();
+            sums[e] = in.readDouble();
+            mins[e] = in.readDouble();
+            maxs[e] = in.readDouble();
+        }
+        int used = in.readInt();
+        for (int i = 0; i < used; i++) {
+            int index = in.readUnsignedShort();
+            if (index >= histogram.length) {
+                throw new IOException("잘못된 히스토그램 칸: " + index);
+            }
+            histogram[index] = in.readLong();
+        }
+    }
+
+    // 최근접 순위 방식 (1 ~ total)
+    private static long rank(double q, long total) {
+        double clamped = Math.max(0.0, Math.min(1.0, q));
+        return Math.max(1, (long) Math.ceil(clamped * total));
+    }
+
+    private static int bucket(double intensity) {
+        int b = (int) Math.round(intensity * 100);
+        return b < 0 ? 0 : Math.min(b, BUCKETS - 1);
+    }
+}
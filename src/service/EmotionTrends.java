@@ -0,0 +1,415 @@
+package service;
+
+import metrics.Metrics;
+import model.Emotion;
+import model.Message;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * 시간 구간별 감정 추세 (전체 + 상대방별)
+ *
+ * - 시간/일/주/월 구간마다 감정 개수와 강도 합을 미리 쌓아둔 배열(256칸 페이지)에 누적
+ *   → 5년치 일별 추세도 배열 몇 개를 복사하는 것으로 끝난다 (전체 기록을 다시 훑지 않음)
+ * - 상대방별 지수 가중 평균(EWMA) 강도와 분위기(감정 부호 × 강도)
+ * - 분위기의 단기(1일) EWMA 가 장기(14일) EWMA 에서 크게 벗어나면 "분위기 변화"
+ * - 저장할 때마다 add 로 갱신, 시작할 때 한 번 저장소를 훑어서 채운다
+ *
+ * 시각은 MessageLog 와 같이 LocalDateTime 을 UTC 로 옮긴 epoch 나노초를 쓴다.
+ * 모든 메서드는 this 로 동기화 (쓰기는 저장 1건당 수십 ns, 조회는 배열 복사)
+ */
+public class EmotionTrends {
+
+    // 상대방 대신 넘기면 전체
+    public static final int ALL = -1;
+
+    private static final Emotion[] EMOTIONS = Emotion.values();
+    private static final int EMOTION_COUNT = EMOTIONS.length;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final int MAX_SERIES_BUCKETS = 1 << 20;
+    private static final double LN2 = Math.log(2);
+
+    // 분위기 변화 판단 (반감기는 초)
+    private static final double INTENSITY_HALF_LIFE = 7 * 86_400;
+    private static final double MOOD_SHORT_HALF_LIFE = 86_400;
+    private static final double MOOD_LONG_HALF_LIFE = 14 * 86_400;
+    private static final double MOOD_SHIFT_THRESHOLD = 0.5;
+    private static final double MOOD_SHIFT_MIN_WEIGHT = 5.0;
+
+    public enum Granularity {
+        HOUR, DAY, WEEK, MONTH;
+
+        // 구간 번호 (epoch 기준, 주는 월요일 시작)
+        public long bucketOf(long epochSecond) {
+            switch (this) {
+                case HOUR:
+                    return Math.floorDiv(epochSecond, 3600);
+                case DAY:
+                    return Math.floorDiv(epochSecond, 86_400);
+                case WEEK:
+                    // 1970-01-01 은 목요일
+                    return Math.floorDiv(Math.floorDiv(epochSecond, 86_400) + 3, 7);
+                default:
+                    return monthOf(Math.floorDiv(epochSecond, 86_400));
+            }
+        }
+
+        // epoch 일 → 연*12 + (월-1). 저장할 때마다 불리므로 LocalDate 를 만들지 않고 계산 (그레고리력 변환)
+        private static long monthOf(long epochDay) {
+            long z = epochDay + 719_468;
+            long era = Math.floorDiv(z, 146_097);
+            long dayOfEra = z - era * 146_097;
+            long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+            long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+            long mp = (5 * dayOfYear + 2) / 153;
+            long month = mp < 10 ? mp + 3 : mp - 9;
+            long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+            return year * 12 + month - 1;
+        }
+
+        public long bucketOf(LocalDateTime time) {
+            return bucketOf(time.toEpochSecond(ZoneOffset.UTC));
+        }
+
+        public LocalDateTime startOf(long bucket) {
+            switch (this) {
+                case HOUR:
+                    return LocalDateTime.ofEpochSecond(bucket * 3600, 0, ZoneOffset.UTC);
+                case DAY:
+                    return LocalDate.ofEpochDay(bucket).atStartOfDay();
+                case WEEK:
+                    return LocalDate.ofEpochDay(bucket * 7 - 3).atStartOfDay();
+                default:
+                    return LocalDate.of((int) Math.floorDiv(bucket, 12), Math.floorMod(bucket, 12) + 1, 1)
+                        .atStartOfDay();
+            }
+        }
+    }
+
+    /**
+     * [첫 구간, 마지막 구간] 의 구간별 감정 개수/강도 (조회 시점의 복사본)
+     */
+    public static final class Series {
+        private final Granularity granularity;
+        private final long firstBucket;
+        private final int length;
+        private final int[] counts;         // 구간 × 감정
+        private final double[] intensitySums;
+
+        private Series(Granularity granularity, long firstBucket, int length) {
+            this.granularity = granularity;
+            this.firstBucket = firstBucket;
+            this.length = length;
+            this.counts = new int[length * EMOTION_COUNT];
+            this.intensitySums = new double[length];
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public LocalDateTime start(int i) {
+            return granularity.startOf(firstBucket + i);
+        }
+
+        public int count(int i, Emotion emotion) {
+            return counts[i * EMOTION_COUNT + emotion.ordinal()];
+        }
+
+        public int count(int i) {
+            int total = 0;
+            for (int e = 0; e < EMOTION_COUNT; e++) {
+                total += counts[i * EMOTION_COUNT + e];
+            }
+            return total;
+        }
+
+        public double averageIntensity(int i) {
+            int count = count(i);
+            return count > 0 ? intensitySums[i] / count : 0.0;
+        }
+
+        // 각 구간에서 끝나는 최근 window 구간의 평균 강도 (메시지 수로 가중, 앞쪽은 있는 만큼만)
+        public double[] rollingAverageIntensity(int window) {
+            double[] result = new double[length];
+            double sum = 0;
+            long count = 0;
+            for (int i = 0; i < length; i++) {
+                sum += intensitySums[i];
+                count += count(i);
+                if (i >= window) {
+                    sum -= intensitySums[i - window];
+                    count -= count(i - window);
+                }
+                result[i] = count > 0 ? sum / count : 0.0;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 최근 분위기가 평소와 달라졌을 때의 값
+     * mood 는 -1(부정) ~ +1(긍정), 감정 부호 × 강도의 가중 평균
+     */
+    public static final class MoodShift {
+        private final double recentMood;
+        private final double usualMood;
+        private final LocalDateTime detectedAt;
+
+        MoodShift(double recentMood, double usualMood, LocalDateTime detectedAt) {
+            this.recentMood = recentMood;
+            this.usualMood = usualMood;
+            this.detectedAt = detectedAt;
+        }
+
+        public double getRecentMood() { return recentMood; }
+        public double getUsualMood() { return usualMood; }
+        public LocalDateTime getDetectedAt() { return detectedAt; }
+        public boolean isWorse() { return recentMood < usualMood; }
+
+        @Override
+        public String toString() {
+            return String.format("%s (평소 %+.2f → 최근 %+.2f)", isWorse() ? "📉 나빠짐" : "📈 좋아짐", usualMood, recentMood);
+        }
+    }
+
+    // 구간 번호 → 256칸 페이지. 메시지가 있는 페이지만 만든다 (시간 단위 5년도 빈 기간은 메모리 없음)
+    private static final class BucketSeries {
+        private static final int PAGE_BITS = 8;
+        private static final int PAGE_SIZE = 1 << PAGE_BITS;
+        private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+        private int[][] countPages;
+        private double[][] sumPages;
+        private long basePage;
+
+        void add(long bucket, int emotion, double intensity) {
+            long page = bucket >> PAGE_BITS;
+            int p = ensurePage(page);
+            int slot = (int) (bucket & PAGE_MASK);
+            if (countPages[p] == null) {
+                countPages[p] = new int[PAGE_SIZE * EMOTION_COUNT];
+                sumPages[p] = new double[PAGE_SIZE];
+            }
+            countPages[p][slot * EMOTION_COUNT + emotion]++;
+            sumPages[p][slot] += intensity;
+        }
+
+        void copyInto(Series series) {
+            if (countPages == null) {
+                return;
+            }
+            for (int i = 0; i < series.length; i++) {
+                long bucket = series.firstBucket + i;
+                long p = (bucket >> PAGE_BITS) - basePage;
+                if (p < 0 || p >= countPages.length || countPages[(int) p] == null) {
+                    // 빈 페이지는 통째로 건너뜀
+                    i += PAGE_MASK - (int) (bucket & PAGE_MASK);
+                    continue;
+                }
+                int slot = (int) (bucket & PAGE_MASK);
+                System.arraycopy(countPages[(int) p], slot * EMOTION_COUNT, series.counts, i * EMOTION_COUNT, EMOTION_COUNT);
+                series.intensitySums[i] = sumPages[(int) p][slot];
+            }
+        }
+
+        private int ensurePage(long page) {
+            if (countPages == null) {
+                countPages = new int[4][];
+                sumPages = new double[4][];
+                basePage = page;
+            }
+            if (page < basePage) {
+                int shift = (int) (basePage - page);
+                int length = countPages.length + shift;
+                countPages = prepend(countPages, shift, new int[length][]);
+                sumPages = prepend(sumPages, shift, new double[length][]);
+                basePage = page;
+            }
+            int p = (int) (page - basePage);
+            if (p >= countPages.length) {
+                int length = Math.max(countPages.length * 2, p + 1);
+                countPages = Arrays.copyOf(countPages, length);
+                sumPages = Arrays.copyOf(sumPages, length);
+            }
+            return p;
+        }
+
+        private static <T> T[] prepend(T[] pages, int shift, T[] into) {
+            System.arraycopy(pages, 0, into, shift, pages.length);
+            return into;
+        }
+    }
+
+    // 지수 가중 평균 (시간 간격이 불규칙해도 되도록 가중치 합을 같이 감쇠)
+    private static final class Ewma {
+        private final double halfLifeSeconds;
+        private double weightedSum;
+        private double weight;
+        private long lastNanos = Long.MIN_VALUE;
+
+        Ewma(double halfLifeSeconds) {
+            this.halfLifeSeconds = halfLifeSeconds;
+        }
+
+        void add(long nanos, double value) {
+            if (lastNanos == Long.MIN_VALUE || nanos >= lastNanos) {
+                double decay = lastNanos == Long.MIN_VALUE ? 1.0 : decay(nanos - lastNanos);
+                weightedSum = weightedSum * decay + value;
+                weight = weight * decay + 1.0;
+                lastNanos = nanos;
+            } else {
+                // 예전 메시지를 나중에 가져온 경우: 그만큼 덜 반영
+                double w = decay(lastNanos - nanos);
+                weightedSum += value * w;
+                weight += w;
+            }
+        }
+
+        private double decay(long elapsedNanos) {
+            return Math.exp(-LN2 * elapsedNanos / (double) NANOS_PER_SECOND / halfLifeSeconds);
+        }
+
+        double value() {
+            return weight > 0 ? weightedSum / weight : 0.0;
+        }
+    }
+
+    private static final class Track {
+        final BucketSeries[] series = new BucketSeries[Granularity.values().length];
+        final Ewma intensity = new Ewma(INTENSITY_HALF_LIFE);
+        final Ewma moodShort = new Ewma(MOOD_SHORT_HALF_LIFE);
+        final Ewma moodLong = new Ewma(MOOD_LONG_HALF_LIFE);
+        MoodShift shift;
+
+        Track() {
+            for (int g = 0; g < series.length; g++) {
+                series[g] = new BucketSeries();
+            }
+        }
+    }
+
+    private static final Granularity[] GRANULARITIES = Granularity.values();
+
+    private final long[] bucketScratch = new long[GRANULARITIES.length];
+    private Track all = new Track();
+    private Track[] contacts = new Track[16];
+
+    public void add(Message message, int contactId) {
+        add(MessageLog.toNanos(message.getTimestamp()), message.getEmotion().ordinal(),
+            message.getIntensity(), contactId);
+    }
+
+    public synchronized void add(long timestampNanos, int emotion, double intensity, int contactId) {
+        long epochSecond = Math.floorDiv(timestampNanos, NANOS_PER_SECOND);
+        long[] buckets = bucketScratch;
+        for (Granularity g : GRANULARITIES) {
+            buckets[g.ordinal()] = g.bucketOf(epochSecond);
+        }
+        update(all, buckets, timestampNanos, emotion, intensity, contactId);
+        if (contactId >= 0) {
+            update(track(contactId), buckets, timestampNanos, emotion, intensity, contactId);
+        }
+    }
+
+    public synchronized void clear() {
+        all = new Track();
+        contacts = new Track[16];
+    }
+
+    // [from, to] 를 포함하는 구간들의 추세
+    public synchronized Series series(int contactId, Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        long first = granularity.bucketOf(from);
+        long last = granularity.bucketOf(to);
+        if (last < first) {
+            throw new IllegalArgumentException("to 가 from 보다 앞입니다: " + from + " ~ " + to);
+        }
+        if (last - first + 1 > MAX_SERIES_BUCKETS) {
+            throw new IllegalArgumentException("구간이 너무 많습니다: " + (last - first + 1));
+        }
+        Series series = new Series(granularity, first, (int) (last - first + 1));
+        Track track = find(contactId);
+        if (track != null) {
+            track.series[granularity.ordinal()].copyInto(series);
+        }
+        return series;
+    }
+
+    // 최근 window 구간 이동 평균 (from 이전 구간도 창에 넣어 계산)
+    public double[] rollingAverageIntensity(int contactId, Granularity granularity,
+                                            LocalDateTime from, LocalDateTime to, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window 는 1 이상: " + window);
+        }
+        Series extended = series(contactId, granularity,
+            granularity.startOf(granularity.bucketOf(from) - (window - 1)), to);
+        double[] rolling = extended.rollingAverageIntensity(window);
+        return Arrays.copyOfRange(rolling, window - 1, rolling.length);
+    }
+
+    // 최근일수록 크게 반영한 평균 강도 (반감기 7일)
+    public synchronized double weightedIntensity(int contactId) {
+        Track track = find(contactId);
+        return track != null ? track.intensity.value() : 0.0;
+    }
+
+    // 지금 분위기 변화 상태면 그 값, 아니면 null
+    public synchronized MoodShift moodShift(int contactId) {
+        Track track = find(contactId);
+        return track != null ? track.shift : null;
+    }
+
+    private void update(Track track, long[] buckets, long nanos, int emotion, double intensity, int contactId) {
+        for (int g = 0; g < buckets.length; g++) {
+            track.series[g].add(buckets[g], emotion, intensity);
+        }
+        track.intensity.add(nanos, intensity);
+        double mood = valence(EMOTIONS[emotion]) * intensity;
+        track.moodShort.add(nanos, mood);
+        track.moodLong.add(nanos, mood);
+
+        double recent = track.moodShort.value();
+        double usual = track.moodLong.value();
+        boolean shifted = track.moodLong.weight >= MOOD_SHIFT_MIN_WEIGHT
+            && Math.abs(recent - usual) >= MOOD_SHIFT_THRESHOLD;
+        if (shifted && track.shift == null && contactId >= 0 && track != all) {
+            Metrics.counter("trend_mood_shifts_total").increment();
+            Log.debug(() -> "🌊 분위기 변화 감지 (상대 id " + contactId + ")");
+        }
+        track.shift = shifted ? new MoodShift(recent, usual, MessageLog.toLocalDateTime(nanos)) : null;
+    }
+
+    private Track find(int contactId) {
+        if (contactId == ALL) {
+            return all;
+        }
+        return contactId >= 0 && contactId < contacts.length ? contacts[contactId] : null;
+    }
+
+    private Track track(int contactId) {
+        if (contactId >= contacts.length) {
+            contacts = Arrays.copyOf(contacts, Math.max(contacts.length * 2, contactId + 1));
+        }
+        if (contacts[contactId] == null) {
+            contacts[contactId] = new Track();
+        }
+        return contacts[contactId];
+    }
+
+    // 감정 부호 (긍정 +1, 부정 -1)
+    private static double valence(Emotion emotion) {
+        switch (emotion) {
+            case JOY:
+                return 1.0;
+            case SURPRISE:
+                return 0.3;
+            case NEUTRAL:
+                return 0.0;
+            default:
+                return -1.0;
+        }
+    }
+}
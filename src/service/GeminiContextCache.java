@@ -0,0 +1,109 @@
+package service;
+
+import metrics.Metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gemini cachedContents 이름을 로컬에서 관리 (고정 지시문 접두부 캐시)
+ *
+ * - 접두부 = 감정 분석 공통 시스템 지시문(AnalysisGuide), 키 = (프롬프트 버전, 언어, MBTI)
+ *   접두부 글이 바뀌면(해시가 다르면) 새로 만든다
+ * - TTL 은 만들 때 정하고, 만료 REFRESH_MARGIN 전부터는 새로 만든다 (서버 쪽 예전 캐시는 TTL 이 지나면 사라짐)
+ * - 만들기 실패(접두부가 최소 토큰보다 짧음, 권한 등)는 FAILURE_BACKOFF 동안 다시 시도하지 않고 캐시 없이 보낸다
+ * - generateContent 가 캐시를 못 찾으면(404 등) invalidate → 호출하는 쪽이 전체 프롬프트로 다시 보낸다
+ *
+ * -Demotion.gemini.cache=on|off, -Demotion.gemini.cacheTtlSeconds=3600,
+ * -Demotion.gemini.cacheMinTokens=1024 (이보다 짧은 접두부는 캐시하지 않음. 모델의 최소 캐시 크기에 맞춤)
+ */
+public class GeminiContextCache {
+
+    public static final boolean ENABLED = !"off".equalsIgnoreCase(System.getProperty("emotion.gemini.cache", "on"));
+    public static final long TTL_SECONDS = Long.getLong("emotion.gemini.cacheTtlSeconds", 3600);
+    public static final int MIN_TOKENS = Integer.getInteger("emotion.gemini.cacheMinTokens", 1024);
+
+    private static final long REFRESH_MARGIN_MILLIS = 60_000;
+    private static final long FAILURE_BACKOFF_MILLIS = 10 * 60_000;
+
+    // 서버에 접두부 캐시를 만들고 이름(cachedContents/…)을 돌려줌
+    public interface Creator {
+        String create(String prefix, long ttlSeconds) throws Exception;
+    }
+
+    private static final class Entry {
+        final String name;          // 실패 기록이면 null
+        final int prefixHash;
+        final long expiresAt;       // 이름이 있으면 만료 시각, 없으면 다시 시도할 시각
+
+        Entry(String name, int prefixHash, long expiresAt) {
+            this.name = name;
+            this.prefixHash = prefixHash;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Creator creator;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public GeminiContextCache(Creator creator) {
+        this.creator = creator;
+    }
+
+    /**
+     * key 의 캐시 이름, 캐시를 쓸 수 없으면 null (그때는 전체 프롬프트를 보낸다)
+     * 없거나 곧 만료면 여기서 만든다 (HTTP 호출)
+     */
+    public String lookup(String key, String prefix, int prefixTokens) {
+        if (!ENABLED || prefixTokens < MIN_TOKENS) {
+            Metrics.counter("gemini_cache_lookups_total", "result", "skip").increment();
+            return null;
+        }
+        int hash = prefix.hashCode();
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.prefixHash == hash) {
+            if (entry.name != null && now < entry.expiresAt - REFRESH_MARGIN_MILLIS) {
+                Metrics.counter("gemini_cache_lookups_total", "result", "hit").increment();
+                return entry.name;
+            }
+            if (entry.name == null && now < entry.expiresAt) {
+                Metrics.counter("gemini_cache_lookups_total", "result", "unavailable").increment();
+                return null;
+            }
+        }
+        return create(key, prefix, hash);
+    }
+
+    // 같은 키를 동시에 두 번 만들지 않게
+    private synchronized String create(String key, String prefix, int hash) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.prefixHash == hash && entry.name != null
+                && now < entry.expiresAt - REFRESH_MARGIN_MILLIS) {
+            return entry.name;
+        }
+        try {
+            String name = creator.create(prefix, TTL_SECONDS);
+            entries.put(key, new Entry(name, hash, now + TTL_SECONDS * 1000));
+            Metrics.counter("gemini_cache_lookups_total", "result", "create").increment();
+            Log.info("🗄️ Gemini 캐시 생성: " + key + " → " + name);
+            return name;
+        } catch (Exception e) {
+            entries.put(key, new Entry(null, hash, now + FAILURE_BACKOFF_MILLIS));
+            Metrics.counter("gemini_cache_lookups_total", "result", "unavailable").increment();
+            Log.warn("⚠️ Gemini 캐시를 만들지 못해 캐시 없이 보냅니다 (" + key + "): " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 서버가 캐시를 못 찾을 때 (만료/삭제)
+    public void invalidate(String key) {
+        entries.remove(key);
+        Metrics.counter("gemini_cache_invalidations_total").increment();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
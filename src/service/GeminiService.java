@@ -1,5 +1,8 @@
 package service;
 
+import metrics.AnalysisStageEvent;
+import metrics.AnalysisTrace;
+import metrics.Metrics;
 import model.Emotion;
 import model.Message;
 import model.MBTI;
@@ -7,22 +10,72 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.BufferedReader;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
 
 public class GeminiService {
     
     private static final String API_KEY = "";
     
-    private static final String API_URL = 
-"https://generativelanguage.googleapis.com/v1/models/gemini-2.0-flash:generateContent";
+    private static final String MODEL = "gemini-2.0-flash";
+    
+    // 로컬 스텁으로 돌릴 때 바꿈 (-Demotion.gemini.baseUrl=http://localhost:8089, benchmarks 의 GeminiStub 참고)
+    private static final String API_BASE =
+        System.getProperty("emotion.gemini.baseUrl", "https://generativelanguage.googleapis.com");
+    
+    private static final String API_URL = API_BASE + "/v1/models/" + MODEL + ":generateContent";
+    
+    // 캐시(cachedContent)를 참조하는 호출과 캐시 만들기는 v1beta 에만 있음
+    private static final String CACHED_API_URL = API_BASE + "/v1beta/models/" + MODEL + ":generateContent";
+    private static final String CACHE_CREATE_URL = API_BASE + "/v1beta/cachedContents";
+    
+    // 고정 지시문(AnalysisGuide) 문구를 바꾸면 올림 (예전 캐시를 쓰지 않게)
+    private static final int PROMPT_VERSION = 2;
     
     private static final int TIMEOUT = 30000;
     
+    // 대화 요약 최대 길이 (글자)
+    private static final int MAX_SUMMARY_LENGTH = 400;
+    
+    // 모든 Gemini 호출이 함께 쓰는 호출 한도 (-Demotion.gemini.rpm=60, 0 이면 제한 없음 / -Demotion.gemini.burst=5)
+    private static final RateLimiter RATE_LIMITER = new RateLimiter("gemini",
+        Integer.getInteger("emotion.gemini.rpm", 60), Integer.getInteger("emotion.gemini.burst", 5));
+    
+    private final GeminiContextCache contextCache = new GeminiContextCache(this::createCachedContent);
+    
+    // 같은(거의 같은) 스크린샷의 OCR 결과 (처음 OCR 할 때 파일을 읽음)
+    private final OcrCache ocrCache = new OcrCache(java.nio.file.Paths.get(Stores.OCR_CACHE_FILE));
+    
+    /**
+     * HTTP 200 이 아닌 응답
+     */
+    static class GeminiApiException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int responseCode;
+        final String body;
+        
+        GeminiApiException(String message, int responseCode, String body) {
+            super(message);
+            this.responseCode = responseCode;
+            this.body = body;
+        }
+        
+        // 참조한 캐시가 서버에 없음 (만료/삭제)
+        boolean isMissingCache() {
+            return responseCode == 404
+                || (responseCode == 400 && body != null && body.toLowerCase().contains("cachedcontent"));
+        }
+    }
+    
     public Message analyzeEmotion(String text) throws Exception {
         return analyzeEmotion(text, null);
     }
@@ -38,20 +91,29 @@ public class GeminiService {
                 "GeminiService.java 파일에서 API_KEY를 설정해주세요.");
         }
         
-        System.out.println("📡 Gemini API 호출 중..." + 
+        Log.info(() -> "📡 Gemini API 호출 중..." + 
             (mbti != null && mbti != MBTI.UNKNOWN ? " (MBTI: " + mbti.getCode() + ")" : ""));
         
-        String prompt = createEmotionAnalysisPrompt(text, mbti);
-        String response = callGeminiAPI(prompt);
+        AnalysisStageEvent promptStage = AnalysisTrace.start("prompt");
+        boolean isKorean = isKoreanText(text);
+        PromptBuilder.Prompt prompt = createEmotionAnalysisPrompt(text, mbti, isKorean);
+        promptStage.promptTokens = prompt.getTokens();
+        AnalysisTrace.commit(promptStage);
+        
+        String response = generate(prompt, isKorean, mbti);
+        
+        AnalysisStageEvent parseStage = AnalysisTrace.start("parse");
         Message result = parseEmotionResponse(text, response);
+        AnalysisTrace.commit(parseStage);
         
-        System.out.println("✅ 감정 분석 완료: " + result.getEmotion().getKorean());
+        Log.info(() -> "✅ 감정 분석 완료: " + result.getEmotion().getKorean());
         
         return result;
     }
 
     
-    public Message analyzeEmotionWithContext(String currentMessage, String conversationContext, MBTI mbti) throws Exception {
+    // conversationContext 는 예산(PromptBuilder.DEFAULT_MAX_TOKENS)에 맞게 오래된 항목부터 잘린다
+    public Message analyzeEmotionWithContext(String currentMessage, PromptContext conversationContext, MBTI mbti) throws Exception {
         if (currentMessage == null || currentMessage.trim().isEmpty()) {
             throw new IllegalArgumentException("분석할 텍스트가 비어있습니다.");
         }
@@ -62,67 +124,77 @@ public class GeminiService {
                 "GeminiService.java 파일에서 API_KEY를 설정해주세요.");
         }
         
-        System.out.println("📡 맥락 기반 감정 분석 중..." + 
+        Log.info(() -> "📡 맥락 기반 감정 분석 중..." + 
             (mbti != null && mbti != MBTI.UNKNOWN ? " (MBTI: " + mbti.getCode() + ")" : ""));
         
-        String prompt = createContextAnalysisPrompt(currentMessage, conversationContext, mbti);
-        String response = callGeminiAPI(prompt);
+        AnalysisStageEvent promptStage = AnalysisTrace.start("prompt");
+        boolean isKorean = isKoreanText(currentMessage);
+        PromptBuilder.Prompt prompt = createContextAnalysisPrompt(currentMessage, conversationContext, mbti, isKorean);
+        promptStage.promptTokens = prompt.getTokens();
+        AnalysisTrace.commit(promptStage);
+        
+        String response = generate(prompt, isKorean, mbti);
+        
+        AnalysisStageEvent parseStage = AnalysisTrace.start("parse");
         Message result = parseEmotionResponse(currentMessage, response);
+        AnalysisTrace.commit(parseStage);
         
-        System.out.println("✅ 맥락 기반 감정 분석 완료: " + result.getEmotion().getKorean());
+        Log.info(() -> "✅ 맥락 기반 감정 분석 완료: " + result.getEmotion().getKorean());
         
         return result;
     }
     
-    private String createContextAnalysisPrompt(String currentMessage, String conversationContext, MBTI mbti) {
-        boolean isKorean = isKoreanText(currentMessage);
-        
+    // 짧은 고정 지시문(역할 + MBTI + 출력 형식)이 앞, 맥락과 분석할 메시지가 뒤
+    // 캐시를 쓰면 앞부분 대신 캐시된 AnalysisGuide 가 그 역할을 한다
+    private PromptBuilder.Prompt createContextAnalysisPrompt(String currentMessage, PromptContext conversationContext,
+                                                             MBTI mbti, boolean isKorean) {
         String mbtiContext = "";
         if (mbti != null && mbti != MBTI.UNKNOWN) {
-            mbtiContext = "\n\n🧠 **상대방 MBTI: " + mbti.getCode() + " (" + mbti.getNickname() + ")**\n" +
+            mbtiContext = "🧠 **상대방 MBTI: " + mbti.getCode() + " (" + mbti.getNickname() + ")**\n" +
                          "특성: " + mbti.getCharacteristic() + "\n" +
-                         "감정 해석 가이드: " + mbti.getEmotionInterpretationGuideline() + "\n";
+                         "감정 해석 가이드: " + mbti.getEmotionInterpretationGuideline() + "\n\n";
         }
         
+        PromptBuilder prompt = PromptBuilder.start("context", PromptBuilder.DEFAULT_MAX_TOKENS);
         if (isKorean) {
-            return "당신은 감정 분석 전문가입니다.\n\n" +
-                   "📚 **이전 대화 맥락:**\n" +
-                   conversationContext +
-                   "\n\n" +
+            return prompt.append("당신은 감정 분석 전문가입니다.\n\n" +
                    mbtiContext +
-                   "\n\n🎯 **지금 막 받은 메시지 (분석 대상):**\n" +
-                   "\"" + currentMessage + "\"\n\n" +
-                   "⚠️ 중요: 위의 이전 대화 내용을 반드시 참고하여, 지금 받은 메시지의 감정을 분석하고 답변을 추천해주세요.\n" +
+                   "이전 대화 맥락을 반드시 참고하여, 지금 받은 메시지의 감정을 분석하고 답변을 추천해주세요.\n" +
                    "상대방이 이전에 어떤 말을 했는지, 어떤 상황인지 맥락을 고려해서 분석하세요.\n\n" + 
                    "반드시 아래 형식을 정확히 지켜서 답변해주세요:\n\n" +
                    "감정: [기쁨/슬픔/분노/공포/혐오/놀람/중립 중 정확히 하나만]\n" +
                    "강도: [0.0에서 1.0 사이의 소수점 숫자]\n" +
                    "분석: [대화 맥락을 고려한 감정 분석 이유를 2-3문장으로 한국어로]\n" +
                    "추천답변: [대화 흐름과 상대방 감정을 고려한 공감적이고 적절한 답변 1-2문장을 한국어로]\n\n" +
-                   "⚠️ 중요: 분석과 추천답변은 반드시 한국어로 작성하세요!";
+                   "⚠️ 중요: 분석과 추천답변은 반드시 한국어로 작성하세요!\n\n")
+                   .endPrefix()
+                   .append("📚 **이전 대화 맥락:**\n")
+                   .context(conversationContext)
+                   .append("\n\n🎯 **지금 막 받은 메시지 (분석 대상):**\n" +
+                   "\"" + currentMessage + "\"\n\n" +
+                   "⚠️ 중요: 위의 이전 대화 내용을 반드시 참고하여 분석하세요.")
+                   .build();
         } else {
-            return "You are an emotion analysis expert.\n\n" +
-                   "📚 **Previous Conversation Context:**\n" +
-                   conversationContext +
-                   "\n\n" +
+            return prompt.append("You are an emotion analysis expert.\n\n" +
                    mbtiContext +
-                   "\n\n🎯 **Current Message Just Received (Target for Analysis):**\n" +
-                   "\"" + currentMessage + "\"\n\n" +
-                   "⚠️ IMPORTANT: You must consider the previous conversation context above when analyzing this current message.\n" +
+                   "You must consider the previous conversation context when analyzing the current message.\n" +
                    "Consider what the person said before and the current situation based on the context.\n\n" +
                    "Please follow this format exactly:\n\n" +
                    "감정: [Exactly one of: 기쁨/슬픔/분노/공포/혐오/놀람/중립]\n" +
                    "강도: [A decimal number between 0.0 and 1.0]\n" +
                    "분석: [Reason for emotion analysis considering context, 2-3 sentences IN ENGLISH]\n" +
-                   "추천답변: [An empathetic and appropriate response considering conversation flow, 1-2 sentences IN ENGLISH]\n\n" +
-                   "Please follow the format exactly.";
+                   "추천답변: [An empathetic and appropriate response considering conversation flow, 1-2 sentences IN ENGLISH]\n\n")
+                   .endPrefix()
+                   .append("📚 **Previous Conversation Context:**\n")
+                   .context(conversationContext)
+                   .append("\n\n🎯 **Current Message Just Received (Target for Analysis):**\n" +
+                   "\"" + currentMessage + "\"\n\n" +
+                   "Please follow the format exactly.")
+                   .build();
         }
     }
     
-    private String createEmotionAnalysisPrompt(String text, MBTI mbti) {
-        // 🔧 수정: 한글 비율로 판단
-        boolean isKorean = isKoreanText(text);
-        
+    private PromptBuilder.Prompt createEmotionAnalysisPrompt(String text, MBTI mbti, boolean isKorean) {
         String mbtiContext = "";
         if (mbti != null && mbti != MBTI.UNKNOWN) {
             mbtiContext = "\n\n🧠 **상대방 MBTI: " + mbti.getCode() + " (" + mbti.getNickname() + ")**\n" +
@@ -132,26 +204,61 @@ public class GeminiService {
                          "예: INFP가 '괜찮아'라고 하면 실제로는 힘들 수 있음. ESTJ가 '괜찮아'라고 하면 정말 괜찮음.";
         }
         
+        PromptBuilder prompt = PromptBuilder.start("analyze", PromptBuilder.DEFAULT_MAX_TOKENS);
         if (isKorean) {
-            return "당신은 감정 분석 전문가입니다. 다음 문장의 감정을 정확하게 분석해주세요." +
+            return prompt.append("당신은 감정 분석 전문가입니다. 다음 문장의 감정을 정확하게 분석해주세요." +
                    mbtiContext +
                    "\n\n⚠️ 반드시 아래 형식을 정확히 지켜서 답변해주세요:\n\n" +
                    "감정: [기쁨/슬픔/분노/공포/혐오/놀람/중립 중 정확히 하나만]\n" +
                    "강도: [0.0에서 1.0 사이의 소수점 숫자]\n" +
                    "분석: [감정 분석 이유를 1-2문장으로 한국어로]\n" +
-                   "추천답변: [상황에 맞는 공감하고 적절한 답변 1-2문장을 한국어로]\n\n" +
-                   "분석할 문장: \"" + text + "\"\n\n" +
-                   "⚠️ 중요: 분석과 추천답변은 반드시 한국어로 작성하세요!";
+                   "추천답변: [상황에 맞는 공감하고 적절한 답변 1-2문장을 한국어로]\n\n")
+                   .endPrefix()
+                   .append("분석할 문장: \"" + text + "\"\n\n" +
+                   "⚠️ 중요: 분석과 추천답변은 반드시 한국어로 작성하세요!")
+                   .build();
         } else {
-            return "You are an emotion analysis expert. Please accurately analyze the emotion of the following sentence." +
+            return prompt.append("You are an emotion analysis expert. Please accurately analyze the emotion of the following sentence." +
                    mbtiContext +
                    "\n\n⚠️ Please follow this format exactly:\n\n" +
                    "감정: [Exactly one of: 기쁨/슬픔/분노/공포/혐오/놀람/중립]\n" +
                    "강도: [A decimal number between 0.0 and 1.0]\n" +
                    "분석: [Reason for emotion analysis in 1-2 sentences IN ENGLISH]\n" +
-                   "추천답변: [An empathetic and appropriate response in 1-2 sentences IN ENGLISH]\n\n" +
-                   "Sentence to analyze: \"" + text + "\"\n\n" +
-                   "Please follow the format exactly.";
+                   "추천답변: [An empathetic and appropriate response in 1-2 sentences IN ENGLISH]\n\n")
+                   .endPrefix()
+                   .append("Sentence to analyze: \"" + text + "\"\n\n" +
+                   "Please follow the format exactly.")
+                   .build();
+        }
+    }
+    
+    // 캐시 키: 같은 키면 AnalysisGuide 글이 같다 (analyze / context 가 함께 씀)
+    private static String cacheKey(boolean isKorean, MBTI mbti) {
+        return "v" + PROMPT_VERSION + ":" + (isKorean ? "ko" : "en") + ":"
+            + (mbti != null ? mbti.name() : MBTI.UNKNOWN.name());
+    }
+    
+    /**
+     * 감정 분석 호출: (언어, MBTI)의 AnalysisGuide 를 캐시로 쓸 수 있으면 그것을 시스템 지시문으로 하고 뒷부분만,
+     * 아니면 짧은 고정 지시문이 붙은 전체 프롬프트를 보낸다
+     * 서버가 캐시를 못 찾으면 캐시를 지우고 전체로 한 번 더
+     */
+    private String generate(PromptBuilder.Prompt prompt, boolean isKorean, MBTI mbti) throws Exception {
+        String cacheKey = cacheKey(isKorean, mbti);
+        AnalysisGuide.Guide guide = AnalysisGuide.get(isKorean, mbti);
+        String cachedContent = contextCache.lookup(cacheKey, guide.text, guide.tokens);
+        if (cachedContent == null) {
+            return callGeminiAPI(prompt.getText());
+        }
+        try {
+            return callGeminiAPI(prompt.getBody(), cachedContent);
+        } catch (GeminiApiException e) {
+            if (!e.isMissingCache()) {
+                throw e;
+            }
+            Log.warn("⚠️ Gemini 캐시가 없어져 전체 프롬프트로 다시 보냅니다: " + cachedContent);
+            contextCache.invalidate(cacheKey);
+            return callGeminiAPI(prompt.getText());
         }
     }
     
@@ -189,14 +296,79 @@ public class GeminiService {
         
         // 한글 비율이 30% 이상이면 한국어
         double koreanRatio = (double) koreanChars / totalChars;
-        System.out.println("📝 언어 판단: 총 " + totalChars + "자 중 한글 " + koreanChars + "자 (" + 
+        int total = totalChars;
+        int korean = koreanChars;
+        Log.debug(() -> "📝 언어 판단: 총 " + total + "자 중 한글 " + korean + "자 (" + 
             String.format("%.1f%%", koreanRatio * 100) + ") → " + (koreanRatio >= 0.3 ? "한국어" : "영어"));
         return koreanRatio >= 0.3;
     }
     
     private String callGeminiAPI(String prompt) throws Exception {
-        URL url = new URL(API_URL + "?key=" + API_KEY);
+        return callGeminiAPI(prompt, null);
+    }
+    
+    // cachedContent: 앞에 붙일 서버 캐시 이름 (없으면 null)
+    private String callGeminiAPI(String prompt, String cachedContent) throws Exception {
+        JSONObject requestBody = new JSONObject();
+        JSONArray contents = new JSONArray();
+        JSONObject content = new JSONObject();
+        JSONArray parts = new JSONArray();
+        JSONObject part = new JSONObject();
+        
+        part.put("text", prompt);
+        parts.put(part);
+        content.put("role", "user");
+        content.put("parts", parts);
+        contents.put(content);
+        requestBody.put("contents", contents);
+        if (cachedContent != null) {
+            requestBody.put("cachedContent", cachedContent);
+        }
+        
+        String response = post(cachedContent != null ? CACHED_API_URL : API_URL, requestBody,
+            cachedContent != null ? "generate_cached" : "generate", "http");
+        recordUsage(response);
+        return response;
+    }
+    
+    // 고정 지시문을 서버 캐시로 만들고 이름(cachedContents/…)을 돌려줌 (GeminiContextCache 가 호출)
+    private String createCachedContent(String prefix, long ttlSeconds) throws Exception {
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("model", "models/" + MODEL);
+        requestBody.put("systemInstruction", new JSONObject()
+            .put("parts", new JSONArray().put(new JSONObject().put("text", prefix))));
+        requestBody.put("ttl", ttlSeconds + "s");
+        
+        String response = post(CACHE_CREATE_URL, requestBody, "cache_create", "cache_create");
+        return new JSONObject(response).getString("name");
+    }
+    
+    // 📊 응답의 usageMetadata (실제 토큰 수, 그중 캐시에서 읽은 수)
+    private static void recordUsage(String response) {
+        try {
+            JSONObject usage = new JSONObject(response).optJSONObject("usageMetadata");
+            if (usage != null) {
+                Metrics.counter("gemini_prompt_tokens_total").add(usage.optLong("promptTokenCount"));
+                Metrics.counter("gemini_cached_tokens_total").add(usage.optLong("cachedContentTokenCount"));
+            }
+        } catch (Exception e) {
+            // 응답 해석은 parseEmotionResponse 쪽에서 다룬다
+        }
+    }
+    
+    private String post(String endpointUrl, JSONObject requestBody, String endpoint, String stage) throws Exception {
+        return post(endpointUrl, new JsonBody(requestBody), endpoint, stage);
+    }
+    
+    private String post(String endpointUrl, RequestBody requestBody, String endpoint, String stage) throws Exception {
+        RATE_LIMITER.acquire();
+        URL url = new URL(endpointUrl + "?key=" + apiKey());
         HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        AnalysisStageEvent httpStage = AnalysisTrace.start(stage);
+        long start = System.nanoTime();
+        int responseCode = -1;
+        long sentBytes = 0;
+        long receivedBytes = 0;
         
         try {
             conn.setRequestMethod("POST");
@@ -204,25 +376,16 @@ public class GeminiService {
             conn.setDoOutput(true);
             conn.setConnectTimeout(TIMEOUT);
             conn.setReadTimeout(TIMEOUT);
-            
-            JSONObject requestBody = new JSONObject();
-            JSONArray contents = new JSONArray();
-            JSONObject content = new JSONObject();
-            JSONArray parts = new JSONArray();
-            JSONObject part = new JSONObject();
-            
-            part.put("text", prompt);
-            parts.put(part);
-            content.put("parts", parts);
-            contents.put(content);
-            requestBody.put("contents", contents);
+            // 길이를 미리 알려야 HttpURLConnection 이 본문을 통째로 버퍼에 모으지 않는다
+            long length = requestBody.length();
+            conn.setFixedLengthStreamingMode(length);
             
             try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = requestBody.toString().getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
+                requestBody.writeTo(os);
+                sentBytes = length;
             }
             
-            int responseCode = conn.getResponseCode();
+            responseCode = conn.getResponseCode();
             
             if (responseCode != 200) {
                 BufferedReader errorReader = new BufferedReader(
@@ -233,6 +396,7 @@ public class GeminiService {
                     errorResponse.append(line);
                 }
                 errorReader.close();
+                receivedBytes = utf8Length(errorResponse);
                 
                 String errorMsg = "API 호출 실패 (코드: " + responseCode + ")\n";
                 if (responseCode == 403) {
@@ -243,7 +407,7 @@ public class GeminiService {
                     errorMsg += "오류 내용: " + errorResponse.toString();
                 }
                 
-                throw new Exception(errorMsg);
+                throw new GeminiApiException(errorMsg, responseCode, errorResponse.toString());
             }
             
             BufferedReader br = new BufferedReader(
@@ -254,15 +418,123 @@ public class GeminiService {
                 response.append(responseLine.trim());
             }
             br.close();
+            receivedBytes = utf8Length(response);
             
             return response.toString();
             
         } finally {
             conn.disconnect();
+            recordCall(endpoint, responseCode, start, sentBytes, receivedBytes);
+            httpStage.requestBytes = sentBytes;
+            httpStage.responseBytes = receivedBytes;
+            AnalysisTrace.commit(httpStage);
         }
     }
     
-    private Message parseEmotionResponse(String originalText, String apiResponse) {
+    // HTTP 요청 본문 (길이를 먼저 알 수 있어야 함)
+    interface RequestBody {
+        long length();
+        
+        void writeTo(OutputStream out) throws IOException;
+    }
+    
+    private static final class JsonBody implements RequestBody {
+        private final byte[] bytes;
+        
+        JsonBody(JSONObject json) {
+            this.bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        
+        @Override
+        public long length() {
+            return bytes.length;
+        }
+        
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(bytes);
+        }
+    }
+    
+    /**
+     * OCR 요청: {"contents":[{"parts":[{"text":…},{"inline_data":{"mime_type":…,"data":"<base64>"}}]}]}
+     * JSON 앞부분 → 이미지를 8KB 씩 읽어 base64 로 바꾸며 씀 → JSON 뒷부분. 이미지 크기와 상관없이 버퍼만 씀
+     */
+    static final class InlineImageBody implements RequestBody {
+        private static final int CHUNK = 8 * 1024;
+        
+        private final byte[] head;
+        private final byte[] tail;
+        private final ImagePreprocessor.Prepared image;
+        
+        InlineImageBody(String prompt, ImagePreprocessor.Prepared image) {
+            this.image = image;
+            this.head = ("{\"contents\":[{\"parts\":[{\"text\":" + JSONObject.quote(prompt)
+                + "},{\"inline_data\":{\"mime_type\":" + JSONObject.quote(image.getMimeType())
+                + ",\"data\":\"").getBytes(StandardCharsets.UTF_8);
+            this.tail = "\"}}]}]}".getBytes(StandardCharsets.UTF_8);
+        }
+        
+        @Override
+        public long length() {
+            return head.length + (image.size() + 2) / 3 * 4 + tail.length;
+        }
+        
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(head);
+            // base64 스트림을 닫아야 마지막 패딩이 써지지만 연결은 닫으면 안 됨
+            OutputStream unclosable = new FilterOutputStream(out) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+                
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+            try (InputStream in = image.openStream();
+                 OutputStream encoder = Base64.getEncoder().wrap(unclosable)) {
+                byte[] buffer = new byte[CHUNK];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    encoder.write(buffer, 0, read);
+                }
+            }
+            out.write(tail);
+        }
+    }
+    
+    // 📊 호출 1건의 지연/바이트/상태 코드 기록 (code -1 = 응답 전 네트워크 오류)
+    private static void recordCall(String endpoint, int responseCode, long startNanos, long sentBytes, long receivedBytes) {
+        Metrics.histogram("gemini_request_seconds", "endpoint", endpoint).recordSince(startNanos);
+        Metrics.counter("gemini_requests_total", "endpoint", endpoint).increment();
+        Metrics.counter("gemini_responses_total", "code", String.valueOf(responseCode)).increment();
+        Metrics.counter("gemini_request_bytes_total", "endpoint", endpoint).add(sentBytes);
+        Metrics.counter("gemini_response_bytes_total", "endpoint", endpoint).add(receivedBytes);
+    }
+    
+    private static long utf8Length(CharSequence text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+    
+    public Message parseEmotionResponse(String originalText, String apiResponse) {
         try {
             JSONObject jsonResponse = new JSONObject(apiResponse);
             JSONArray candidates = jsonResponse.getJSONArray("candidates");
@@ -276,7 +548,7 @@ public class GeminiService {
             JSONArray parts = content.getJSONArray("parts");
             String text = parts.getJSONObject(0).getString("text");
             
-            System.out.println("📄 AI 응답:\n" + text);
+            Log.debug(() -> "📄 AI 응답:\n" + text);
             
             Emotion emotion = Emotion.NEUTRAL;
             double intensity = 0.5;
@@ -319,8 +591,8 @@ public class GeminiService {
             return new Message(originalText, emotion, intensity, recommendedResponse);
             
         } catch (Exception e) {
-            System.err.println("❌ 응답 파싱 실패: " + e.getMessage());
-            e.printStackTrace();
+            Metrics.counter("gemini_parse_failures_total").increment();
+            Log.error("❌ 응답 파싱 실패: " + e.getMessage(), e);
             return new Message(originalText, Emotion.NEUTRAL, 0.5, 
                 "응답 분석 중 오류가 발생했습니다.");
         }
@@ -346,31 +618,28 @@ public class GeminiService {
         }
     }
     
-    // 🆕 대화 기록으로 상대방 프로필 자동 생성
-    public String generateContactProfile(List<model.Message> messages, String contactName, MBTI mbti) throws Exception {
+    /**
+     * 🆕 상대방 프로필 생성 (ProfileUpdater 가 배경에서, 또는 다시 생성 버튼으로 호출)
+     * features: 전체 기록의 특징 요약 (DataManager.describeProfileFeatures), messages: 최근 대화 (시간순)
+     */
+    public String generateContactProfile(String features, List<model.Message> messages, String contactName,
+                                         MBTI mbti) throws Exception {
         if (messages == null || messages.isEmpty()) {
             return "아직 충분한 대화 데이터가 없습니다.";
         }
         
-        if (messages.size() < 5) {
-            return "프로필 생성에는 최소 5개 이상의 대화가 필요합니다. (현재: " + messages.size() + "개)";
-        }
-        
-        System.out.println("🧠 상대방 프로필 생성 중... (" + messages.size() + "개 메시지 분석)");
-        
-        StringBuilder messageContext = new StringBuilder();
-        messageContext.append("다음은 '").append(contactName).append("'님과의 대화 기록입니다:\n\n");
-        
-        for (int i = 0; i < Math.min(messages.size(), 20); i++) {
-            model.Message msg = messages.get(i);
-            messageContext.append(String.format("%d. [%s] %s님: \"%s\"\n",
-                i + 1,
-                msg.getFormattedTimestamp(),
-                contactName,
-                msg.getContent()));
-            messageContext.append(String.format("   감정: %s (%d%%)\n\n",
-                msg.getEmotion().getKorean(),
-                msg.getIntensityPercent()));
+        Log.info("🧠 상대방 프로필 생성 중... (최근 " + messages.size() + "개 메시지 + 특징 요약)");
+        
+        // 시간순으로 모두 넣고, 예산을 넘으면 오래된 것부터 빠진다
+        PromptContext messageContext = new PromptContext(
+            "최근 대화 기록:\n\n", null);
+        for (model.Message msg : messages) {
+            messageContext.beginEntry(msg.getEmotion())
+                .append("[").append(msg.getFormattedTimestamp()).append("] ")
+                .append(contactName).append("님: \"").append(msg.getContent()).append("\"\n")
+                .append("   감정: ").append(msg.getEmotion().getKorean())
+                .append(" (").append(msg.getIntensityPercent()).append("%)\n\n")
+                .endEntry();
         }
         
         String mbtiInfo = "";
@@ -379,41 +648,84 @@ public class GeminiService {
                       "특성: " + mbti.getCharacteristic();
         }
         
-        String prompt = "당신은 심리 분석 전문가입니다.\n\n" +
-                       messageContext.toString() +
-                       mbtiInfo +
-                       "\n\n위 대화 기록을 분석하여, 이 사람의 성향을 요약해주세요.\n\n" +
+        // 지시문(+MBTI)이 앞, 상대방별 특징/대화가 뒤. 지시문이 캐시 최소 크기보다 짧아 캐시 없이 보냄
+        PromptBuilder.Prompt prompt = PromptBuilder.start("profile", PromptBuilder.DEFAULT_MAX_TOKENS)
+                       .append("당신은 심리 분석 전문가입니다." + mbtiInfo +
+                       "\n\n아래의 전체 대화 특징 요약과 최근 대화 기록을 분석하여, 이 사람의 성향을 요약해주세요.\n\n" +
                        "다음 항목을 포함해서 3-4문장으로 작성하세요:\n" +
                        "1. 평소 감정 표현 방식 (솔직한지, 절제적인지)\n" +
                        "2. 자주 나타나는 감정 패턴\n" +
                        "3. 스트레스나 힘들 때의 특징적인 반응\n" +
                        "4. 이 사람과 대화할 때 주의할 점\n\n" +
-                       "⚠️ 반드시 한국어로, 존댓말로, 객관적이고 따뜻한 어조로 작성하세요.";
+                       "⚠️ 반드시 한국어로, 존댓말로, 객관적이고 따뜻한 어조로 작성하세요.\n\n")
+                       .append("'").append(contactName).append("'님의 전체 대화 특징:\n")
+                       .append(features != null ? features : "(없음)\n")
+                       .append('\n')
+                       .context(messageContext)
+                       .build();
         
-        String response = callGeminiAPI(prompt);
+        String response = callGeminiAPI(prompt.getText());
         
         try {
-            JSONObject jsonResponse = new org.json.JSONObject(response);
-            JSONArray candidates = jsonResponse.getJSONArray("candidates");
+            String profile = extractText(response);
             
-            if (candidates.length() == 0) {
-                throw new Exception("API 응답에 결과가 없습니다.");
-            }
+            Log.info("✅ 프로필 생성 완료!");
             
-            JSONObject candidate = candidates.getJSONObject(0);
-            JSONObject content = candidate.getJSONObject("content");
-            JSONArray parts = content.getJSONArray("parts");
-            String profile = parts.getJSONObject(0).getString("text");
-            
-            System.out.println("✅ 프로필 생성 완료!");
-            
-            return profile.trim();
+            return profile;
             
         } catch (Exception e) {
-            System.err.println("❌ 프로필 생성 실패: " + e.getMessage());
-            return "프로필 생성 중 오류가 발생했습니다.";
+            // 오류 문구를 프로필로 저장하지 않게 호출하는 쪽으로 넘김
+            Log.error("❌ 프로필 생성 실패: " + e.getMessage());
+            throw new Exception("프로필 생성 중 오류가 발생했습니다: " + e.getMessage(), e);
         }
     }
+    
+    /**
+     * 🆕 대화 요약 갱신 (ConversationSummarizer 가 배경에서 호출)
+     * previousSummary 에 newMessages(시간순)를 반영한 새 요약. 실패하면 예외
+     */
+    public String summarizeConversation(String previousSummary, List<model.Message> newMessages,
+                                        String contactName) throws Exception {
+        PromptContext recent = new PromptContext("새 대화 (시간순):\n", null);
+        for (model.Message msg : newMessages) {
+            recent.beginEntry(msg.getEmotion())
+                .append("- ").append(contactName).append(": \"").append(msg.getContent()).append("\" (")
+                .append(msg.getEmotion().getKorean()).append(' ').append(msg.getIntensityPercent()).append("%)\n")
+                .append("  나: \"").append(msg.getRecommendedResponse()).append("\"\n")
+                .endEntry();
+        }
+        
+        PromptBuilder.Prompt prompt = PromptBuilder.start("summary", PromptBuilder.DEFAULT_MAX_TOKENS)
+            .append("당신은 대화 기록을 요약하는 비서입니다. '").append(contactName)
+            .append("'님과의 대화 요약을 갱신하세요.\n\n")
+            .append("기존 요약:\n")
+            .append(previousSummary != null && !previousSummary.isBlank() ? previousSummary : "(없음)")
+            .append("\n\n")
+            .context(recent)
+            .append("\n기존 요약에 새 대화를 반영해 5문장 이내로 다시 쓰세요.\n" +
+                    "- 진행 중인 일/고민, 최근 감정 흐름, 내가 어떻게 답해 왔는지를 남기세요.\n" +
+                    "- 오래되고 중요하지 않은 내용은 줄이세요.\n" +
+                    "⚠️ 요약 문장만 한국어로 출력하세요.")
+            .build();
+        
+        String summary = extractText(callGeminiAPI(prompt.getText()));
+        // 프롬프트에 다시 들어가므로 길이를 묶어 둠
+        return summary.length() > MAX_SUMMARY_LENGTH ? summary.substring(0, MAX_SUMMARY_LENGTH) : summary;
+    }
+    
+    // generateContent 응답에서 첫 후보의 글만
+    private static String extractText(String response) throws Exception {
+        JSONObject jsonResponse = new JSONObject(response);
+        JSONArray candidates = jsonResponse.getJSONArray("candidates");
+        
+        if (candidates.length() == 0) {
+            throw new Exception("API 응답에 결과가 없습니다.");
+        }
+        
+        JSONObject content = candidates.getJSONObject(0).getJSONObject("content");
+        JSONArray parts = content.getJSONArray("parts");
+        return parts.getJSONObject(0).getString("text").trim();
+    }
 
     // 🆕 이미지에서 텍스트 추출 (OCR) + 감정 분석
     public Message analyzeImageWithOCR(java.io.File imageFile, MBTI mbti) throws Exception {
@@ -425,15 +737,15 @@ public class GeminiService {
             throw new IllegalStateException("API 키가 설정되지 않았습니다.");
         }
         
-        System.out.println("📷 이미지 OCR 분석 중: " + imageFile.getName());
+        Log.info("📷 이미지 OCR 분석 중: " + imageFile.getName());
         
-        // 이미지를 Base64로 인코딩
-        String base64Image = encodeImageToBase64(imageFile);
+        // 이미지 줄이기 (형식 판별, 축소, 회색조, 여백 자르기)
+        ImagePreprocessor.Prepared image = prepareImage(imageFile);
         
         // Gemini Vision API 호출
-        String extractedText = extractTextFromImage(base64Image);
+        String extractedText = extractTextFromImage(image);
         
-        System.out.println("📝 추출된 텍스트: " + extractedText);
+        Log.debug(() -> "📝 추출된 텍스트: " + extractedText);
         
         if (extractedText == null || extractedText.trim().isEmpty()) {
             throw new Exception("이미지에서 텍스트를 추출할 수 없습니다.");
@@ -443,20 +755,30 @@ public class GeminiService {
         return analyzeEmotion(extractedText.trim(), mbti);
     }
     
-    // 이미지를 Base64로 인코딩
-    public String encodeImageToBase64(java.io.File imageFile) throws Exception {
-        try (java.io.FileInputStream fis = new java.io.FileInputStream(imageFile)) {
-            byte[] imageBytes = fis.readAllBytes();
-            return java.util.Base64.getEncoder().encodeToString(imageBytes);
+    // 업로드할 이미지 준비 (ImagePreprocessor). encode 단계 requestBytes = 보낼 크기
+    public ImagePreprocessor.Prepared prepareImage(java.io.File imageFile) throws Exception {
+        AnalysisStageEvent encodeStage = AnalysisTrace.start("encode");
+        try {
+            ImagePreprocessor.Prepared image = ImagePreprocessor.prepare(imageFile);
+            encodeStage.requestBytes = image.size();
+            return image;
         } catch (Exception e) {
             throw new Exception("이미지 인코딩 실패: " + e.getMessage());
+        } finally {
+            AnalysisTrace.commit(encodeStage);
         }
     }
     
-    // Gemini Vision API로 이미지에서 텍스트 추출
-    public String extractTextFromImage(String base64Image) throws Exception {
-        // 이미지 타입 감지 (간단하게 png로 가정, 실제로는 확장자 체크 필요)
-        String mimeType = "image/png";
+    // Gemini Vision API로 이미지에서 텍스트 추출 (OCR 캐시에 있으면 호출 없이)
+    public String extractTextFromImage(ImagePreprocessor.Prepared image) throws Exception {
+        OcrCache.Fingerprint fingerprint = image.getFingerprint();
+        if (fingerprint != null) {
+            String cached = ocrCache.get(fingerprint);
+            if (cached != null) {
+                Log.info("📷 같은 스크린샷의 OCR 결과를 재사용합니다.");
+                return cached;
+            }
+        }
         
         String prompt = "이 이미지는 메신저 대화 스크린샷입니다.\n\n" +
                        "⚠️ 다음 규칙에 따라 분석하세요:\n\n" +
@@ -475,82 +797,34 @@ public class GeminiService {
                        "[나] 좋아! 너는?\n" +
                        "[상대방] 나도 좋아";
         
-        JSONObject requestBody = new JSONObject();
-        JSONArray contents = new JSONArray();
-        JSONObject content = new JSONObject();
-        JSONArray parts = new JSONArray();
-        
-        // 텍스트 파트
-        JSONObject textPart = new JSONObject();
-        textPart.put("text", prompt);
-        parts.put(textPart);
-        
-        // 이미지 파트
-        JSONObject imagePart = new JSONObject();
-        JSONObject inlineData = new JSONObject();
-        inlineData.put("mime_type", mimeType);
-        inlineData.put("data", base64Image);
-        imagePart.put("inline_data", inlineData);
-        parts.put(imagePart);
-        
-        content.put("parts", parts);
-        contents.put(content);
-        requestBody.put("contents", contents);
-        
-        // API 호출
-        URL url = new URL(API_URL + "?key=" + API_KEY);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        
-        try {
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-            conn.setDoOutput(true);
-            conn.setConnectTimeout(TIMEOUT);
-            conn.setReadTimeout(TIMEOUT);
-            
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = requestBody.toString().getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
-            
-            int responseCode = conn.getResponseCode();
-            
-            if (responseCode != 200) {
-                throw new Exception("OCR API 호출 실패 (코드: " + responseCode + ")");
-            }
-            
-            BufferedReader br = new BufferedReader(
-                new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-            StringBuilder response = new StringBuilder();
-            String responseLine;
-            while ((responseLine = br.readLine()) != null) {
-                response.append(responseLine.trim());
-            }
-            br.close();
-            
-            // 응답 파싱
-            JSONObject jsonResponse = new JSONObject(response.toString());
-            JSONArray candidates = jsonResponse.getJSONArray("candidates");
-            
-            if (candidates.length() == 0) {
-                throw new Exception("OCR 응답에 결과가 없습니다.");
-            }
-            
-            JSONObject candidate = candidates.getJSONObject(0);
-            JSONObject contentObj = candidate.getJSONObject("content");
-            JSONArray partsArray = contentObj.getJSONArray("parts");
-            String extractedText = partsArray.getJSONObject(0).getString("text");
-            
-            return extractedText.trim();
-            
-        } finally {
-            conn.disconnect();
+        // 이미지는 base64 로 바꾸면서 바로 연결에 씀 (본문 전체를 메모리에 만들지 않음)
+        String response = post(API_URL, new InlineImageBody(prompt, image), "ocr", "ocr_http");
+        String extractedText = extractText(response);
+        // 빈 결과는 남기지 않음 (다시 시도하면 읽힐 수 있음)
+        if (fingerprint != null && !extractedText.isEmpty()) {
+            ocrCache.put(fingerprint, extractedText);
         }
+        return extractedText;
+    }
+    
+    // 종료 시 캐시 적중으로 바뀐 사용 시각 내려쓰기
+    public void flushOcrCache() {
+        ocrCache.flush();
+    }
+
+    // 모든 데이터 삭제 시 OCR 캐시도 (스크린샷 대화 내용)
+    public void clearOcrCache() {
+        ocrCache.clear();
     }
 
     public static boolean isApiKeySet() {
-        return !API_KEY.equals("YOUR_GEMINI_API_KEY_HERE") && 
-               API_KEY != null && 
-               !API_KEY.trim().isEmpty();
+        String key = apiKey();
+        return !key.equals("YOUR_GEMINI_API_KEY_HERE") && 
+               !key.trim().isEmpty();
+    }
+    
+    // 파일의 API_KEY, 비어 있으면 -Demotion.gemini.apiKey (스텁/CI 용)
+    private static String apiKey() {
+        return API_KEY != null && !API_KEY.isEmpty() ? API_KEY : System.getProperty("emotion.gemini.apiKey", "");
     }
 }
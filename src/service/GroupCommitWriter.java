@@ -0,0 +1,250 @@
+package service;
+
+import metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 그룹 커밋 방식의 줄 단위 파일 기록기
+ *
+ * submit()으로 들어온 줄을 백그라운드 스레드가 windowMillis 동안 또는 maxBatch 개까지 모아
+ * 한 번의 write + 한 번의 fsync(force)로 파일 끝에 붙인다.
+ * 반환된 future는 해당 줄이 디스크에 내려간 뒤 완료된다.
+ * 요청 순서는 그대로 유지된다 (truncate 도 같은 큐를 탄다).
+ */
+public class GroupCommitWriter implements AutoCloseable {
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private static final class Pending {
+        final String line;          // null 이면 flush/truncate 표시
+        final boolean truncate;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Pending(String line, boolean truncate) {
+            this.line = line;
+            this.truncate = truncate;
+        }
+    }
+
+    private static final Pending POISON = new Pending(null, false);
+
+    private final Path file;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread worker;
+    // closed 확인과 큐 넣기를 묶음 (close 가 POISON 을 넣은 뒤에 줄이 들어와 영영 기록되지 않는 일이 없게)
+    private final Object enqueueLock = new Object();
+    private boolean closed = false;
+
+    public GroupCommitWriter(Path file, long windowMillis, int maxBatch) {
+        this.file = file;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMillis));
+        this.maxBatch = Math.max(1, maxBatch);
+        this.worker = new Thread(this::run, "group-commit-" + file.getFileName());
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public CompletableFuture<Void> submit(String line) {
+        return enqueue(new Pending(line, false));
+    }
+
+    // 지금까지 submit 된 모든 줄이 디스크에 내려가면 완료
+    public CompletableFuture<Void> flush() {
+        return enqueue(new Pending(null, false));
+    }
+
+    // 파일을 비운다 (앞서 들어온 줄은 먼저 기록된 뒤 비워짐)
+    public CompletableFuture<Void> truncate() {
+        return enqueue(new Pending(null, true));
+    }
+
+    private CompletableFuture<Void> enqueue(Pending pending) {
+        synchronized (enqueueLock) {
+            if (closed) {
+                pending.future.completeExceptionally(new IllegalStateException("writer closed: " + file));
+                return pending.future;
+            }
+            queue.add(pending);
+        }
+        return pending.future;
+    }
+
+    @Override
+    public void close() {
+        CompletableFuture<Void> last;
+        synchronized (enqueueLock) {
+            if (closed) {
+                return;
+            }
+            last = enqueue(new Pending(null, false));
+            closed = true;
+            queue.add(POISON);
+        }
+        try {
+            last.get(10, TimeUnit.SECONDS);
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (Exception e) {
+            Log.error("❌ 데이터 기록기 종료 실패: " + e.getMessage());
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+
+        try (FileChannel channel = openChannel()) {
+            while (true) {
+                Pending first = queue.take();
+                if (first == POISON) {
+                    return;
+                }
+                batch.add(first);
+
+                // 창(window)이 끝나거나 배치가 찰 때까지 모으기
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch && !first.truncate) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0
+                        ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                        : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    if (next == POISON) {
+                        queue.add(POISON);
+                        break;
+                    }
+                    batch.add(next);
+                    if (next.truncate) {
+                        break;
+                    }
+                }
+
+                commit(channel, batch, sb);
+                batch.clear();
+                sb.setLength(0);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.warn("⚠️ 데이터 기록기가 중단되었습니다: " + file);
+            failRemaining(batch, new IllegalStateException("writer interrupted: " + file, e));
+        } catch (IOException | RuntimeException e) {
+            Log.error("❌ 데이터 기록기 오류: " + e.getMessage(), e);
+            failRemaining(batch, e);
+        }
+    }
+
+    private void commit(FileChannel channel, List<Pending> batch, StringBuilder sb) {
+        long start = System.nanoTime();
+        int records = 0;
+        long before = -1;
+        try {
+            for (Pending p : batch) {
+                if (p.truncate) {
+                    sb.setLength(0);
+                    records = 0;
+                    channel.truncate(0);
+                    channel.position(0);
+                } else if (p.line != null) {
+                    sb.append(p.line).append(LINE_SEPARATOR);
+                    records++;
+                }
+            }
+            before = channel.position();
+            writeAll(channel, sb);
+            channel.force(false);
+
+            for (Pending p : batch) {
+                p.future.complete(null);
+            }
+            Metrics.counter("data_save_batches_total").increment();
+            Metrics.counter("data_save_records_total").add(records);
+        } catch (IOException e) {
+            Metrics.counter("data_save_failures_total").increment();
+            Log.error("❌ 데이터 저장 실패: " + e.getMessage(), e);
+            rollback(channel, before);
+            for (Pending p : batch) {
+                p.future.completeExceptionally(e);
+            }
+        }
+        Metrics.histogram("data_save_seconds").recordSince(start);
+    }
+
+    // 실패한 묶음이 일부만 쓰였으면 묶음 앞 위치로 잘라냄 (다음 묶음이 반쪽 줄 뒤에 붙지 않게)
+    private void rollback(FileChannel channel, long before) {
+        if (before < 0) {
+            return;
+        }
+        try {
+            if (channel.size() > before) {
+                channel.truncate(before);
+            }
+            channel.position(before);
+        } catch (IOException e) {
+            Log.error("❌ 실패한 기록 되돌리기 실패 (" + file + "): " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeAll(FileChannel channel, StringBuilder sb) throws IOException {
+        if (sb.length() == 0) {
+            return;
+        }
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(sb.toString());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        sb.setLength(0);
+    }
+
+    private FileChannel openChannel() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+
+        // 이전 기록이 줄 중간에서 끊겼다면 새 줄부터 이어 쓰기
+        if (channel.size() > 0) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            if (last.get(0) != '\n') {
+                channel.write(StandardCharsets.UTF_8.encode(LINE_SEPARATOR));
+            }
+        }
+        return channel;
+    }
+
+    // 기록 스레드가 끝날 때: 모으던 묶음과 큐에 남은 요청을 모두 실패로 완료
+    private void failRemaining(List<Pending> batch, Throwable cause) {
+        for (Pending p : batch) {
+            p.future.completeExceptionally(cause);
+        }
+        // 닫은 뒤에는 더 들어오지 않으므로 남은 것만 비우면 됨
+        synchronized (enqueueLock) {
+            closed = true;
+        }
+        Pending p;
+        while ((p = queue.poll()) != null) {
+            if (p != POISON) {
+                p.future.completeExceptionally(cause);
+            }
+        }
+    }
+}
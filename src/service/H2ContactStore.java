@@ -0,0 +1,120 @@
+package service;
+
+import metrics.Metrics;
+import model.Contact;
+import model.MBTI;
+
+import java.nio.file.Path;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 내장 H2 DB 연락처 저장소 (contacts 테이블, 이름이 기본 키)
+ * 변경은 해당 행 1개만 MERGE 한다. 접두사 검색은 기본 키 인덱스의 LIKE 'prefix%'.
+ */
+public class H2ContactStore implements ContactStore {
+
+    private final Connection connection;
+
+    public H2ContactStore(Path path) throws SQLException {
+        this.connection = H2Database.connect(path);
+    }
+
+    @Override
+    public synchronized List<Contact> loadAll() {
+        List<Contact> contacts = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                 "SELECT name, mbti, notes, profile, created_at, updated_at, summary, summary_count"
+                     + " FROM contacts ORDER BY name")) {
+            while (rs.next()) {
+                Contact contact = new Contact(rs.getString(1), MBTI.valueOf(rs.getString(2)), rs.getString(3));
+                contact.setAutoGeneratedProfile(rs.getString(4));
+                contact.setConversationSummary(rs.getString(7), rs.getInt(8));
+                contact.setCreatedAt(rs.getObject(5, LocalDateTime.class));
+                contact.setUpdatedAt(rs.getObject(6, LocalDateTime.class));
+                contacts.add(contact);
+            }
+        } catch (SQLException e) {
+            fail("로드", e);
+        }
+        return contacts;
+    }
+
+    @Override
+    public synchronized void put(Contact contact) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "MERGE INTO contacts (name, mbti, notes, profile, created_at, updated_at, summary, summary_count)"
+                    + " KEY (name) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            statement.setString(1, contact.getName());
+            statement.setString(2, contact.getMbti().name());
+            statement.setString(3, contact.getNotes());
+            statement.setString(4, contact.getAutoGeneratedProfile());
+            statement.setObject(5, contact.getCreatedAt());
+            statement.setObject(6, contact.getUpdatedAt());
+            statement.setString(7, contact.getConversationSummary());
+            statement.setInt(8, contact.getSummaryMessageCount());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            fail("저장", e);
+        }
+    }
+
+    @Override
+    public synchronized void remove(String name) {
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM contacts WHERE name = ?")) {
+            statement.setString(1, name);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            fail("삭제", e);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM contacts");
+        } catch (SQLException e) {
+            fail("초기화", e);
+        }
+    }
+
+    @Override
+    public synchronized List<String> namesWithPrefix(String prefix, int limit) {
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT name FROM contacts WHERE name LIKE ? ESCAPE '\\' ORDER BY name LIMIT ?")) {
+            statement.setString(1, H2Database.likePrefix(prefix));
+            statement.setInt(2, limit);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            fail("검색", e);
+        }
+        return names;
+    }
+
+    @Override
+    public void flush() {
+        // 자동 커밋이라 따로 할 일 없음
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            fail("닫기", e);
+        }
+    }
+
+    private void fail(String action, SQLException e) {
+        Metrics.counter("contacts_h2_failures_total").increment();
+        Log.error("❌ 연락처 " + action + " 실패 (H2): " + e.getMessage(), e);
+    }
+}
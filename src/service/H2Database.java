@@ -0,0 +1,69 @@
+package service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 내장 H2 파일 DB 연결과 스키마
+ *
+ * path 는 확장자 없이 지정 (data/emotion → data/emotion.mv.db).
+ * 같은 JVM 안에서는 저장소마다 연결을 따로 열어도 같은 DB 를 공유한다.
+ */
+public final class H2Database {
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS messages ("
+            + " id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+            + " ts TIMESTAMP(9) NOT NULL,"
+            + " emotion VARCHAR(16) NOT NULL,"
+            + " intensity DOUBLE PRECISION NOT NULL,"
+            + " content VARCHAR NOT NULL,"
+            + " response VARCHAR NOT NULL,"
+            + " contact VARCHAR(255) NOT NULL)",
+        "CREATE INDEX IF NOT EXISTS idx_messages_contact_ts ON messages(contact, ts)",
+        "CREATE INDEX IF NOT EXISTS idx_messages_emotion_ts ON messages(emotion, ts)",
+        "CREATE INDEX IF NOT EXISTS idx_messages_ts ON messages(ts)",
+        "CREATE TABLE IF NOT EXISTS contacts ("
+            + " name VARCHAR(255) PRIMARY KEY,"
+            + " mbti VARCHAR(16) NOT NULL,"
+            + " notes VARCHAR NOT NULL,"
+            + " profile VARCHAR,"
+            + " created_at TIMESTAMP(9) NOT NULL,"
+            + " updated_at TIMESTAMP(9) NOT NULL)",
+        // 대화 요약 (예전 DB 에는 없던 열)
+        "ALTER TABLE contacts ADD COLUMN IF NOT EXISTS summary VARCHAR",
+        "ALTER TABLE contacts ADD COLUMN IF NOT EXISTS summary_count INT DEFAULT 0 NOT NULL"
+    };
+
+    private H2Database() {
+    }
+
+    public static Connection connect(Path path) throws SQLException {
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+        } catch (IOException e) {
+            throw new SQLException("DB 폴더를 만들 수 없습니다: " + path, e);
+        }
+
+        Connection connection = DriverManager.getConnection("jdbc:h2:file:" + path.toAbsolutePath(), "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            for (String ddl : SCHEMA) {
+                statement.execute(ddl);
+            }
+        }
+        return connection;
+    }
+
+    // LIKE 접두사 검색용 이스케이프 ('\' 가 ESCAPE 문자)
+    static String likePrefix(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
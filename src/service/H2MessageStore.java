@@ -0,0 +1,522 @@
+package service;
+
+import metrics.Metrics;
+import model.Emotion;
+import model.Message;
+
+import java.nio.file.Path;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 내장 H2 DB 저장소
+ *
+ * - 쓰기: 기록 스레드 1개가 쌓인 요청을 한 트랜잭션(배치 INSERT)으로 커밋 → 그룹 커밋과 같은 효과
+ * - 읽기: 조회/집계를 SQL 로 내려보냄 (contact, ts) / (emotion, ts) / (ts) 인덱스 사용
+ * - 조회 전에 아직 커밋 안 된 쓰기가 있으면 끝날 때까지 기다린다 (방금 저장한 것이 바로 보이도록)
+ * - future 는 커밋 후 완료. H2 는 커밋마다 fsync 하지 않으므로 프로세스가 죽어도 남지만
+ *   OS 가 죽으면 마지막 몇 건은 잃을 수 있다 (텍스트 저장소는 fsync 까지 기다림)
+ */
+public class H2MessageStore implements MessageStore {
+
+    private static final String COLUMNS = "ts, emotion, intensity, content, response, contact";
+
+    private static final class Pending {
+        final Message message;      // null 이면 flush/clear 표시
+        final boolean clear;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Pending(Message message, boolean clear) {
+            this.message = message;
+            this.clear = clear;
+        }
+    }
+
+    private final Path path;
+    private final ContactDictionary dictionary;
+    private final Connection writeConnection;
+    private final Connection readConnection;
+    private final int maxBatch;
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final ExecutorService worker;
+
+    // 저장 순서 번호(0부터) → 행 id. findByPositions 를 처음 부를 때 읽는다
+    // 커밋이 실패한 메시지 자리는 NO_ROW 로 채움 (DataManager 색인은 이미 그 번호를 썼으므로 뒤 번호가 밀리지 않게)
+    private static final long NO_ROW = -1L;
+    private final Object positionLock = new Object();
+    private long[] positionIds;
+    private int positionCount;
+    private long lastPositionId = NO_ROW;
+
+    public H2MessageStore(Path path, int maxBatch) throws SQLException {
+        this(path, maxBatch, new ContactDictionary());
+    }
+
+    public H2MessageStore(Path path, int maxBatch, ContactDictionary dictionary) throws SQLException {
+        this.path = path;
+        this.dictionary = dictionary;
+        this.writeConnection = H2Database.connect(path);
+        this.writeConnection.setAutoCommit(false);
+        this.readConnection = H2Database.connect(path);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "h2-writer-" + path.getFileName());
+            t.setDaemon(true);
+            return t;
+        });
+        Log.info("🗄️ H2 저장소 열기: " + path.toAbsolutePath() + " (메시지 " + count() + "개)");
+    }
+
+    // ===== 쓰기 =====
+
+    @Override
+    public CompletableFuture<Void> append(Message message) {
+        return enqueue(new Pending(message, false));
+    }
+
+    @Override
+    public CompletableFuture<Void> appendAll(Collection<Message> messages) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            futures.add(enqueue(new Pending(message, false)));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    @Override
+    public CompletableFuture<Void> flush() {
+        return enqueue(new Pending(null, false));
+    }
+
+    @Override
+    public CompletableFuture<Void> clear() {
+        return enqueue(new Pending(null, true));
+    }
+
+    private CompletableFuture<Void> enqueue(Pending pending) {
+        if (worker.isShutdown()) {
+            pending.future.completeExceptionally(new IllegalStateException("store closed"));
+            return pending.future;
+        }
+        submitted.incrementAndGet();
+        queue.add(pending);
+        if (drainScheduled.compareAndSet(false, true)) {
+            worker.execute(this::drain);
+        }
+        return pending.future;
+    }
+
+    private void drain() {
+        // 먼저 내려둬야 drain 도중 들어온 요청이 다시 예약된다
+        drainScheduled.set(false);
+        List<Pending> batch = new ArrayList<>();
+        Pending next;
+        while ((next = queue.poll()) != null) {
+            batch.add(next);
+            if (next.clear || batch.size() >= maxBatch) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+        commit(batch);
+    }
+
+    private void commit(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int records = 0;
+        List<Long> insertedIds = new ArrayList<>();
+        boolean cleared = false;
+        try (PreparedStatement insert = writeConnection.prepareStatement(
+                "INSERT INTO messages (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)", new String[] {"ID"})) {
+            for (Pending pending : batch) {
+                if (pending.clear) {
+                    // 앞선 INSERT 를 먼저 실행한 뒤 비움 (요청 순서 유지)
+                    insert.executeBatch();
+                    try (Statement statement = writeConnection.createStatement()) {
+                        statement.execute("DELETE FROM messages");
+                    }
+                    insertedIds.clear();
+                    cleared = true;
+                } else if (pending.message != null) {
+                    bind(insert, pending.message);
+                    insert.addBatch();
+                    records++;
+                }
+            }
+            insert.executeBatch();
+            readGeneratedIds(insert, insertedIds);
+            writeConnection.commit();
+            recordPositions(insertedIds, cleared);
+
+            Metrics.histogram("data_save_seconds").recordSince(start);
+            Metrics.counter("data_save_batches_total").increment();
+            Metrics.counter("data_save_records_total").add(records);
+            for (Pending pending : batch) {
+                pending.future.complete(null);
+            }
+        } catch (SQLException | RuntimeException e) {
+            rollbackQuietly();
+            recordFailedPositions(batch);
+            Metrics.counter("data_save_failures_total").increment();
+            Log.error("❌ H2 저장 실패: " + e.getMessage(), e);
+            for (Pending pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+        } finally {
+            applied.addAndGet(batch.size());
+        }
+    }
+
+    private static void readGeneratedIds(PreparedStatement insert, List<Long> into) throws SQLException {
+        try (ResultSet keys = insert.getGeneratedKeys()) {
+            while (keys.next()) {
+                into.add(keys.getLong(1));
+            }
+        }
+    }
+
+    // 저장 순서 번호 → id (읽어둔 뒤에만 이어 붙임, 처음 읽을 때 이미 들어간 id 는 건너뜀)
+    private void recordPositions(List<Long> ids, boolean cleared) {
+        synchronized (positionLock) {
+            if (positionIds == null) {
+                return;
+            }
+            if (cleared) {
+                positionCount = 0;
+            }
+            for (long id : ids) {
+                if (positionCount > 0 && id <= lastPositionId) {
+                    continue;
+                }
+                addPosition(id);
+                lastPositionId = id;
+            }
+        }
+    }
+
+    // 되돌린 묶음의 메시지 수만큼 빈 자리 (비우기가 있었으면 색인도 비워졌으므로 그 뒤 메시지만)
+    // 아직 읽기 전이면 지금 읽는다: 나중에 읽으면 커밋된 행만 보여 빈 자리를 끼울 곳을 모름
+    private void recordFailedPositions(List<Pending> batch) {
+        int failed = 0;
+        boolean cleared = false;
+        for (Pending pending : batch) {
+            if (pending.clear) {
+                failed = 0;
+                cleared = true;
+            } else if (pending.message != null) {
+                failed++;
+            }
+        }
+        try {
+            synchronized (positionLock) {
+                loadPositions();
+                if (cleared) {
+                    positionCount = 0;
+                }
+                for (int i = 0; i < failed; i++) {
+                    addPosition(NO_ROW);
+                }
+            }
+        } catch (RuntimeException e) {
+            Log.warn("⚠️ 저장 순서 번호를 맞추지 못했습니다: " + e.getMessage());
+        }
+    }
+
+    private void addPosition(long id) {
+        if (positionCount == positionIds.length) {
+            positionIds = Arrays.copyOf(positionIds, Math.max(16, positionCount * 2));
+        }
+        positionIds[positionCount++] = id;
+    }
+
+    private void rollbackQuietly() {
+        try {
+            writeConnection.rollback();
+        } catch (SQLException ignored) {
+            // 이미 실패를 기록했으므로 무시
+        }
+    }
+
+    private static void bind(PreparedStatement statement, Message message) throws SQLException {
+        statement.setObject(1, message.getTimestamp());
+        statement.setString(2, message.getEmotion().name());
+        statement.setDouble(3, message.getIntensity());
+        statement.setString(4, message.getContent());
+        statement.setString(5, message.getRecommendedResponse());
+        statement.setString(6, message.getContactName());
+    }
+
+    // 제출됐지만 아직 커밋 안 된 쓰기가 있으면 대기
+    private void awaitWrites() {
+        if (applied.get() < submitted.get()) {
+            flush().join();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush().join();
+        worker.shutdown();
+        try {
+            worker.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (readConnection) {
+            closeQuietly(readConnection);
+        }
+        closeQuietly(writeConnection);
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            Log.warn("⚠️ H2 연결 닫기 실패: " + e.getMessage());
+        }
+    }
+
+    // ===== 조회 =====
+
+    @FunctionalInterface
+    private interface Binder {
+        void bind(PreparedStatement statement) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface RowReader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
+
+    private <T> T query(String sql, Binder binder, RowReader<T> reader) {
+        awaitWrites();
+        long start = System.nanoTime();
+        synchronized (readConnection) {
+            try (PreparedStatement statement = readConnection.prepareStatement(sql)) {
+                binder.bind(statement);
+                try (ResultSet rs = statement.executeQuery()) {
+                    return reader.read(rs);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("H2 조회 실패: " + e.getMessage(), e);
+            } finally {
+                Metrics.histogram("h2_query_seconds").recordSince(start);
+            }
+        }
+    }
+
+    private List<Message> queryMessages(String where, Binder binder) {
+        return query("SELECT " + COLUMNS + " FROM messages " + where, binder, rs -> {
+            List<Message> messages = new ArrayList<>();
+            while (rs.next()) {
+                messages.add(toMessage(rs));
+            }
+            return messages;
+        });
+    }
+
+    private Message toMessage(ResultSet rs) throws SQLException {
+        // 같은 이름은 사전의 String 하나를 같이 씀
+        int contactId = dictionary.idOf(rs.getString(6));
+        Message message = new Message(
+            rs.getString(4),
+            Emotion.valueOf(rs.getString(2)),
+            rs.getDouble(3),
+            rs.getString(5),
+            dictionary.nameOf(contactId));
+        message.setTimestamp(rs.getObject(1, LocalDateTime.class));
+        message.setContactId(contactId);
+        return message;
+    }
+
+    @Override
+    public List<Message> findAll() {
+        return queryMessages("ORDER BY id", s -> { });
+    }
+
+    @Override
+    public List<Message> findBetween(LocalDateTime from, LocalDateTime to) {
+        return queryMessages("WHERE ts >= ? AND ts < ? ORDER BY id", s -> {
+            s.setObject(1, from);
+            s.setObject(2, to);
+        });
+    }
+
+    @Override
+    public List<Message> findByEmotion(Emotion emotion) {
+        return queryMessages("WHERE emotion = ? ORDER BY id", s -> s.setString(1, emotion.name()));
+    }
+
+    @Override
+    public List<Message> findByContact(String contactName, int limit) {
+        if (limit <= 0) {
+            return queryMessages("WHERE contact = ? ORDER BY id", s -> s.setString(1, contactName));
+        }
+        List<Message> recent = queryMessages("WHERE contact = ? ORDER BY id DESC LIMIT ?", s -> {
+            s.setString(1, contactName);
+            s.setInt(2, limit);
+        });
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    @Override
+    public List<Message> findRecent(int count) {
+        return queryMessages("ORDER BY id DESC LIMIT ?", s -> s.setInt(1, count));
+    }
+
+    @Override
+    public List<Message> findByPositions(int[] positions) {
+        awaitWrites();
+        boolean loaded;
+        synchronized (positionLock) {
+            loaded = positionIds != null;
+        }
+        if (!loaded) {
+            // 기록 스레드에서 읽어야 그 사이 커밋된 id 를 놓치지 않는다
+            CompletableFuture.runAsync(this::loadPositions, worker).join();
+        }
+        Long[] ids = new Long[positions.length];
+        synchronized (positionLock) {
+            for (int i = 0; i < positions.length; i++) {
+                ids[i] = positions[i] >= 0 && positions[i] < positionCount ? positionIds[positions[i]] : NO_ROW;
+            }
+        }
+        Map<Long, Message> byId = query("SELECT " + COLUMNS + ", id FROM messages WHERE id = ANY(?)",
+            s -> s.setObject(1, ids),
+            rs -> {
+                Map<Long, Message> found = new HashMap<>();
+                while (rs.next()) {
+                    found.put(rs.getLong(7), toMessage(rs));
+                }
+                return found;
+            });
+        List<Message> result = new ArrayList<>(positions.length);
+        for (Long id : ids) {
+            Message message = byId.get(id);
+            if (message != null) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+
+    // 기록 스레드에서만 호출 (쓰기 연결 사용)
+    private void loadPositions() {
+        synchronized (positionLock) {
+            if (positionIds != null) {
+                return;
+            }
+            long[] list = new long[1024];
+            int count = 0;
+            try (Statement statement = writeConnection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT id FROM messages ORDER BY id")) {
+                while (rs.next()) {
+                    if (count == list.length) {
+                        list = Arrays.copyOf(list, count * 2);
+                    }
+                    list[count++] = rs.getLong(1);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("H2 조회 실패: " + e.getMessage(), e);
+            }
+            positionIds = list;
+            positionCount = count;
+            lastPositionId = count > 0 ? list[count - 1] : NO_ROW;
+        }
+    }
+
+    @Override
+    public Path sidecarFile(String suffix) {
+        return path.resolveSibling(path.getFileName() + suffix);
+    }
+
+    @Override
+    public ContactDictionary contactDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public Set<String> contactNames() {
+        return query("SELECT DISTINCT contact FROM messages", s -> { }, rs -> {
+            Set<String> names = new HashSet<>();
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+            return names;
+        });
+    }
+
+
+    @Override
+    public Map<Emotion, Integer> countByEmotion() {
+        return query("SELECT emotion, COUNT(*) FROM messages GROUP BY emotion", s -> { }, rs -> {
+            Map<Emotion, Integer> distribution = new EnumMap<>(Emotion.class);
+            while (rs.next()) {
+                distribution.put(Emotion.valueOf(rs.getString(1)), rs.getInt(2));
+            }
+            return distribution;
+        });
+    }
+
+    @Override
+    public double averageIntensity() {
+        return query("SELECT AVG(intensity) FROM messages", s -> { }, rs -> rs.next() ? rs.getDouble(1) : 0.0);
+    }
+
+    @Override
+    public void scan(RowVisitor visitor) {
+        query("SELECT ts, emotion, intensity, contact FROM messages ORDER BY id", s -> { }, rs -> {
+            while (rs.next()) {
+                visitor.visit(MessageLog.toNanos(rs.getObject(1, LocalDateTime.class)),
+                    Emotion.valueOf(rs.getString(2)).ordinal(), rs.getDouble(3), dictionary.idOf(rs.getString(4)));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void collectStats(EmotionStats total, ContactStatsTable byContact) {
+        // 백분위까지 내야 하므로 행을 받아 누적 (Message 는 만들지 않음)
+        query("SELECT emotion, intensity, contact FROM messages", s -> { }, rs -> {
+            while (rs.next()) {
+                int emotion = Emotion.valueOf(rs.getString(1)).ordinal();
+                double intensity = rs.getDouble(2);
+                total.accept(emotion, intensity);
+                if (byContact != null) {
+                    byContact.get(dictionary.idOf(rs.getString(3))).accept(emotion, intensity);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public int count() {
+        return query("SELECT COUNT(*) FROM messages", s -> { }, rs -> rs.next() ? rs.getInt(1) : 0);
+    }
+
+    @Override
+    public int countBetween(LocalDateTime from, LocalDateTime to) {
+        return query("SELECT COUNT(*) FROM messages WHERE ts >= ? AND ts < ?",
+            s -> {
+                s.setObject(1, from);
+                s.setObject(2, to);
+            },
+            rs -> rs.next() ? rs.getInt(1) : 0);
+    }
+}
@@ -0,0 +1,28 @@
+package service;
+
+import model.Message;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 기록/통계 탭이 그릴 때 쓰는 조회
+ *
+ * 구현: DataManager (전체 기록), StartupSnapshot (전체 기록을 다 불러오기 전, 시작 직후의 요약본)
+ */
+public interface HistoryOverview {
+    int getTotalMessageCount();
+
+    int getTodayMessageCount();
+
+    // 전체 통계를 total 에, 상대방별 통계를 byContact 에 더한다 (byContact 는 null 가능)
+    void collectStats(EmotionStats total, ContactStatsTable byContact);
+
+    // byContact 의 id ↔ 이름
+    ContactDictionary getContactDictionary();
+
+    // 최신순
+    List<Message> getRecentMessages(int count);
+
+    Set<String> getAllContactNames();
+}
@@ -0,0 +1,375 @@
+package service;
+
+import metrics.Metrics;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Iterator;
+
+/**
+ * OCR 업로드 전에 이미지를 줄인다 (ImageIO)
+ *
+ * - 실제 형식은 파일 앞 바이트로 판단 (확장자 무시): PNG / JPEG / GIF / BMP / WEBP / HEIC
+ * - ImageIO 로 읽을 수 있는 형식: 큰 이미지는 읽을 때부터 솎아 읽기 → 가장자리 단색 여백 자르기 → 회색조
+ *   → 가로 MAX_WIDTH 로 축소 → PNG/JPEG 중 작은 쪽으로 다시 저장
+ * - 못 읽는 형식(WEBP/HEIC)이나 결과가 원본보다 크면 원본 그대로 보낸다 (MIME 만 바로잡아서)
+ *   단, Gemini 가 받지 않는 GIF/BMP 는 항상 다시 저장
+ * - 말풍선 구분은 색보다 좌우 위치가 기준이라 회색조로 보내도 된다 (-Demotion.ocr.grayscale=false 로 끔)
+ * - 읽은 김에 OCR 캐시 지문(OcrCache.Fingerprint)도 만든다 (줄이기를 꺼도 캐시가 켜져 있으면 읽음)
+ *
+ * -Demotion.ocr.preprocess=on|off, -Demotion.ocr.maxWidth=768, -Demotion.ocr.grayscale=true
+ */
+public final class ImagePreprocessor {
+
+    public static final boolean ENABLED = !"off".equalsIgnoreCase(System.getProperty("emotion.ocr.preprocess", "on"));
+    public static final int MAX_WIDTH = Integer.getInteger("emotion.ocr.maxWidth", 768);
+    public static final boolean GRAYSCALE = Boolean.parseBoolean(System.getProperty("emotion.ocr.grayscale", "true"));
+
+    // 이 정도 밝기 차이까지는 같은 여백 색으로 봄 (JPEG 잡음)
+    private static final int BORDER_TOLERANCE = 8;
+    // 여백을 잘라도 이보다는 작아지지 않게
+    private static final int MIN_SIDE = 32;
+    private static final float JPEG_QUALITY = 0.85f;
+
+    /**
+     * 보낼 이미지 (처리했으면 data, 원본 그대로면 source 파일)
+     */
+    public static final class Prepared {
+        private final String mimeType;
+        private final byte[] data;
+        private final File source;
+        private final long originalBytes;
+        private final OcrCache.Fingerprint fingerprint;
+
+        private Prepared(String mimeType, byte[] data, File source, long originalBytes,
+                         OcrCache.Fingerprint fingerprint) {
+            this.mimeType = mimeType;
+            this.data = data;
+            this.source = source;
+            this.originalBytes = originalBytes;
+            this.fingerprint = fingerprint;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        // 보낼 바이트 (원본 그대로면 파일을 통째로 읽음, 업로드에는 openStream)
+        public byte[] bytes() throws IOException {
+            return data != null ? data : Files.readAllBytes(source.toPath());
+        }
+
+        public InputStream openStream() throws IOException {
+            return data != null ? new ByteArrayInputStream(data) : Files.newInputStream(source.toPath());
+        }
+
+        public long size() {
+            return data != null ? data.length : originalBytes;
+        }
+
+        public long getOriginalBytes() {
+            return originalBytes;
+        }
+
+        public boolean isProcessed() {
+            return data != null;
+        }
+
+        // ImageIO 로 못 읽은 형식이거나 캐시가 꺼져 있으면 null
+        public OcrCache.Fingerprint getFingerprint() {
+            return fingerprint;
+        }
+    }
+
+    private ImagePreprocessor() {
+    }
+
+    public static Prepared prepare(File file) throws IOException {
+        long start = System.nanoTime();
+        long originalBytes = file.length();
+        String mimeType = detectMimeType(file);
+        Prepared result = null;
+        try {
+            if (ENABLED || OcrCache.ENABLED || !isSupportedByGemini(mimeType)) {
+                result = process(file, mimeType, originalBytes);
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.warn("⚠️ 이미지 줄이기 실패, 원본을 보냅니다: " + e.getMessage());
+        }
+        if (result == null) {
+            result = new Prepared(mimeType, null, file, originalBytes, null);
+        }
+        Metrics.counter("ocr_preprocess_total", "result", result.isProcessed() ? "processed" : "original").increment();
+        Metrics.counter("ocr_image_bytes_total", "stage", "original").add(originalBytes);
+        Metrics.counter("ocr_image_bytes_total", "stage", "upload").add(result.size());
+        Metrics.histogram("ocr_preprocess_seconds").recordSince(start);
+        return result;
+    }
+
+    // 처리 결과 (원본을 보내는 게 나으면 지문만 붙인 원본), 읽을 수 없으면 null
+    private static Prepared process(File file, String mimeType, long originalBytes) throws IOException {
+        BufferedImage image = read(file);
+        if (image == null) {
+            return null;
+        }
+        int sourceWidth = image.getWidth();
+        int sourceHeight = image.getHeight();
+
+        BufferedImage gray = toGray(image);
+        int[] box = contentBox(gray);
+        OcrCache.Fingerprint fingerprint = OcrCache.ENABLED ? OcrCache.fingerprint(gray, box) : null;
+        Prepared original = new Prepared(mimeType, null, file, originalBytes, fingerprint);
+        if (!ENABLED && isSupportedByGemini(mimeType)) {
+            return original;
+        }
+        BufferedImage working = GRAYSCALE ? gray : toRgb(image);
+        if (box[0] > 0 || box[1] > 0 || box[2] < working.getWidth() || box[3] < working.getHeight()) {
+            working = working.getSubimage(box[0], box[1], box[2] - box[0], box[3] - box[1]);
+        }
+        working = scaleToWidth(working, MAX_WIDTH);
+
+        byte[] png = encode(working, "png");
+        byte[] jpeg = encode(working, "jpeg");
+        byte[] best = jpeg != null && jpeg.length < png.length ? jpeg : png;
+        String bestType = best == jpeg ? "image/jpeg" : "image/png";
+        if (best.length >= originalBytes && isSupportedByGemini(mimeType)) {
+            return original;
+        }
+        int width = working.getWidth();
+        int height = working.getHeight();
+        Log.info(() -> "🖼️ 이미지 줄임: " + formatBytes(originalBytes) + " → " + formatBytes(best.length)
+            + " (" + sourceWidth + "x" + sourceHeight + " → " + width + "x" + height + ", " + bestType + ")");
+        return new Prepared(bestType, best, file, originalBytes, fingerprint);
+    }
+
+    // 가로가 MAX_WIDTH 의 2배를 넘으면 정수배로 솎아 읽음 (나머지는 scaleToWidth 가 부드럽게 줄임)
+    private static BufferedImage read(File file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = reader.getWidth(0) / (MAX_WIDTH * 2);
+                if (step >= 2) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage toGray(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = gray.createGraphics();
+        try {
+            // 투명 부분은 흰 배경으로
+            g.setColor(java.awt.Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return gray;
+    }
+
+    // JPEG 는 알파를 못 담으므로 RGB 로
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(java.awt.Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    /**
+     * 가장자리의 한 가지 색 줄(행/열)을 뺀 내용 영역 {left, top, right, bottom} (right/bottom 은 끝 다음)
+     * 각 변은 그 변 첫 픽셀의 밝기와 BORDER_TOLERANCE 안이면 여백으로 본다
+     */
+    static int[] contentBox(BufferedImage gray) {
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+        byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        int stride = width;
+
+        int top = 0;
+        while (height - top > MIN_SIDE && uniformRow(pixels, stride, top, 0, width)) {
+            top++;
+        }
+        int bottom = height;
+        while (bottom - top > MIN_SIDE && uniformRow(pixels, stride, bottom - 1, 0, width)) {
+            bottom--;
+        }
+        int left = 0;
+        while (width - left > MIN_SIDE && uniformColumn(pixels, stride, left, top, bottom)) {
+            left++;
+        }
+        int right = width;
+        while (right - left > MIN_SIDE && uniformColumn(pixels, stride, right - 1, top, bottom)) {
+            right--;
+        }
+        return new int[] {left, top, right, bottom};
+    }
+
+    private static boolean uniformRow(byte[] pixels, int stride, int y, int from, int to) {
+        int offset = y * stride;
+        int reference = pixels[offset + from] & 0xFF;
+        for (int x = from + 1; x < to; x++) {
+            if (Math.abs((pixels[offset + x] & 0xFF) - reference) > BORDER_TOLERANCE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean uniformColumn(byte[] pixels, int stride, int x, int from, int to) {
+        int reference = pixels[from * stride + x] & 0xFF;
+        for (int y = from + 1; y < to; y++) {
+            if (Math.abs((pixels[y * stride + x] & 0xFF) - reference) > BORDER_TOLERANCE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 반씩 여러 번 줄인 뒤 마지막에 맞춤 (한 번에 크게 줄이면 글자가 깨짐)
+    private static BufferedImage scaleToWidth(BufferedImage image, int targetWidth) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (width <= targetWidth) {
+            return image;
+        }
+        int targetHeight = Math.max(1, (int) Math.round((double) height * targetWidth / width));
+        BufferedImage current = image;
+        while (width > targetWidth) {
+            width = Math.max(targetWidth, width / 2);
+            height = width == targetWidth ? targetHeight : Math.max(1, height / 2);
+            BufferedImage next = new BufferedImage(width, height, image.getType());
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        if (!"jpeg".equals(format)) {
+            ImageIO.write(image, format, out);
+            return out.toByteArray();
+        }
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            return null;
+        }
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 파일 앞 바이트로 본 MIME 형식 (모르면 image/png)
+     */
+    public static String detectMimeType(File file) throws IOException {
+        byte[] head = new byte[16];
+        int read;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            read = in.readNBytes(head, 0, head.length);
+        }
+        if (read >= 8 && (head[0] & 0xFF) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+            return "image/png";
+        }
+        if (read >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (read >= 4 && head[0] == 'G' && head[1] == 'I' && head[2] == 'F' && head[3] == '8') {
+            return "image/gif";
+        }
+        if (read >= 2 && head[0] == 'B' && head[1] == 'M') {
+            return "image/bmp";
+        }
+        if (read >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return "image/webp";
+        }
+        if (read >= 12 && head[4] == 'f' && head[5] == 't' && head[6] == 'y' && head[7] == 'p') {
+            String brand = new String(head, 8, 4, java.nio.charset.StandardCharsets.US_ASCII);
+            if (brand.startsWith("hei") || brand.startsWith("hev")) {
+                return "image/heic";
+            }
+            if (brand.equals("mif1") || brand.equals("msf1")) {
+                return "image/heif";
+            }
+        }
+        return "image/png";
+    }
+
+    // Gemini inline_data 가 받는 형식
+    private static boolean isSupportedByGemini(String mimeType) {
+        switch (mimeType) {
+            case "image/png":
+            case "image/jpeg":
+            case "image/webp":
+            case "image/heic":
+            case "image/heif":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes >= 1024 * 1024) {
+            return String.format("%.1fMB", bytes / (1024.0 * 1024));
+        }
+        return (bytes + 1023) / 1024 + "KB";
+    }
+}
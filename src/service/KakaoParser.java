@@ -1,5 +1,6 @@
 package service;
 
+import metrics.Metrics;
 import model.Message;
 import model.MBTI;
 import java.io.*;
@@ -10,6 +11,8 @@ import java.util.*;
 
 public class KakaoParser {
     
+    private static final DateTimeFormatter CONTEXT_TIME_FORMAT = DateTimeFormatter.ofPattern("MM-dd HH:mm");
+    
     // 카카오톡 CSV 파싱 결과
     public static class ParseResult {
         private List<KakaoMessage> messages;
@@ -51,7 +54,7 @@ public class KakaoParser {
         public int getTotalMessageCount() { return messages.size(); }
     }
     
-    // 카카오톡 메시지
+    // 카카오톡 메시지 (스크린샷에서 가져온 것은 시각 없음 = null)
     public static class KakaoMessage {
         private LocalDateTime dateTime;
         private String user;
@@ -69,6 +72,9 @@ public class KakaoParser {
         
         @Override
         public String toString() {
+            if (dateTime == null) {
+                return user + ": " + message;
+            }
             return String.format("[%s] %s: %s", 
                 dateTime.format(DateTimeFormatter.ofPattern("MM-dd HH:mm")),
                 user, message);
@@ -82,6 +88,8 @@ public class KakaoParser {
      */
     public static ParseResult parseCSV(File file) throws Exception {
         ParseResult result = new ParseResult();
+        long start = System.nanoTime();
+        int failures = 0;
         
         try (BufferedReader reader = new BufferedReader(
             new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
@@ -109,19 +117,28 @@ public class KakaoParser {
                         result.addMessage(msg);
                     }
                 } catch (Exception e) {
-                    System.err.println("⚠️ " + lineNumber + "번째 줄 파싱 실패: " + e.getMessage());
+                    failures++;
+                    Log.warn("⚠️ " + lineNumber + "번째 줄 파싱 실패: " + e.getMessage());
                     // 에러 나도 계속 진행
                 }
             }
             
             result.calculateMainUsers();
             
-            System.out.println("✅ CSV 파싱 완료:");
-            System.out.println("  - 총 메시지: " + result.getTotalMessageCount() + "개");
-            System.out.println("  - 사용자: " + result.getUserMessageCount().keySet());
+            // 📊 처리량 기록 (헤더 제외)
+            long elapsed = System.nanoTime() - start;
+            int lines = Math.max(0, lineNumber - 1);
+            Metrics.histogram("kakao_parse_seconds").recordNanos(elapsed);
+            Metrics.counter("kakao_lines_total").add(lines);
+            Metrics.counter("kakao_line_failures_total").add(failures);
+            Metrics.gauge("kakao_last_lines_per_second").set(elapsed > 0 ? lines * 1_000_000_000L / elapsed : 0);
+            
+            Log.info("✅ CSV 파싱 완료:");
+            Log.info("  - 총 메시지: " + result.getTotalMessageCount() + "개");
+            Log.info("  - 사용자: " + result.getUserMessageCount().keySet());
             if (result.getMainUser() != null) {
-                System.out.println("  - 주 사용자 (나): " + result.getMainUser());
-                System.out.println("  - 상대방: " + result.getOtherUser());
+                Log.info("  - 주 사용자 (나): " + result.getMainUser());
+                Log.info("  - 상대방: " + result.getOtherUser());
             }
             
         }
@@ -172,7 +189,7 @@ public class KakaoParser {
     /**
      * CSV 라인 파싱 (큰따옴표 처리)
      */
-    private static List<String> parseCSVLine(String line) {
+    public static List<String> parseCSVLine(String line) {
         List<String> fields = new ArrayList<>();
         StringBuilder current = new StringBuilder();
         boolean inQuotes = false;
@@ -200,7 +217,7 @@ public class KakaoParser {
      * - 2025-04-04 17:48:56
      * - 2025-04-04 오후 5:48:56
      */
-    private static LocalDateTime parseDateTime(String dateStr) {
+    public static LocalDateTime parseDateTime(String dateStr) {
         try {
             // 기본 형식
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
@@ -234,9 +251,8 @@ public class KakaoParser {
      * 모든 메시지를 대화 형식으로 변환 (맥락 분석용)
      * 🆕 나와 상대방을 명확히 구분
      */
-    public static String toConversationContext(List<KakaoMessage> messages, int maxCount, String mainUser, String otherUser) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("최근 대화 내용 (분석 대상은 '상대방'입니다):\n\n");
+    public static PromptContext toConversationContext(List<KakaoMessage> messages, int maxCount, String mainUser, String otherUser) {
+        PromptContext context = new PromptContext("최근 대화 내용 (분석 대상은 '상대방'입니다):\n\n", null);
         
         int count = Math.min(messages.size(), maxCount);
         int startIndex = Math.max(0, messages.size() - count);
@@ -254,12 +270,14 @@ public class KakaoParser {
                 sender = msg.getUser(); // 혹시 다른 사람이 있으면 이름 표시
             }
             
-            sb.append(String.format("[%s] %s: %s\n", 
-                msg.getDateTime().format(DateTimeFormatter.ofPattern("MM-dd HH:mm")),
-                sender,
-                msg.getMessage()));
+            context.beginEntry();
+            if (msg.getDateTime() != null) {
+                context.append('[').append(CONTEXT_TIME_FORMAT.format(msg.getDateTime())).append("] ");
+            }
+            context.append(sender).append(": ").append(msg.getMessage()).append('\n')
+                .endEntry();
         }
         
-        return sb.toString();
+        return context;
     }
 }
@@ -0,0 +1,190 @@
+package service;
+
+import metrics.Metrics;
+import model.Contact;
+import model.MBTI;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LogKvStore 기반 연락처 저장소 (키 = 이름, 값 = 연락처 1개의 바이너리 레코드)
+ *
+ * 긴 자동 프로필을 저장해도 해당 연락처 레코드 1개만 추가된다.
+ * 처음 열 때 KV 파일이 없고 기존 contacts.txt 가 있으면 그대로 옮겨온다.
+ */
+public class KvContactStore implements ContactStore {
+
+    // 2: 대화 요약(summary, 반영 메시지 수) 추가. 1 도 읽는다
+    private static final byte FORMAT_VERSION = 2;
+
+    private final LogKvStore store;
+
+    public KvContactStore(Path file, Path legacyTextFile) throws IOException {
+        boolean fresh = !Files.exists(file);
+        this.store = new LogKvStore(file, "contacts_kv");
+        if (fresh && legacyTextFile != null && Files.exists(legacyTextFile)) {
+            importFrom(legacyTextFile);
+        }
+    }
+
+    private void importFrom(Path legacyTextFile) throws IOException {
+        // 디바운스 저장이 일어나지 않도록 읽기만 하고 바로 닫음
+        List<Contact> legacy;
+        try (TextContactStore text = new TextContactStore(legacyTextFile, Long.MAX_VALUE)) {
+            legacy = text.loadAll();
+        }
+        for (Contact contact : legacy) {
+            store.put(contact.getName(), encode(contact));
+        }
+        Log.info("📦 contacts.txt 에서 연락처 " + legacy.size() + "개를 옮겨왔습니다.");
+    }
+
+    @Override
+    public List<Contact> loadAll() {
+        List<Contact> contacts = new ArrayList<>(store.size());
+        try {
+            store.forEach((name, value) -> {
+                Contact contact = decode(value);
+                if (contact != null) {
+                    contacts.add(contact);
+                }
+            });
+        } catch (IOException e) {
+            Log.error("❌ 연락처 로드 실패: " + e.getMessage(), e);
+        }
+        return contacts;
+    }
+
+    @Override
+    public void put(Contact contact) {
+        try {
+            store.put(contact.getName(), encode(contact));
+        } catch (IOException e) {
+            fail("저장", e);
+        }
+    }
+
+    @Override
+    public void remove(String name) {
+        try {
+            store.delete(name);
+        } catch (IOException e) {
+            fail("삭제", e);
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            store.clear();
+        } catch (IOException e) {
+            fail("초기화", e);
+        }
+    }
+
+    @Override
+    public List<String> namesWithPrefix(String prefix, int limit) {
+        return store.keysWithPrefix(prefix, limit);
+    }
+
+    @Override
+    public void flush() {
+        try {
+            store.flush();
+        } catch (IOException e) {
+            fail("기록", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            store.close();
+        } catch (IOException e) {
+            fail("닫기", e);
+        }
+    }
+
+    private void fail(String action, IOException e) {
+        Metrics.counter("contacts_kv_failures_total").increment();
+        Log.error("❌ 연락처 " + action + " 실패: " + e.getMessage(), e);
+    }
+
+    // 길이 접두 UTF-8 필드라 '|' 나 줄바꿈 이스케이프가 필요 없다
+    static byte[] encode(Contact contact) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(FORMAT_VERSION);
+            writeString(out, contact.getName());
+            writeString(out, contact.getMbti().name());
+            writeString(out, contact.getNotes());
+            writeString(out, contact.getAutoGeneratedProfile());
+            writeString(out, contact.getCreatedAt().toString());
+            writeString(out, contact.getUpdatedAt().toString());
+            writeString(out, contact.getConversationSummary());
+            out.writeInt(contact.getSummaryMessageCount());
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Contact decode(byte[] value) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(value));
+            byte version = in.readByte();
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IOException("알 수 없는 레코드 버전: " + version);
+            }
+            String name = readString(in);
+            MBTI mbti = MBTI.valueOf(readString(in));
+            String notes = readString(in);
+            String profile = readString(in);
+            LocalDateTime createdAt = LocalDateTime.parse(readString(in));
+            LocalDateTime updatedAt = LocalDateTime.parse(readString(in));
+
+            Contact contact = new Contact(name, mbti, notes);
+            contact.setAutoGeneratedProfile(profile);
+            if (version >= 2) {
+                String summary = readString(in);
+                contact.setConversationSummary(summary, in.readInt());
+            }
+            contact.setCreatedAt(createdAt);
+            contact.setUpdatedAt(updatedAt);
+            return contact;
+
+        } catch (Exception e) {
+            Metrics.counter("contacts_kv_decode_failures_total").increment();
+            Log.warn("⚠️ 연락처 레코드 해석 실패: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,79 @@
+package service;
+
+import java.util.function.Supplier;
+
+/**
+ * 레벨 스위치가 있는 간단한 콘솔 로그
+ *
+ * 레벨은 -Demotion.log.level=DEBUG|INFO|WARN|ERROR|OFF 로 지정 (기본 INFO).
+ * 핫패스에서는 Supplier 버전을 써서 꺼진 레벨의 문자열 조립 비용을 없앤다.
+ */
+public final class Log {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static volatile Level level = parseLevel(System.getProperty("emotion.log.level"));
+
+    private Log() {
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    public static void setLevel(Level newLevel) {
+        level = newLevel != null ? newLevel : Level.INFO;
+    }
+
+    public static boolean isEnabled(Level target) {
+        return target.ordinal() >= level.ordinal() && target != Level.OFF;
+    }
+
+    public static void debug(Supplier<String> message) {
+        if (isEnabled(Level.DEBUG)) {
+            System.out.println(message.get());
+        }
+    }
+
+    public static void info(String message) {
+        if (isEnabled(Level.INFO)) {
+            System.out.println(message);
+        }
+    }
+
+    public static void info(Supplier<String> message) {
+        if (isEnabled(Level.INFO)) {
+            System.out.println(message.get());
+        }
+    }
+
+    public static void warn(String message) {
+        if (isEnabled(Level.WARN)) {
+            System.err.println(message);
+        }
+    }
+
+    public static void error(String message) {
+        if (isEnabled(Level.ERROR)) {
+            System.err.println(message);
+        }
+    }
+
+    public static void error(String message, Throwable t) {
+        if (isEnabled(Level.ERROR)) {
+            System.err.println(message);
+            t.printStackTrace();
+        }
+    }
+
+    private static Level parseLevel(String value) {
+        if (value == null) {
+            return Level.INFO;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+}
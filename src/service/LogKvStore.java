@@ -0,0 +1,296 @@
+package service;
+
+import metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * 파일 하나로 동작하는 로그 구조 키-값 저장소 (Bitcask 방식)
+ *
+ * - 모든 변경은 파일 끝에 레코드 1개로 추가된다 (수정 = 새 레코드, 삭제 = 툼스톤)
+ * - 메모리에는 키 → 최신 레코드 위치만 정렬된 상태로 유지 → 접두사 검색 가능
+ * - 레코드마다 CRC32 를 기록하고, 열 때 깨진 꼬리(쓰다 만 레코드)는 잘라낸다
+ * - 죽은 레코드가 살아있는 것보다 많아지면 임시 파일로 압축 후 원자적 교체
+ *
+ * 레코드 형식: [crc:int][keyLen:int][valueLen:int, -1 = 삭제][key][value]
+ */
+public class LogKvStore implements AutoCloseable {
+
+    private static final int HEADER_SIZE = 12;
+    private static final int TOMBSTONE = -1;
+    private static final long COMPACT_MIN_BYTES = 64 * 1024;
+
+    // 최신 레코드 위치
+    private static final class Entry {
+        final long offset;
+        final int keyLength;
+        final int valueLength;
+
+        Entry(long offset, int keyLength, int valueLength) {
+            this.offset = offset;
+            this.keyLength = keyLength;
+            this.valueLength = valueLength;
+        }
+
+        int recordSize() {
+            return HEADER_SIZE + keyLength + valueLength;
+        }
+    }
+
+    private final Path file;
+    private final String metricName;
+    private final ConcurrentSkipListMap<String, Entry> index = new ConcurrentSkipListMap<>();
+    private FileChannel channel;
+    private long end;
+    private long liveBytes;
+
+    public LogKvStore(Path file, String metricName) throws IOException {
+        this.file = file;
+        this.metricName = metricName;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = open(file);
+        recover();
+        Metrics.gauge(metricName + "_keys", index::size);
+        Metrics.gauge(metricName + "_file_bytes", () -> end);
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // 처음부터 읽으며 색인을 다시 만든다. CRC 가 안 맞는 곳부터는 잘라냄
+    private void recover() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int crc = header.getInt();
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+            // 헤더가 깨져 있으면 int 로 더하다 넘칠 수 있으므로 long 으로 (남은 크기 초과 = 손상된 꼬리)
+            long bodyLength = (long) keyLength + Math.max(0, valueLength);
+            if (keyLength <= 0 || valueLength < TOMBSTONE
+                    || bodyLength > Integer.MAX_VALUE || bodyLength > size - position - HEADER_SIZE) {
+                break;
+            }
+
+            ByteBuffer body = ByteBuffer.allocate((int) bodyLength);
+            readFully(body, position + HEADER_SIZE);
+            if (crc != checksum(keyLength, valueLength, body.array())) {
+                break;
+            }
+            String key = new String(body.array(), 0, keyLength, StandardCharsets.UTF_8);
+            if (valueLength == TOMBSTONE) {
+                unlink(index.remove(key));
+            } else {
+                unlink(index.put(key, new Entry(position, keyLength, valueLength)));
+                liveBytes += HEADER_SIZE + bodyLength;
+            }
+            position += HEADER_SIZE + bodyLength;
+        }
+
+        if (position < size) {
+            Log.warn("⚠️ " + file.getFileName() + ": 손상된 꼬리 " + (size - position) + "바이트를 잘라냅니다.");
+            Metrics.counter(metricName + "_truncated_tails_total").increment();
+            channel.truncate(position);
+            channel.force(true);
+        }
+        end = position;
+    }
+
+    private void unlink(Entry previous) {
+        if (previous != null) {
+            liveBytes -= previous.recordSize();
+        }
+    }
+
+    public synchronized byte[] get(String key) throws IOException {
+        Entry entry = index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        return readValue(entry);
+    }
+
+    public boolean containsKey(String key) {
+        return index.containsKey(key);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    // 레코드 1개만 추가 + fsync. 다른 키는 건드리지 않는다
+    public synchronized void put(String key, byte[] value) throws IOException {
+        long start = System.nanoTime();
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long offset = append(keyBytes, value);
+        unlink(index.put(key, new Entry(offset, keyBytes.length, value.length)));
+        liveBytes += HEADER_SIZE + keyBytes.length + value.length;
+        Metrics.histogram(metricName + "_put_seconds").recordSince(start);
+        maybeCompact();
+    }
+
+    public synchronized boolean delete(String key) throws IOException {
+        if (!index.containsKey(key)) {
+            return false;
+        }
+        append(key.getBytes(StandardCharsets.UTF_8), null);
+        unlink(index.remove(key));
+        maybeCompact();
+        return true;
+    }
+
+    public synchronized void clear() throws IOException {
+        index.clear();
+        liveBytes = 0;
+        channel.truncate(0);
+        channel.force(true);
+        end = 0;
+    }
+
+    // 접두사로 시작하는 키를 정렬 순서대로 최대 limit 개
+    public List<String> keysWithPrefix(String prefix, int limit) {
+        List<String> keys = new ArrayList<>();
+        for (String key : index.tailMap(prefix, true).keySet()) {
+            if (!key.startsWith(prefix) || keys.size() >= limit) {
+                break;
+            }
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    // 살아있는 모든 키-값을 키 순서대로
+    public synchronized void forEach(BiConsumer<String, byte[]> action) throws IOException {
+        for (Map.Entry<String, Entry> e : index.entrySet()) {
+            action.accept(e.getKey(), readValue(e.getValue()));
+        }
+    }
+
+    // 살아있는 레코드만 새 파일에 옮겨 쓰고 원자적으로 교체
+    public synchronized void compact() throws IOException {
+        long start = System.nanoTime();
+        Path temp = file.resolveSibling(file.getFileName() + ".compact");
+        ConcurrentSkipListMap<String, Entry> compacted = new ConcurrentSkipListMap<>();
+        long position = 0;
+
+        try (FileChannel out = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Map.Entry<String, Entry> e : index.entrySet()) {
+                Entry entry = e.getValue();
+                ByteBuffer record = ByteBuffer.allocate(entry.recordSize());
+                readFully(record, entry.offset);
+                record.flip();
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+                compacted.put(e.getKey(), new Entry(position, entry.keyLength, entry.valueLength));
+                position += entry.recordSize();
+            }
+            out.force(true);
+        }
+
+        channel.close();
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        channel = open(file);
+        index.clear();
+        index.putAll(compacted);
+        end = position;
+        liveBytes = position;
+        Metrics.counter(metricName + "_compactions_total").increment();
+        Metrics.histogram(metricName + "_compact_seconds").recordSince(start);
+    }
+
+    private void maybeCompact() throws IOException {
+        long dead = end - liveBytes;
+        if (end >= COMPACT_MIN_BYTES && dead > liveBytes) {
+            compact();
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        channel.force(true);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    private long append(byte[] key, byte[] value) throws IOException {
+        int valueLength = value != null ? value.length : TOMBSTONE;
+        byte[] body = new byte[key.length + Math.max(0, valueLength)];
+        System.arraycopy(key, 0, body, 0, key.length);
+        if (value != null) {
+            System.arraycopy(value, 0, body, key.length, value.length);
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + body.length);
+        record.putInt(checksum(key.length, valueLength, body));
+        record.putInt(key.length);
+        record.putInt(valueLength);
+        record.put(body);
+        record.flip();
+
+        long offset = end;
+        long position = offset;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        channel.force(false);
+        end = position;
+        return offset;
+    }
+
+    private byte[] readValue(Entry entry) throws IOException {
+        ByteBuffer value = ByteBuffer.allocate(entry.valueLength);
+        readFully(value, entry.offset + HEADER_SIZE + entry.keyLength);
+        return value.array();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("unexpected end of " + file);
+            }
+            position += n;
+        }
+    }
+
+    private static int checksum(int keyLength, int valueLength, byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(8).putInt(keyLength).putInt(valueLength).array());
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+}
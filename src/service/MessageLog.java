@@ -0,0 +1,322 @@
+package service;
+
+import model.Emotion;
+import model.Message;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * 메시지 기록용 추가 전용(append-only) 압축 저장소 (힙 밖 direct buffer)
+ *
+ * 메시지 1개 = 고정 32바이트 행 + 텍스트 영역의 UTF-8 바이트.
+ * Message 객체(문자열 2개 + LocalDateTime + 헤더/포인터)를 들고 있지 않으므로
+ * 힙에는 거의 아무것도 남지 않는다. Message 는 get() 할 때 만들어지는 복사본이다.
+ *
+ * 행 형식 (ByteBuffer 기본 바이트 순서)
+ *   0  long  시각 (UTC 기준 epoch 나노초, LocalDateTime 을 그대로 옮긴 값)
+ *   8  long  텍스트 위치 (청크 번호 << 32 | 청크 안 위치)
+ *   16 int   내용 바이트 수
+ *   20 int   추천 답변 바이트 수 (내용 바로 뒤에 붙어 있음)
+ *   24 int   상대방 id (ContactDictionary 번호, 이름 문자열은 사전에 한 번만 있음)
+ *   28 short 강도 × 10000
+ *   30 byte  감정 ordinal
+ *
+ * - 쓰기: writeLock 으로 한 번에 한 스레드만 추가 (단일 writer)
+ * - 읽기: snapshot() 은 volatile 읽기 한 번이라 락이 없고, 쓰기를 막지 않는다
+ *   이미 쓴 행/텍스트는 다시 쓰지 않으므로 예전 스냅샷은 그 시점의 내용을 그대로 유지한다.
+ */
+public class MessageLog {
+    private static final int ROW_BYTES = 32;
+    private static final int CHUNK_BITS = 12;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int TEXT_CHUNK_BYTES = 1 << 20;
+    private static final double INTENSITY_SCALE = 10_000.0;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final Emotion[] EMOTIONS = Emotion.values();
+
+    private final Object writeLock = new Object();
+    private final ContactDictionary dictionary;
+    private volatile Snapshot current;
+
+    // 쓰기 쪽 상태 (writeLock 안에서만 접근)
+    private final BitSet seenContacts = new BitSet();
+    private int textPosition = 0;
+
+    // 이 기록 전용 사전 (메모리만, 벤치마크/도구용)
+    public MessageLog() {
+        this(new ContactDictionary());
+    }
+
+    public MessageLog(ContactDictionary dictionary) {
+        this.dictionary = dictionary;
+        this.current = Snapshot.empty(dictionary);
+    }
+
+    /**
+     * 특정 시점의 읽기 전용 뷰
+     * List 로 쓸 수 있어 기존 stream/subList/for-each 코드가 그대로 동작한다.
+     * 집계는 get() 대신 timestampNanos/emotion/intensity/contactId 로 읽으면 객체를 만들지 않는다.
+     */
+    public static final class Snapshot extends AbstractList<Message> implements RandomAccess {
+        // 빈 칸에 이어 쓰므로 배열을 공유하면 안 된다
+        static Snapshot empty(ContactDictionary dictionary) {
+            return new Snapshot(dictionary, new ByteBuffer[4], new ByteBuffer[4], new int[16], 0, 0, 0);
+        }
+
+        private final ContactDictionary dictionary;
+        private final ByteBuffer[] rows;
+        private final ByteBuffer[] texts;
+        private final int[] contacts;       // 이 기록에 나온 상대방 id (처음 나온 순서)
+        private final int size;
+        private final int textChunkCount;
+        private final int contactCount;
+
+        private Snapshot(ContactDictionary dictionary, ByteBuffer[] rows, ByteBuffer[] texts, int[] contacts,
+                         int size, int textChunkCount, int contactCount) {
+            this.dictionary = dictionary;
+            this.rows = rows;
+            this.texts = texts;
+            this.contacts = contacts;
+            this.size = size;
+            this.textChunkCount = textChunkCount;
+            this.contactCount = contactCount;
+        }
+
+        @Override
+        public Message get(int index) {
+            checkIndex(index);
+            ByteBuffer row = rows[index >>> CHUNK_BITS];
+            int base = (index & CHUNK_MASK) * ROW_BYTES;
+
+            long textAt = row.getLong(base + 8);
+            ByteBuffer text = texts[(int) (textAt >>> 32)];
+            int position = (int) textAt;
+            int contentLength = row.getInt(base + 16);
+            int responseLength = row.getInt(base + 20);
+            String content = decode(text, position, contentLength);
+            String response = decode(text, position + contentLength, responseLength);
+
+            int contactId = row.getInt(base + 24);
+            Message message = new Message(content, EMOTIONS[row.get(base + 30)],
+                row.getShort(base + 28) / INTENSITY_SCALE, response, dictionary.nameOf(contactId));
+            message.setTimestamp(toLocalDateTime(row.getLong(base)));
+            message.setContactId(contactId);
+            return message;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        public long timestampNanos(int index) {
+            checkIndex(index);
+            return rows[index >>> CHUNK_BITS].getLong((index & CHUNK_MASK) * ROW_BYTES);
+        }
+
+        // UTC 기준 epoch 일수 (LocalDate.toEpochDay 와 같은 값)
+        public long epochDay(int index) {
+            return Math.floorDiv(timestampNanos(index), NANOS_PER_SECOND * 86_400);
+        }
+
+        public Emotion emotion(int index) {
+            checkIndex(index);
+            return EMOTIONS[rows[index >>> CHUNK_BITS].get((index & CHUNK_MASK) * ROW_BYTES + 30)];
+        }
+
+        public double intensity(int index) {
+            checkIndex(index);
+            return rows[index >>> CHUNK_BITS].getShort((index & CHUNK_MASK) * ROW_BYTES + 28) / INTENSITY_SCALE;
+        }
+
+        public int contactId(int index) {
+            checkIndex(index);
+            return rows[index >>> CHUNK_BITS].getInt((index & CHUNK_MASK) * ROW_BYTES + 24);
+        }
+
+        public String contactName(int contactId) {
+            return dictionary.nameOf(contactId);
+        }
+
+        // 사전에 없는 이름이면 -1 (해시 조회 한 번)
+        public int contactIdOf(String name) {
+            return dictionary.find(name);
+        }
+
+        // 이 스냅샷에 나온 상대방 수와 그 id (i 는 0 ~ contactCount-1)
+        public int contactCount() {
+            return contactCount;
+        }
+
+        public int presentContactId(int i) {
+            if (i < 0 || i >= contactCount) {
+                throw new IndexOutOfBoundsException("contact " + i + ", count " + contactCount);
+            }
+            return contacts[i];
+        }
+
+        // 상대방 id 로 배열 인덱스를 잡을 때 필요한 크기 (사전 전체 크기)
+        public int contactIdBound() {
+            return dictionary.size();
+        }
+
+        // [from, to) 행을 통계에 더한다. 행 청크 단위로 읽어 인덱스 검사를 한 번만 함 (병렬 집계의 조각 단위)
+        public void accumulate(int from, int to, EmotionStats total, ContactStatsTable byContact) {
+            if (from < 0 || to > size || from > to) {
+                throw new IndexOutOfBoundsException("range [" + from + ", " + to + "), size " + size);
+            }
+            int index = from;
+            while (index < to) {
+                ByteBuffer row = rows[index >>> CHUNK_BITS];
+                int end = Math.min(to, (index | CHUNK_MASK) + 1);
+                for (int base = (index & CHUNK_MASK) * ROW_BYTES; index < end; index++, base += ROW_BYTES) {
+                    int emotion = row.get(base + 30);
+                    double intensity = row.getShort(base + 28) / INTENSITY_SCALE;
+                    total.accept(emotion, intensity);
+                    if (byContact != null) {
+                        byContact.get(row.getInt(base + 24)).accept(emotion, intensity);
+                    }
+                }
+            }
+        }
+
+        // 힙 밖에 잡아둔 바이트 수 (행 청크 + 텍스트 청크)
+        public long offHeapBytes() {
+            long bytes = (long) ((size + CHUNK_MASK) >>> CHUNK_BITS) * CHUNK_SIZE * ROW_BYTES;
+            for (int i = 0; i < textChunkCount; i++) {
+                bytes += texts[i].capacity();
+            }
+            return bytes;
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+            }
+        }
+    }
+
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    public int size() {
+        return current.size;
+    }
+
+    public void append(Message message) {
+        synchronized (writeLock) {
+            current = place(current, message);
+        }
+    }
+
+    // 대량 추가는 스냅샷을 한 번만 발행
+    public void appendAll(Collection<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            Snapshot s = current;
+            for (Message message : messages) {
+                s = place(s, message);
+            }
+            current = s;
+        }
+    }
+
+    public void clear() {
+        synchronized (writeLock) {
+            seenContacts.clear();
+            textPosition = 0;
+            current = Snapshot.empty(dictionary);
+        }
+    }
+
+    // 발행 전의 새 스냅샷을 만든다. 배열은 자리가 모자랄 때만 복사 (기존 칸은 그대로 공유)
+    private Snapshot place(Snapshot s, Message message) {
+        ByteBuffer[] rows = s.rows;
+        ByteBuffer[] texts = s.texts;
+        int[] contacts = s.contacts;
+        int textChunkCount = s.textChunkCount;
+        int contactCount = s.contactCount;
+
+        // 상대방 이름 → 사전 id (이 기록에 처음 나온 id 면 목록에 추가)
+        int contactId = dictionary.idOf(message.getContactName());
+        if (!seenContacts.get(contactId)) {
+            seenContacts.set(contactId);
+            if (contactCount == contacts.length) {
+                contacts = Arrays.copyOf(contacts, contacts.length * 2);
+            }
+            contacts[contactCount++] = contactId;
+        }
+
+        // 텍스트: 내용 + 추천 답변을 이어서 기록
+        byte[] content = message.getContent().getBytes(StandardCharsets.UTF_8);
+        byte[] response = message.getRecommendedResponse().getBytes(StandardCharsets.UTF_8);
+        int textLength = content.length + response.length;
+        if (textChunkCount == 0 || texts[textChunkCount - 1].capacity() - textPosition < textLength) {
+            if (textChunkCount == texts.length) {
+                texts = Arrays.copyOf(texts, texts.length * 2);
+            }
+            texts[textChunkCount++] = ByteBuffer.allocateDirect(Math.max(TEXT_CHUNK_BYTES, textLength));
+            textPosition = 0;
+        }
+        ByteBuffer text = texts[textChunkCount - 1];
+        text.put(textPosition, content, 0, content.length);
+        text.put(textPosition + content.length, response, 0, response.length);
+        long textAt = ((long) (textChunkCount - 1) << 32) | textPosition;
+        textPosition += textLength;
+
+        // 고정 폭 행
+        int index = s.size;
+        int chunk = index >>> CHUNK_BITS;
+        if (chunk == rows.length) {
+            rows = Arrays.copyOf(rows, rows.length * 2);
+        }
+        if (rows[chunk] == null) {
+            rows[chunk] = ByteBuffer.allocateDirect(CHUNK_SIZE * ROW_BYTES);
+        }
+        ByteBuffer row = rows[chunk];
+        int base = (index & CHUNK_MASK) * ROW_BYTES;
+        row.putLong(base, toNanos(message.getTimestamp()));
+        row.putLong(base + 8, textAt);
+        row.putInt(base + 16, content.length);
+        row.putInt(base + 20, response.length);
+        row.putInt(base + 24, contactId);
+        row.putShort(base + 28, (short) Math.round(clamp(message.getIntensity()) * INTENSITY_SCALE));
+        row.put(base + 30, (byte) message.getEmotion().ordinal());
+
+        return new Snapshot(dictionary, rows, texts, contacts, index + 1, textChunkCount, contactCount);
+    }
+
+    private static double clamp(double intensity) {
+        return Math.max(0.0, Math.min(1.0, intensity));
+    }
+
+    static long toNanos(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + time.getNano();
+    }
+
+    static LocalDateTime toLocalDateTime(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND),
+            (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+    private static String decode(ByteBuffer text, int position, int length) {
+        if (length == 0) {
+            return "";
+        }
+        byte[] bytes = new byte[length];
+        text.get(position, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
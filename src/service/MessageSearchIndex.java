@@ -0,0 +1,467 @@
+package service;
+
+import metrics.Metrics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 메시지 내용 + 추천 답변 전문 검색 색인 (역색인)
+ *
+ * - 문서 번호 = 저장소에 저장된 순서 (0부터). 목록은 오름차순 int[] 라 최신순으로 거꾸로 훑는다
+ * - 토큰: 한글(자모 포함)/한자는 붙어 있는 글자 2개씩(바이그램, 한 글자면 그대로), 그 밖의 글자/숫자는 단어 단위
+ *   → 형태소 분석기 없이 "합격했어" 로 "합격했어요" 를 찾는다
+ * - 상대방/감정/시각은 문서별 배열(필터용)로 들고, 가장 짧은 목록에서 출발해 나머지는 이진 탐색으로 확인
+ * - 바이그램이 다 맞아도 실제 문구가 없을 수 있으므로 최종 확인(matches)은 호출하는 쪽이 원문으로 한다
+ * - 목록만 파일에 저장(save), 필터 배열은 시작할 때 저장소를 훑어서 다시 채운다
+ * - 파일에는 색인한 문서들의 지문(fingerprint)도 넣어, 저장소를 지우고 다시 채운 경우(마이그레이션 --replace 등) 버린다
+ *
+ * 스레드: 추가/조회/저장 모두 this 로 동기화
+ */
+public class MessageSearchIndex {
+
+    private static final int MAGIC = 0x45534958;   // "ESIX"
+    private static final int FORMAT_VERSION = 2;
+    private static final int MAX_WORD_LENGTH = 32;
+
+    private static final class Postings {
+        int[] docs = new int[2];
+        int size;
+
+        void add(int doc) {
+            // 한 문서에 같은 토큰이 여러 번 나와도 한 번만
+            if (size > 0 && docs[size - 1] == doc) {
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+
+        // doc 이 있으면 true (오름차순 이진 탐색)
+        boolean contains(int doc) {
+            return Arrays.binarySearch(docs, 0, size, doc) >= 0;
+        }
+
+        // doc 보다 작은 것 중 가장 큰 위치, 없으면 -1
+        int lastIndexBefore(int doc) {
+            int i = Arrays.binarySearch(docs, 0, size, doc);
+            return (i >= 0 ? i : -i - 1) - 1;
+        }
+    }
+
+    /**
+     * 검색 조건. null / -1 은 조건 없음
+     */
+    public static final class Filter {
+        final int contactId;
+        final int emotion;
+        final long fromNanos;
+        final long toNanos;
+
+        // contactId: 사전 id (-1 이면 전체), emotion: ordinal (-1 이면 전체), [fromNanos, toNanos)
+        public Filter(int contactId, int emotion, long fromNanos, long toNanos) {
+            this.contactId = contactId;
+            this.emotion = emotion;
+            this.fromNanos = fromNanos;
+            this.toNanos = toNanos;
+        }
+
+        public static Filter none() {
+            return new Filter(-1, -1, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+    }
+
+    private final Path file;
+    private final Map<String, Postings> postings = new HashMap<>();
+    private int indexedCount;               // 토큰까지 색인된 문서 수
+
+    // 문서별 필터 값 (저장소 scan 으로 채움)
+    private int[] contactIds = new int[1024];
+    private byte[] emotions = new byte[1024];
+    private long[] timestamps = new long[1024];
+    private int docCount;
+
+    // file 이 null 이면 메모리 전용
+    public MessageSearchIndex(Path file) {
+        this.file = file;
+    }
+
+    // ===== 색인 =====
+
+    // 필터 값만 추가 (시작 시 저장소 scan 용, 토큰은 load/catchUp 에서)
+    public synchronized void addMeta(long timestampNanos, int emotion, int contactId) {
+        if (docCount == contactIds.length) {
+            int length = docCount * 2;
+            contactIds = Arrays.copyOf(contactIds, length);
+            emotions = Arrays.copyOf(emotions, length);
+            timestamps = Arrays.copyOf(timestamps, length);
+        }
+        contactIds[docCount] = contactId;
+        emotions[docCount] = (byte) emotion;
+        timestamps[docCount] = timestampNanos;
+        docCount++;
+    }
+
+    // 새 메시지 (필터 값 + 토큰). 저장소에 추가한 순서대로 불러야 문서 번호가 맞는다
+    public synchronized void add(long timestampNanos, int emotion, int contactId, String content, String response) {
+        addMeta(timestampNanos, emotion, contactId);
+        addText(docCount - 1, content, response);
+    }
+
+    // 필터 값은 있는데 토큰이 아직 없는 문서의 번호 범위 [indexedCount, docCount)
+    public synchronized int indexedCount() {
+        return indexedCount;
+    }
+
+    public synchronized int size() {
+        return docCount;
+    }
+
+    // catchUp 용: doc 은 indexedCount 와 같아야 한다
+    public synchronized void addText(int doc, String content, String response) {
+        if (doc != indexedCount) {
+            throw new IllegalStateException("색인 순서가 어긋났습니다: " + doc + " (다음 " + indexedCount + ")");
+        }
+        for (String token : tokens(content + "\n" + response)) {
+            postings.computeIfAbsent(token, t -> new Postings()).add(doc);
+        }
+        indexedCount++;
+    }
+
+    /**
+     * 문서 [0, count) 의 지문: 처음/가운데/마지막 문서의 시각·감정·상대방 CRC32
+     * 저장소 scan 으로 채운 필터 값으로 구하므로, 사이드카 파일이 지금 저장소 내용과 같은 것인지 확인할 때 쓴다
+     */
+    public synchronized long fingerprint(int count) {
+        if (count < 0 || count > docCount) {
+            throw new IndexOutOfBoundsException("count " + count + ", size " + docCount);
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer row = ByteBuffer.allocate(Integer.BYTES + Long.BYTES + Integer.BYTES + 1);
+        row.putInt(0, count);
+        crc.update(row.array(), 0, Integer.BYTES);
+        if (count > 0) {
+            for (int doc : new int[] {0, (count - 1) / 2, count - 1}) {
+                row.clear();
+                row.putInt(doc).putLong(timestamps[doc]).putInt(contactIds[doc]).put(emotions[doc]);
+                crc.update(row.array(), 0, row.position());
+            }
+        }
+        return crc.getValue();
+    }
+
+    public synchronized void clear() {
+        postings.clear();
+        indexedCount = 0;
+        docCount = 0;
+    }
+
+    // ===== 조회 =====
+
+    /**
+     * before 보다 앞(오래된 쪽)에서 조건에 맞는 가장 최근 문서 번호, 없으면 -1
+     * 처음엔 before = size() 로 부르고, 받은 번호를 다음 before 로 넘기면 최신순으로 이어진다
+     */
+    public synchronized int previousMatch(List<String> queryTokens, Filter filter, int before) {
+        int limit = Math.min(before, indexedCount);
+        if (queryTokens.isEmpty()) {
+            for (int doc = limit - 1; doc >= 0; doc--) {
+                if (accepts(doc, filter)) {
+                    return doc;
+                }
+            }
+            return -1;
+        }
+
+        // 가장 짧은 목록에서 출발
+        Postings[] lists = new Postings[queryTokens.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = postings.get(queryTokens.get(i));
+            if (lists[i] == null) {
+                return -1;
+            }
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+        Postings rarest = lists[0];
+        for (int i = rarest.lastIndexBefore(limit); i >= 0; i--) {
+            int doc = rarest.docs[i];
+            if (!accepts(doc, filter)) {
+                continue;
+            }
+            boolean all = true;
+            for (int l = 1; l < lists.length && all; l++) {
+                all = lists[l].contains(doc);
+            }
+            if (all) {
+                return doc;
+            }
+        }
+        return -1;
+    }
+
+    // 상대방의 문서 번호 (from 이상, 오름차순). 유사 메시지 색인을 상대방별로 만들 때 쓴다
+    public synchronized int[] docsOf(int contactId, int from) {
+        int[] docs = new int[16];
+        int count = 0;
+        for (int doc = Math.max(0, from); doc < docCount; doc++) {
+            if (contactIds[doc] == contactId) {
+                if (count == docs.length) {
+                    docs = Arrays.copyOf(docs, count * 2);
+                }
+                docs[count++] = doc;
+            }
+        }
+        return Arrays.copyOf(docs, count);
+    }
+
+    private boolean accepts(int doc, Filter filter) {
+        return (filter.contactId < 0 || contactIds[doc] == filter.contactId)
+            && (filter.emotion < 0 || emotions[doc] == filter.emotion)
+            && timestamps[doc] >= filter.fromNanos && timestamps[doc] < filter.toNanos;
+    }
+
+    // ===== 토큰 =====
+
+    /**
+     * 색인/검색 공통 토큰 (순서 유지, 중복 제거)
+     * 한글/한자 연속 구간은 바이그램, 영문/숫자 연속 구간은 소문자 단어
+     */
+    public static List<String> tokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return new ArrayList<>();
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int length = lower.length();
+        int i = 0;
+        while (i < length) {
+            char c = lower.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < length && isCjk(lower.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    tokens.add(lower.substring(start, i));
+                } else {
+                    for (int j = start; j + 1 < i; j++) {
+                        tokens.add(lower.substring(j, j + 2));
+                    }
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < length && Character.isLetterOrDigit(lower.charAt(i)) && !isCjk(lower.charAt(i))) {
+                    i++;
+                }
+                tokens.add(lower.substring(start, Math.min(i, start + MAX_WORD_LENGTH)));
+            } else {
+                i++;
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * 바이그램 후보를 원문으로 최종 확인 (검색어의 단어가 모두 내용 또는 답변에 있어야 함)
+     * 대소문자, 문장부호/공백 차이는 무시
+     */
+    public static boolean matches(String query, String content, String response) {
+        String haystack = normalize(content) + " " + normalize(response);
+        for (String word : normalize(query).split(" ")) {
+            if (!word.isEmpty() && !haystack.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isLetterOrDigit(c) || isCjk(c)) {
+                sb.append(c);
+                space = false;
+            } else if (!space) {
+                sb.append(' ');
+                space = true;
+            }
+        }
+        return sb.toString().trim();
+    }
+
+    static boolean isCjk(char c) {
+        return (c >= '가' && c <= '힣')     // 한글 음절
+            || (c >= 'ㄱ' && c <= 'ㆎ')     // 호환 자모 (ㅋㅋ, ㅠㅠ)
+            || (c >= '一' && c <= '鿿');    // 한자
+    }
+
+    // ===== 파일 =====
+
+    /**
+     * 저장된 목록을 읽는다. 파일의 문서 수가 지금 저장소(size())보다 많거나 그 문서들의 지문이 다르면 맞지 않는 색인이라 버림.
+     * 적으면 그만큼만 읽고 나머지는 catchUp 으로 채운다.
+     */
+    public synchronized boolean load() {
+        if (file == null || !Files.exists(file)) {
+            return false;
+        }
+        long start = System.nanoTime();
+        CRC32 crc = new CRC32();
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+             CheckedInputStream checked = new CheckedInputStream(raw, crc);
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                Log.warn("⚠️ 검색 색인 형식이 달라 다시 만듭니다: " + file);
+                return false;
+            }
+            int count = in.readInt();
+            long storedFingerprint = in.readLong();
+            if (count > docCount) {
+                Log.warn("⚠️ 검색 색인이 저장소와 맞지 않아 다시 만듭니다 (색인 " + count + ", 저장소 " + docCount + ")");
+                return false;
+            }
+            if (storedFingerprint != fingerprint(count)) {
+                Log.warn("⚠️ 검색 색인이 지금 저장소 내용과 달라 다시 만듭니다: " + file);
+                return false;
+            }
+            int tokenCount = in.readInt();
+            Map<String, Postings> loaded = new HashMap<>(tokenCount * 2);
+            for (int t = 0; t < tokenCount; t++) {
+                String token = in.readUTF();
+                Postings list = new Postings();
+                int size = readVarInt(in);
+                list.docs = new int[Math.max(2, size)];
+                int doc = -1;
+                for (int i = 0; i < size; i++) {
+                    doc += readVarInt(in) + 1;
+                    list.docs[i] = doc;
+                }
+                list.size = size;
+                loaded.put(token, list);
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                Log.warn("⚠️ 검색 색인 체크섬이 맞지 않아 다시 만듭니다: " + file);
+                return false;
+            }
+            postings.clear();
+            postings.putAll(loaded);
+            indexedCount = count;
+            Metrics.histogram("search_index_load_seconds").recordSince(start);
+            return true;
+        } catch (EOFException e) {
+            Log.warn("⚠️ 검색 색인 파일이 잘려 있어 다시 만듭니다: " + file);
+            return false;
+        } catch (IOException | RuntimeException e) {
+            Log.warn("⚠️ 검색 색인을 읽지 못해 다시 만듭니다: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // 임시 파일에 쓰고 fsync 후 원자적 교체 (목록은 간격을 varint 로)
+    public synchronized void save() {
+        if (file == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            CRC32 crc = new CRC32();
+            try (OutputStream raw = Files.newOutputStream(temp);
+                 CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(raw, 1 << 16), crc);
+                 DataOutputStream out = new DataOutputStream(checked)) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(indexedCount);
+                out.writeLong(fingerprint(indexedCount));
+                out.writeInt(postings.size());
+                for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+                    Postings list = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    writeVarInt(out, list.size);
+                    int previous = -1;
+                    for (int i = 0; i < list.size; i++) {
+                        writeVarInt(out, list.docs[i] - previous - 1);
+                        previous = list.docs[i];
+                    }
+                }
+                out.flush();
+                out.writeLong(crc.getValue());
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Metrics.histogram("search_index_save_seconds").recordSince(start);
+        } catch (IOException e) {
+            Metrics.counter("search_index_save_failures_total").increment();
+            Log.error("❌ 검색 색인 저장 실패: " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized void deleteFile() {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            Log.warn("⚠️ 검색 색인 파일 삭제 실패: " + e.getMessage());
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint 가 너무 깁니다");
+    }
+}
@@ -0,0 +1,86 @@
+package service;
+
+import model.Emotion;
+import model.Message;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 감정 분석 기록 저장소 인터페이스
+ *
+ * DataManager 는 입력 검사와 결과 모양 만들기만 하고, 저장과 조회/집계는 여기로 넘긴다.
+ * 구현: TextMessageStore (emotion_data.txt + 메모리 기록), H2MessageStore (내장 SQL DB)
+ *
+ * 목록은 모두 저장된 순서(오래된 것 먼저)로 돌려준다. findRecent 만 최신순.
+ */
+public interface MessageStore extends AutoCloseable {
+
+    // scan 으로 받는 행 (시각은 LocalDateTime 을 UTC 로 옮긴 epoch 나노초, 상대방은 사전 id)
+    @FunctionalInterface
+    interface RowVisitor {
+        void visit(long timestampNanos, int emotion, double intensity, int contactId);
+    }
+
+    // 반환된 future 는 디스크에 내려간 뒤 완료
+    CompletableFuture<Void> append(Message message);
+
+    CompletableFuture<Void> appendAll(Collection<Message> messages);
+
+    CompletableFuture<Void> flush();
+
+    CompletableFuture<Void> clear();
+
+    List<Message> findAll();
+
+    // [from, to) 구간
+    List<Message> findBetween(LocalDateTime from, LocalDateTime to);
+
+    List<Message> findByEmotion(Emotion emotion);
+
+    // limit <= 0 이면 전부, 아니면 최근 limit 개
+    List<Message> findByContact(String contactName, int limit);
+
+    // 최신순
+    List<Message> findRecent(int count);
+
+    // 저장 순서 번호(0부터, clear 후 다시 0)로 가져온다. 넘긴 순서대로, 없는 번호는 건너뜀 (검색 색인용)
+    List<Message> findByPositions(int[] positions);
+
+    Set<String> contactNames();
+
+    // 데이터 옆에 두는 보조 파일 경로 (검색 색인 등). suffix 는 ".idx" 처럼 붙일 확장자
+    Path sidecarFile(String suffix);
+
+    // 상대방 이름 ↔ id 사전. 조회 결과 Message 의 contactId 가 이 번호
+    ContactDictionary contactDictionary();
+
+    Map<Emotion, Integer> countByEmotion();
+
+    double averageIntensity();
+
+    // 저장된 순서대로 전부 훑는다 (Message 를 만들지 않음, 시작 시 집계 재구성용)
+    void scan(RowVisitor visitor);
+
+    // 전체 통계를 total 에, 상대방별 통계를 byContact 에 더한다 (byContact 는 null 가능)
+    void collectStats(EmotionStats total, ContactStatsTable byContact);
+
+    int count();
+
+    // 시작 스냅샷용 요약 (텍스트 저장소만: 덧붙이기만 하는 파일이라 뒤에 붙은 줄만 이어 읽을 수 있음). 없으면 null
+    default StartupSnapshot captureSnapshot() throws IOException {
+        return null;
+    }
+
+    // [from, to) 구간 개수
+    int countBetween(LocalDateTime from, LocalDateTime to);
+
+    @Override
+    void close();
+}
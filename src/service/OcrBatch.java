@@ -0,0 +1,193 @@
+package service;
+
+import metrics.AnalysisTrace;
+import metrics.Metrics;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 스크린샷 여러 장 → 대화 하나 (OCR 묶음 가져오기)
+ *
+ * - 스크린샷마다 이미지 줄이기 + OCR 을 PARALLELISM 개씩 동시에 (Gemini 호출 한도는 GeminiService 가 공유)
+ * - 결과는 고른 순서(= 대화 순서)대로 이어 붙인다. 앞 장 끝과 다음 장 처음이 겹치는 줄은 한 번만
+ *   (발신자 + 글자/숫자만 비교해서 OCR 띄어쓰기/문장부호 차이는 무시)
+ * - 실패한 장은 건너뛰고 목록으로 알려 준다. 모두 실패하면 예외
+ * - 결과는 카카오톡 CSV 와 같은 ParseResult (시각 없음) → 같은 맥락 분석으로 넘긴다
+ *
+ * -Demotion.ocr.parallelism=4
+ */
+public class OcrBatch {
+
+    public static final int PARALLELISM = Integer.getInteger("emotion.ocr.parallelism", 4);
+
+    public static final String ME = "나";
+
+    // 겹친 줄들의 글자 수(비교 키) 합이 이 이상이어야 겹침으로 봄
+    // ("ㅋㅋ", "ㅇㅇ" 같은 짧은 말은 몇 줄이 이어져도 우연히 같을 수 있음)
+    private static final int MIN_OVERLAP_LENGTH = 6;
+
+    static final class Line {
+        final boolean mine;
+        final String text;
+        final String key;
+
+        Line(boolean mine, String text) {
+            this.mine = mine;
+            this.text = text;
+            this.key = normalize(text);
+        }
+
+        boolean sameAs(Line other) {
+            return mine == other.mine && key.equals(other.key);
+        }
+    }
+
+    /**
+     * 묶음 결과
+     */
+    public static class Result {
+        private final KakaoParser.ParseResult conversation;
+        private final List<String> failedFiles;
+        private final int duplicateLines;
+
+        Result(KakaoParser.ParseResult conversation, List<String> failedFiles, int duplicateLines) {
+            this.conversation = conversation;
+            this.failedFiles = failedFiles;
+            this.duplicateLines = duplicateLines;
+        }
+
+        public KakaoParser.ParseResult getConversation() { return conversation; }
+        public List<String> getFailedFiles() { return failedFiles; }
+        public int getDuplicateLines() { return duplicateLines; }
+    }
+
+    private final GeminiService gemini;
+
+    public OcrBatch(GeminiService gemini) {
+        this.gemini = gemini;
+    }
+
+    // files: 대화 순서대로. 상대방 줄(또는 발신자 표시가 없는 줄)은 contactName, 내 줄은 ME 로
+    public Result extract(List<File> files, String contactName) throws Exception {
+        long start = System.nanoTime();
+        AtomicInteger done = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(PARALLELISM, files.size())), r -> {
+            Thread t = new Thread(r, "ocr-batch");
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<String>> futures = new ArrayList<>(files.size());
+        try {
+            for (File file : files) {
+                futures.add(pool.submit(() -> {
+                    AnalysisTrace.begin("ocr_batch", contactName, 0);
+                    try {
+                        String text = gemini.extractTextFromImage(gemini.prepareImage(file));
+                        Log.info("📷 스크린샷 " + done.incrementAndGet() + "/" + files.size() + " 추출: " + file.getName());
+                        return text;
+                    } finally {
+                        AnalysisTrace.end();
+                    }
+                }));
+            }
+
+            List<List<Line>> pages = new ArrayList<>(files.size());
+            List<String> failed = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    pages.add(parseLines(futures.get(i).get()));
+                } catch (ExecutionException e) {
+                    failed.add(files.get(i).getName());
+                    Metrics.counter("ocr_batch_failures_total").increment();
+                    Log.warn("⚠️ 스크린샷 추출 실패 (" + files.get(i).getName() + "): " + e.getCause().getMessage());
+                }
+            }
+            if (pages.isEmpty()) {
+                throw new Exception("모든 스크린샷에서 텍스트 추출에 실패했습니다.");
+            }
+
+            List<Line> merged = new ArrayList<>();
+            int duplicates = 0;
+            for (List<Line> page : pages) {
+                int overlap = overlap(merged, page);
+                duplicates += overlap;
+                merged.addAll(page.subList(overlap, page.size()));
+            }
+
+            KakaoParser.ParseResult conversation = new KakaoParser.ParseResult();
+            for (Line line : merged) {
+                conversation.addMessage(new KakaoParser.KakaoMessage(null, line.mine ? ME : contactName, line.text));
+            }
+
+            Metrics.counter("ocr_batch_pages_total").add(pages.size());
+            Metrics.counter("ocr_batch_duplicate_lines_total").add(duplicates);
+            Metrics.histogram("ocr_batch_seconds").recordSince(start);
+            Log.info("✅ 스크린샷 " + pages.size() + "장 → 메시지 " + merged.size() + "개 (겹친 줄 " + duplicates + "개 제거)");
+            return new Result(conversation, failed, duplicates);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // OCR 출력("[나] …" / "[상대방] …" / 표시 없음 = 상대방) → 줄 목록
+    static List<Line> parseLines(String extractedText) {
+        List<Line> lines = new ArrayList<>();
+        if (extractedText == null) {
+            return lines;
+        }
+        for (String raw : extractedText.split("\n")) {
+            String line = raw.trim();
+            boolean mine = false;
+            if (line.startsWith("[나]")) {
+                mine = true;
+                line = line.substring(3).trim();
+            } else if (line.startsWith("[상대방]")) {
+                line = line.substring(5).trim();
+            } else if (line.startsWith("[")) {
+                continue;
+            }
+            if (line.isEmpty() || line.equals("텍스트 없음")) {
+                continue;
+            }
+            lines.add(new Line(mine, line));
+        }
+        return lines;
+    }
+
+    // merged 끝 k 줄 == page 처음 k 줄 인 가장 큰 k (겹친 글자가 MIN_OVERLAP_LENGTH 보다 적으면 제외)
+    static int overlap(List<Line> merged, List<Line> page) {
+        for (int k = Math.min(merged.size(), page.size()); k > 0; k--) {
+            int offset = merged.size() - k;
+            boolean same = true;
+            int length = 0;
+            for (int i = 0; i < k && same; i++) {
+                same = merged.get(offset + i).sameAs(page.get(i));
+                length += page.get(i).key.length();
+            }
+            if (same && length >= MIN_OVERLAP_LENGTH) {
+                return k;
+            }
+        }
+        return 0;
+    }
+
+    // 글자/숫자만 (OCR 이 띄어쓰기/문장부호를 다르게 읽어도 같은 줄로)
+    private static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,414 @@
+package service;
+
+import metrics.Metrics;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 스크린샷 OCR 결과 캐시 (같거나 거의 같은 스크린샷은 Gemini 호출 없이 바로)
+ *
+ * - 지문: 내용 영역(여백 자른 회색조)의 64비트 dHash + 가로 GRID_COLUMNS 칸 밝기 평균 격자
+ * - 찾기: dHash 를 BK-tree 에 넣어 해밍 거리 MAX_DISTANCE 이하 후보만 꺼낸 뒤,
+ *   격자 칸마다 밝기 차이가 MAX_CELL_DIFF 이하인 것만 같은 스크린샷으로 본다
+ *   (대화 스크린샷은 말풍선 배치가 비슷해서 dHash 만으로는 글자만 다른 대화도 거리 0 으로 나옴 → 격자로 한 번 더 확인)
+ * - 같은 것으로 보는 범위: 같은 해상도로 다시 저장한 것 (JPEG 품질 0.3 까지 칸 차이 4 이하)
+ *   크기를 바꾼 것은 글자 한 자 바뀐 것과 칸 차이가 비슷해서(약 10) 일부러 다른 것으로 본다 (틀린 글을 돌려주는 것보다 다시 호출이 낫다)
+ * - 파일(data/ocr_cache.bin)은 처음 쓸 때 읽고, 항목이 바뀔 때(put/버림)마다 임시 파일 → fsync → 원자적 교체
+ *   캐시 적중은 메모리의 마지막 사용 시각만 고치고, 파일에는 다음 put 이나 종료할 때(flush) 함께 내려씀
+ *   (적중이 파일 I/O 를 기다리지 않게. 그 전에 죽으면 버리는 순서만 조금 어긋남)
+ * - 크기(지문 + 글자 바이트)가 MAX_BYTES 를 넘으면 가장 오래 안 쓴 것부터 버림
+ *
+ * -Demotion.ocr.cache=on|off, -Demotion.ocr.cache.maxBytes=4194304, -Demotion.ocr.cache.distance=10
+ * 스레드: 모두 this 로 동기화
+ */
+public class OcrCache {
+
+    public static final boolean ENABLED = !"off".equalsIgnoreCase(System.getProperty("emotion.ocr.cache", "on"));
+    public static final long MAX_BYTES = Long.getLong("emotion.ocr.cache.maxBytes", 4L * 1024 * 1024);
+    public static final int MAX_DISTANCE = Integer.getInteger("emotion.ocr.cache.distance", 10);
+
+    private static final int MAGIC = 0x454F4352;   // "EOCR"
+    private static final int FORMAT_VERSION = 1;
+
+    // 768 로 줄인 이미지 기준 한 칸 12px 정도 (글자 한 자 차이가 보이는 크기), 세로 20:9 화면이면 한 장 약 9KB
+    static final int GRID_COLUMNS = 64;
+    private static final int MAX_GRID_ROWS = 256;
+    static final int MAX_CELL_DIFF = 6;
+    // 버릴 때는 여기까지 줄여서 매번 버리지 않게
+    private static final double EVICT_TO = 0.9;
+    // 항목마다 지문/시각 외 대략의 고정 비용
+    private static final int ENTRY_OVERHEAD = 64;
+
+    /**
+     * 스크린샷 지문 (ImagePreprocessor 가 이미지를 읽을 때 함께 만든다)
+     */
+    public static final class Fingerprint {
+        final long hash;
+        final int rows;
+        final byte[] grid;
+
+        Fingerprint(long hash, int rows, byte[] grid) {
+            this.hash = hash;
+            this.rows = rows;
+            this.grid = grid;
+        }
+
+        // 같은 스크린샷이면 0 에 가까움, 비교할 수 없으면(가로세로 비율이 다름) Integer.MAX_VALUE
+        int cellDiff(Fingerprint other) {
+            if (rows != other.rows) {
+                return Integer.MAX_VALUE;
+            }
+            int max = 0;
+            for (int i = 0; i < grid.length; i++) {
+                max = Math.max(max, Math.abs((grid[i] & 0xFF) - (other.grid[i] & 0xFF)));
+            }
+            return max;
+        }
+    }
+
+    /**
+     * 회색조 이미지의 box {left, top, right, bottom} 영역 지문
+     */
+    public static Fingerprint fingerprint(BufferedImage gray, int[] box) {
+        byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        int stride = gray.getWidth();
+        int width = box[2] - box[0];
+        int height = box[3] - box[1];
+
+        // dHash: 9x8 칸 평균에서 옆 칸보다 밝으면 1
+        byte[] small = blockMeans(pixels, stride, box, 9, 8);
+        long hash = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                hash <<= 1;
+                if ((small[y * 9 + x] & 0xFF) > (small[y * 9 + x + 1] & 0xFF)) {
+                    hash |= 1;
+                }
+            }
+        }
+
+        int rows = (int) Math.max(1, Math.min(MAX_GRID_ROWS, Math.round((double) height * GRID_COLUMNS / width)));
+        return new Fingerprint(hash, rows, blockMeans(pixels, stride, box, GRID_COLUMNS, rows));
+    }
+
+    // box 를 columns x rows 칸으로 나눈 칸별 밝기 평균
+    private static byte[] blockMeans(byte[] pixels, int stride, int[] box, int columns, int rows) {
+        int width = box[2] - box[0];
+        int height = box[3] - box[1];
+        long[] sums = new long[columns * rows];
+        int[] counts = new int[columns * rows];
+        int[] columnOf = new int[width];
+        for (int x = 0; x < width; x++) {
+            columnOf[x] = Math.min(columns - 1, (int) ((long) x * columns / width));
+        }
+        for (int y = 0; y < height; y++) {
+            int rowBase = Math.min(rows - 1, (int) ((long) y * rows / height)) * columns;
+            int offset = (box[1] + y) * stride + box[0];
+            for (int x = 0; x < width; x++) {
+                int cell = rowBase + columnOf[x];
+                sums[cell] += pixels[offset + x] & 0xFF;
+                counts[cell]++;
+            }
+        }
+        byte[] means = new byte[columns * rows];
+        for (int i = 0; i < means.length; i++) {
+            means[i] = (byte) (counts[i] == 0 ? 0 : Math.round((double) sums[i] / counts[i]));
+        }
+        return means;
+    }
+
+    private static final class Entry {
+        final Fingerprint fingerprint;
+        String text;
+        long lastUsed;
+
+        Entry(Fingerprint fingerprint, String text, long lastUsed) {
+            this.fingerprint = fingerprint;
+            this.text = text;
+            this.lastUsed = lastUsed;
+        }
+
+        long cost() {
+            return ENTRY_OVERHEAD + fingerprint.grid.length + (long) text.length() * 3;
+        }
+    }
+
+    // BK-tree 노드: children[d] = 이 노드와 해밍 거리가 d 인 하위 트리
+    private static final class Node {
+        final Entry entry;
+        Node[] children;
+
+        Node(Entry entry) {
+            this.entry = entry;
+        }
+    }
+
+    private final Path file;
+    private final List<Entry> entries = new ArrayList<>();
+    private Node root;
+    private long totalBytes;
+    private boolean loaded;
+    // 파일에 아직 안 쓴 사용 시각이 있음
+    private boolean dirty;
+
+    public OcrCache(Path file) {
+        this.file = file;
+        Metrics.gauge("ocr_cache_entries", this::size);
+        Metrics.gauge("ocr_cache_bytes", this::bytes);
+    }
+
+    /**
+     * 거의 같은 스크린샷의 OCR 결과, 없으면 null
+     */
+    public synchronized String get(Fingerprint fingerprint) {
+        ensureLoaded();
+        Entry entry = find(fingerprint);
+        if (entry == null) {
+            Metrics.counter("ocr_cache_total", "result", "miss").increment();
+            return null;
+        }
+        Metrics.counter("ocr_cache_total", "result", "hit").increment();
+        entry.lastUsed = System.currentTimeMillis();
+        dirty = true;
+        return entry.text;
+    }
+
+    public synchronized void put(Fingerprint fingerprint, String text) {
+        if (text == null) {
+            return;
+        }
+        ensureLoaded();
+        long now = System.currentTimeMillis();
+        // 같은 스크린샷을 동시에 보낸 경우 (OCR 묶음) 하나만 남김
+        Entry existing = find(fingerprint);
+        if (existing != null) {
+            totalBytes -= existing.cost();
+            existing.text = text;
+            existing.lastUsed = now;
+            totalBytes += existing.cost();
+        } else {
+            Entry entry = new Entry(fingerprint, text, now);
+            entries.add(entry);
+            insert(entry);
+            totalBytes += entry.cost();
+        }
+        if (totalBytes > MAX_BYTES) {
+            evict();
+        }
+        save();
+    }
+
+    // 적중으로 바뀐 사용 시각 내려쓰기 (종료할 때)
+    public synchronized void flush() {
+        if (dirty) {
+            save();
+        }
+    }
+
+    // 모든 데이터 삭제 시 (스크린샷 대화 내용이 남지 않게)
+    public synchronized void clear() {
+        dirty = false;
+        entries.clear();
+        root = null;
+        totalBytes = 0;
+        loaded = true;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            Log.warn("⚠️ OCR 캐시 파일 삭제 실패: " + e.getMessage());
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long bytes() {
+        return totalBytes;
+    }
+
+    // ===== BK-tree =====
+
+    private Entry find(Fingerprint fingerprint) {
+        Entry best = null;
+        int bestDiff = MAX_CELL_DIFF + 1;
+        List<Node> stack = new ArrayList<>();
+        if (root != null) {
+            stack.add(root);
+        }
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            int distance = Long.bitCount(node.entry.fingerprint.hash ^ fingerprint.hash);
+            if (distance <= MAX_DISTANCE) {
+                int diff = node.entry.fingerprint.cellDiff(fingerprint);
+                if (diff < bestDiff) {
+                    best = node.entry;
+                    bestDiff = diff;
+                }
+            }
+            if (node.children == null) {
+                continue;
+            }
+            // 삼각 부등식: 거리 d 인 하위 트리에는 |d - distance| <= MAX_DISTANCE 인 것만 있을 수 있음
+            int from = Math.max(0, distance - MAX_DISTANCE);
+            int to = Math.min(64, distance + MAX_DISTANCE);
+            for (int d = from; d <= to; d++) {
+                if (node.children[d] != null) {
+                    stack.add(node.children[d]);
+                }
+            }
+        }
+        return best;
+    }
+
+    private void insert(Entry entry) {
+        if (root == null) {
+            root = new Node(entry);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = Long.bitCount(node.entry.fingerprint.hash ^ entry.fingerprint.hash);
+            if (node.children == null) {
+                node.children = new Node[65];
+            }
+            if (node.children[distance] == null) {
+                node.children[distance] = new Node(entry);
+                return;
+            }
+            node = node.children[distance];
+        }
+    }
+
+    // 가장 오래 안 쓴 것부터 버리고 트리를 다시 만든다 (BK-tree 는 지우기가 어려움, 항목 수가 적어 충분히 빠름)
+    private void evict() {
+        entries.sort(Comparator.comparingLong(entry -> entry.lastUsed));
+        int removed = 0;
+        while (!entries.isEmpty() && totalBytes > MAX_BYTES * EVICT_TO) {
+            totalBytes -= entries.remove(0).cost();
+            removed++;
+        }
+        root = null;
+        for (Entry entry : entries) {
+            insert(entry);
+        }
+        Metrics.counter("ocr_cache_evictions_total").add(removed);
+        int count = removed;
+        Log.debug(() -> "🧹 OCR 캐시 정리: " + count + "개 버림 (남은 " + entries.size() + "개)");
+    }
+
+    // ===== 파일 =====
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            loaded = true;
+            load();
+        }
+    }
+
+    private void load() {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        CRC32 crc = new CRC32();
+        List<Entry> read = new ArrayList<>();
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+             CheckedInputStream checked = new CheckedInputStream(raw, crc);
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                Log.warn("⚠️ OCR 캐시 파일 형식이 달라 비웁니다: " + file);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long hash = in.readLong();
+                int rows = in.readUnsignedShort();
+                byte[] grid = new byte[GRID_COLUMNS * rows];
+                in.readFully(grid);
+                long lastUsed = in.readLong();
+                byte[] text = new byte[in.readInt()];
+                in.readFully(text);
+                read.add(new Entry(new Fingerprint(hash, rows, grid), new String(text, StandardCharsets.UTF_8), lastUsed));
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                Log.warn("⚠️ OCR 캐시 체크섬이 맞지 않아 비웁니다: " + file);
+                return;
+            }
+        } catch (EOFException e) {
+            Log.warn("⚠️ OCR 캐시 파일이 잘려 있어 비웁니다: " + file);
+            return;
+        } catch (IOException | RuntimeException e) {
+            Log.warn("⚠️ OCR 캐시를 읽지 못해 비웁니다: " + e.getMessage());
+            return;
+        }
+        for (Entry entry : read) {
+            entries.add(entry);
+            insert(entry);
+            totalBytes += entry.cost();
+        }
+        Log.debug(() -> "📷 OCR 캐시 불러옴: " + entries.size() + "개");
+    }
+
+    // 임시 파일에 쓰고 fsync 후 원자적 교체
+    private void save() {
+        if (file == null) {
+            return;
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            CRC32 crc = new CRC32();
+            try (OutputStream raw = Files.newOutputStream(temp);
+                 CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(raw, 1 << 16), crc);
+                 DataOutputStream out = new DataOutputStream(checked)) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    out.writeLong(entry.fingerprint.hash);
+                    out.writeShort(entry.fingerprint.rows);
+                    out.write(entry.fingerprint.grid);
+                    out.writeLong(entry.lastUsed);
+                    byte[] text = entry.text.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(text.length);
+                    out.write(text);
+                }
+                out.flush();
+                out.writeLong(crc.getValue());
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            Metrics.counter("ocr_cache_save_failures_total").increment();
+            Log.error("❌ OCR 캐시 저장 실패: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package service;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 큰 기록의 통계를 fork-join 으로 나눠 집계
+ *
+ * - 행 범위를 반씩 쪼개고(행 청크 경계에 맞춤) 조각마다 EmotionStats/ContactStatsTable 을 따로 채운 뒤 merge
+ * - 행이 minParallelRows 보다 적으면 그냥 한 스레드로 (쪼개고 합치는 비용이 더 큼)
+ * - 기본은 공용 풀(ForkJoinPool.commonPool), 벤치마크는 코어 수를 바꾼 풀을 넘긴다
+ *
+ * 병렬 경로는 조각마다 누적기를 새로 만든다 (순차 경로만 할당 없음)
+ */
+public final class ParallelStats {
+
+    // 이보다 적으면 순차 집계 (-Demotion.stats.parallelMinRows)
+    public static final int MIN_PARALLEL_ROWS = Integer.getInteger("emotion.stats.parallelMinRows", 1 << 16);
+
+    // 조각 하나의 최소 행 수 (행 청크 4개)
+    private static final int MIN_LEAF_ROWS = MessageLog.CHUNK_SIZE * 4;
+
+    private ParallelStats() {
+    }
+
+    public static void collect(MessageLog.Snapshot history, EmotionStats total, ContactStatsTable byContact) {
+        collect(history, total, byContact, ForkJoinPool.commonPool(), MIN_PARALLEL_ROWS);
+    }
+
+    public static void collect(MessageLog.Snapshot history, EmotionStats total, ContactStatsTable byContact,
+                               ForkJoinPool pool, int minParallelRows) {
+        int size = history.size();
+        if (size < minParallelRows || pool.getParallelism() <= 1) {
+            history.accumulate(0, size, total, byContact);
+            return;
+        }
+
+        // 코어당 4조각쯤 나오도록 (일을 훔쳐 갈 여유)
+        int leafRows = Math.max(MIN_LEAF_ROWS, size / (pool.getParallelism() * 4));
+        Partial result = pool.invoke(new Task(history, 0, size, leafRows, byContact != null));
+        total.merge(result.total);
+        if (byContact != null) {
+            byContact.merge(result.byContact);
+        }
+    }
+
+    private static final class Partial {
+        final EmotionStats total = new EmotionStats();
+        final ContactStatsTable byContact;
+
+        Partial(boolean withContacts) {
+            this.byContact = withContacts ? new ContactStatsTable() : null;
+        }
+
+        Partial merge(Partial other) {
+            total.merge(other.total);
+            if (byContact != null) {
+                byContact.merge(other.byContact);
+            }
+            return this;
+        }
+    }
+
+    private static final class Task extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final MessageLog.Snapshot history;
+        private final int from;
+        private final int to;
+        private final int leafRows;
+        private final boolean withContacts;
+
+        Task(MessageLog.Snapshot history, int from, int to, int leafRows, boolean withContacts) {
+            this.history = history;
+            this.from = from;
+            this.to = to;
+            this.leafRows = leafRows;
+            this.withContacts = withContacts;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= leafRows) {
+                Partial partial = new Partial(withContacts);
+                history.accumulate(from, to, partial.total, partial.byContact);
+                return partial;
+            }
+            // 가운데를 행 청크 경계로 내림
+            int mid = (from + (to - from) / 2) & ~(MessageLog.CHUNK_SIZE - 1);
+            if (mid <= from) {
+                mid = from + (to - from) / 2;
+            }
+            Task left = new Task(history, from, mid, leafRows, withContacts);
+            Task right = new Task(history, mid, to, leafRows, withContacts);
+            left.fork();
+            Partial rightResult = right.compute();
+            return left.join().merge(rightResult);
+        }
+    }
+}
@@ -23,10 +23,10 @@ public class PinManager {
             String hashedPin = hashPin(pin);
             Files.createDirectories(Paths.get("data"));
             Files.write(Paths.get(PIN_FILE), hashedPin.getBytes());
-            System.out.println("✅ PIN이 설정되었습니다.");
+            Log.info("✅ PIN이 설정되었습니다.");
             return true;
         } catch (Exception e) {
-            System.err.println("❌ PIN 설정 실패: " + e.getMessage());
+            Log.error("❌ PIN 설정 실패: " + e.getMessage());
             return false;
         }
     }
@@ -42,7 +42,7 @@ public class PinManager {
             String inputHash = hashPin(pin);
             return savedHash.equals(inputHash);
         } catch (Exception e) {
-            System.err.println("❌ PIN 확인 실패: " + e.getMessage());
+            Log.error("❌ PIN 확인 실패: " + e.getMessage());
             return false;
         }
     }
@@ -51,9 +51,9 @@ public class PinManager {
     public static void resetPin() {
         try {
             Files.deleteIfExists(Paths.get(PIN_FILE));
-            System.out.println("✅ PIN이 초기화되었습니다.");
+            Log.info("✅ PIN이 초기화되었습니다.");
         } catch (Exception e) {
-            System.err.println("❌ PIN 초기화 실패: " + e.getMessage());
+            Log.error("❌ PIN 초기화 실패: " + e.getMessage());
         }
     }
     
@@ -0,0 +1,163 @@
+package service;
+
+import metrics.Metrics;
+import model.Contact;
+import model.MBTI;
+import model.Message;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 상대방 프로필을 배경에서 갱신 (특징이 충분히 달라졌을 때만 Gemini 호출)
+ *
+ * - 메시지를 저장할 때마다 확인을 DEBOUNCE_MS 뒤로 미룬다 → 연달아 저장하면 마지막에 한 번만 확인
+ * - 확인: 프로필 이후 새 메시지가 MIN_NEW_MESSAGES 개 이상이고 특징 변화(ContactFeatures drift)가 DRIFT 이상일 때만 다시 만든다
+ *   프로필 기준값이 없으면(처음) 메시지가 MIN_MESSAGES 개 이상일 때 만든다
+ * - 프롬프트 = 전체 기록의 특징 요약 + 최근 RECENT_MESSAGES 개 (기록 전체를 다시 읽지 않음)
+ *
+ * -Demotion.profile.debounceMs=30000, -Demotion.profile.drift=0.15 (0 이하면 자동 갱신 끔)
+ */
+public class ProfileUpdater implements AutoCloseable {
+
+    public static final long DEBOUNCE_MS = Long.getLong("emotion.profile.debounceMs", 30_000);
+    public static final double DRIFT = Double.parseDouble(System.getProperty("emotion.profile.drift", "0.15"));
+    public static final int MIN_MESSAGES = 5;
+
+    private static final int MIN_NEW_MESSAGES = 3;
+    private static final int RECENT_MESSAGES = 20;
+
+    private final GeminiService gemini;
+    private final DataManager dataManager;
+    private final ContactManager contactManager;
+    private final Consumer<String> onUpdated;
+    private final Map<String, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "profile-update");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // onUpdated: 배경에서 프로필을 새로 저장한 뒤 상대방 이름으로 호출 (배경 스레드)
+    public ProfileUpdater(GeminiService gemini, DataManager dataManager, ContactManager contactManager,
+                          Consumer<String> onUpdated) {
+        this.gemini = gemini;
+        this.dataManager = dataManager;
+        this.contactManager = contactManager;
+        this.onUpdated = onUpdated;
+    }
+
+    // 메시지 저장 직후 호출. 확인을 DEBOUNCE_MS 뒤로 (다시) 예약하고 바로 반환
+    public void onMessageSaved(String contactName) {
+        if (DRIFT <= 0 || contactName == null || !GeminiService.isApiKeySet()) {
+            return;
+        }
+        pending.compute(contactName, (name, previous) -> {
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            ScheduledCheck task = new ScheduledCheck(name);
+            task.future = worker.schedule(task, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+            return task.future;
+        });
+    }
+
+    // 자기 예약만 pending 에서 뺀다 (확인 도중 새로 잡힌 예약은 남겨야 다음 저장 때 취소할 수 있음)
+    private final class ScheduledCheck implements Runnable {
+        private final String contactName;
+        private volatile ScheduledFuture<?> future;
+
+        ScheduledCheck(String contactName) {
+            this.contactName = contactName;
+        }
+
+        @Override
+        public void run() {
+            ScheduledFuture<?> self = future;
+            if (self != null) {
+                pending.remove(contactName, self);
+            }
+            check(contactName);
+        }
+    }
+
+    private void check(String contactName) {
+        int fresh = dataManager.getMessagesSinceProfile(contactName);
+        double drift = dataManager.getProfileDrift(contactName);
+        boolean first = drift >= 1 && dataManager.getMessageCount(contactName) >= MIN_MESSAGES;
+        if (!first && (fresh < MIN_NEW_MESSAGES || drift < DRIFT)) {
+            Metrics.counter("profile_checks_total", "result", "skip").increment();
+            Log.debug(() -> "🧠 프로필 유지: " + contactName + " (변화 " + String.format("%.2f", drift)
+                + ", 새 메시지 " + fresh + "개)");
+            return;
+        }
+        Metrics.counter("profile_checks_total", "result", "render").increment();
+        try {
+            render(contactName);
+            if (onUpdated != null) {
+                onUpdated.accept(contactName);
+            }
+        } catch (Exception e) {
+            Log.warn("⚠️ 프로필 자동 갱신 실패 (" + contactName + "): " + e.getMessage());
+        }
+    }
+
+    /**
+     * 지금 바로 다시 생성 (다시 생성 버튼, 호출한 스레드에서 API 호출)
+     * 메시지가 MIN_MESSAGES 개보다 적거나 API 호출이 실패하면 예외
+     */
+    public String regenerate(String contactName) throws Exception {
+        int count = dataManager.getMessageCount(contactName);
+        if (count < MIN_MESSAGES) {
+            throw new IllegalStateException("최소 " + MIN_MESSAGES + "개 이상의 대화가 필요합니다.\n현재: " + count + "개");
+        }
+        ScheduledFuture<?> scheduled = pending.remove(contactName);
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        return render(contactName);
+    }
+
+    // 배경 갱신과 다시 생성 버튼이 겹쳐도 한 번에 하나만
+    private synchronized String render(String contactName) throws Exception {
+        long start = System.nanoTime();
+        try {
+            Contact contact = contactManager.getContact(contactName);
+            if (contact == null) {
+                contact = new Contact(contactName);
+                contactManager.saveContact(contact);
+            }
+            MBTI mbti = contact.getMbti();
+            String features = dataManager.describeProfileFeatures(contactName);
+            List<Message> recent = dataManager.getMessagesByContact(contactName, RECENT_MESSAGES);
+            String profile = gemini.generateContactProfile(features, recent, contactName, mbti);
+            contactManager.setAutoGeneratedProfile(contactName, profile);
+            dataManager.markProfileRendered(contactName);
+            Metrics.counter("profile_renders_total").increment();
+            Log.info("🧠 프로필 갱신: " + contactName);
+            return profile;
+        } catch (Exception e) {
+            Metrics.counter("profile_render_failures_total").increment();
+            throw e;
+        } finally {
+            Metrics.histogram("profile_render_seconds").recordSince(start);
+        }
+    }
+
+    // 예약된 확인은 버림 (다음 실행 때 다음 저장에서 다시 잡힌다)
+    @Override
+    public void close() {
+        worker.shutdownNow();
+        try {
+            worker.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
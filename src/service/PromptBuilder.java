@@ -0,0 +1,220 @@
+package service;
+
+import metrics.Metrics;
+import model.Emotion;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 토큰 예산 안에서 프롬프트 조립
+ *
+ * - 고정 문구(append)는 그대로, 대화 맥락(context)은 예산에 맞게 오래된 항목부터 뺀다
+ *   뺀 항목은 "더 이전 대화 N개 생략 · 감정: 슬픔 3, 기쁨 2" 한 줄로 남김
+ * - 토큰 수는 TokenEstimator 어림값. 고정 문구만으로 예산을 넘으면 맥락만 모두 빠진다
+ * - 버퍼(StringBuilder)는 풀에서 빌려 쓰고 build 후 돌려준다 (너무 커진 것은 버림)
+ * - build 마다 prompt_tokens_total{kind}, prompts_total{kind}, prompt_context_dropped_total{kind} 기록
+ * - endPrefix 앞부분은 호출마다 같은 짧은 고정 지시문 → Gemini 캐시를 쓸 때는 빼고(캐시된 AnalysisGuide 가 대신) 뒷부분만 보낸다
+ *
+ * 한 번 쓰고 버리는 객체 (동기화 없음, 풀만 스레드 안전)
+ */
+public final class PromptBuilder {
+
+    // 호출 1번의 기본 예산 (-Demotion.prompt.maxTokens)
+    public static final int DEFAULT_MAX_TOKENS = Integer.getInteger("emotion.prompt.maxTokens", 2000);
+
+    private static final int POOL_SIZE = 8;
+    private static final int INITIAL_CAPACITY = 4096;
+    private static final int MAX_POOLED_CAPACITY = 64 * 1024;
+    // 생략 요약 줄 몫
+    private static final int NOTE_TOKENS = 40;
+
+    private static final ArrayBlockingQueue<StringBuilder> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * 완성된 프롬프트와 크기
+     */
+    public static final class Prompt {
+        private final String text;
+        private final int prefixLength;
+        private final int tokens;
+        private final int droppedEntries;
+
+        Prompt(String text, int prefixLength, int tokens, int droppedEntries) {
+            this.text = text;
+            this.prefixLength = prefixLength;
+            this.tokens = tokens;
+            this.droppedEntries = droppedEntries;
+        }
+
+        // 전체 (고정 지시문 + 나머지)
+        public String getText() {
+            return text;
+        }
+
+        // endPrefix 뒤 (캐시를 쓸 때 실제로 보내는 부분)
+        public String getBody() {
+            return text.substring(prefixLength);
+        }
+
+        public int getTokens() {
+            return tokens;
+        }
+
+        public int getDroppedEntries() {
+            return droppedEntries;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private final String kind;
+    private final int maxTokens;
+    private final StringBuilder text = borrow();
+    private PromptContext context;
+    private int contextAt = -1;
+    private int prefixAt;
+    private boolean built;
+
+    private PromptBuilder(String kind, int maxTokens) {
+        this.kind = kind;
+        this.maxTokens = maxTokens;
+    }
+
+    // kind: 메트릭 라벨 (analyze / context / profile …)
+    public static PromptBuilder start(String kind, int maxTokens) {
+        return new PromptBuilder(kind, maxTokens);
+    }
+
+    public PromptBuilder append(CharSequence value) {
+        text.append(value);
+        return this;
+    }
+
+    public PromptBuilder append(char value) {
+        text.append(value);
+        return this;
+    }
+
+    public PromptBuilder append(int value) {
+        text.append(value);
+        return this;
+    }
+
+    // 여기까지가 호출마다 같은 고정 지시문 (맥락보다 앞이어야 함)
+    public PromptBuilder endPrefix() {
+        if (context != null) {
+            throw new IllegalStateException("고정 지시문은 맥락보다 앞이어야 합니다");
+        }
+        prefixAt = text.length();
+        return this;
+    }
+
+    // 지금 위치에 맥락을 넣는다 (프롬프트당 하나, null 이면 아무것도 안 함)
+    public PromptBuilder context(PromptContext value) {
+        if (value == null) {
+            return this;
+        }
+        if (context != null) {
+            throw new IllegalStateException("맥락은 프롬프트당 하나만 넣을 수 있습니다");
+        }
+        context = value;
+        contextAt = text.length();
+        return this;
+    }
+
+    public Prompt build() {
+        if (built) {
+            throw new IllegalStateException("이미 만든 프롬프트입니다");
+        }
+        built = true;
+
+        int tokens = TokenEstimator.estimate(text);
+        int dropped = 0;
+        if (context != null) {
+            tokens += TokenEstimator.estimate(context.header()) + TokenEstimator.estimate(context.footer());
+            int count = context.size();
+            int first = firstKept(count, maxTokens - tokens);
+            if (first > 0) {
+                // 요약 줄 자리를 빼고 다시
+                first = firstKept(count, maxTokens - tokens - NOTE_TOKENS);
+            }
+            dropped = first;
+
+            // contextAt 에 뒤쪽부터 끼워 넣음: footer ← 항목 ← 요약 ← header
+            StringBuilder entries = context.text;
+            text.insert(contextAt, context.footer());
+            if (first < count) {
+                text.insert(contextAt, entries, context.entryFrom(first), context.entryTo(count - 1));
+                tokens += TokenEstimator.estimate(entries, context.entryFrom(first), context.entryTo(count - 1));
+            }
+            if (dropped > 0) {
+                String note = omittedNote(dropped, context.emotionCounts(dropped));
+                text.insert(contextAt, note);
+                tokens += TokenEstimator.estimate(note);
+            }
+            text.insert(contextAt, context.header());
+            release(entries);
+        }
+
+        String result = text.toString();
+        release(text);
+
+        Metrics.counter("prompts_total", "kind", kind).increment();
+        Metrics.counter("prompt_tokens_total", "kind", kind).add(tokens);
+        if (dropped > 0) {
+            Metrics.counter("prompt_context_dropped_total", "kind", kind).add(dropped);
+        }
+        int finalTokens = tokens;
+        int finalDropped = dropped;
+        Log.debug(() -> "📏 프롬프트(" + kind + ") 약 " + finalTokens + "토큰 / 예산 " + maxTokens
+            + (finalDropped > 0 ? " (맥락 " + finalDropped + "개 생략)" : ""));
+        return new Prompt(result, prefixAt, tokens, dropped);
+    }
+
+    // 최신 항목부터 available 안에 드는 만큼 → 남길 첫 항목 번호 (count 면 하나도 안 남김)
+    private int firstKept(int count, int available) {
+        int used = 0;
+        int first = count;
+        while (first > 0) {
+            int cost = TokenEstimator.estimate(context.text, context.entryFrom(first - 1), context.entryTo(first - 1));
+            if (used + cost > available) {
+                break;
+            }
+            used += cost;
+            first--;
+        }
+        return first;
+    }
+
+    private static String omittedNote(int dropped, int[] emotionCounts) {
+        StringBuilder note = new StringBuilder();
+        note.append("(더 이전 대화 ").append(dropped).append("개 생략");
+        String separator = " · 감정: ";
+        Emotion[] emotions = Emotion.values();
+        for (int i = 0; i < emotions.length; i++) {
+            if (emotionCounts[i] > 0) {
+                note.append(separator).append(emotions[i].getKorean()).append(' ').append(emotionCounts[i]);
+                separator = ", ";
+            }
+        }
+        return note.append(")\n\n").toString();
+    }
+
+    // ===== 버퍼 풀 =====
+
+    static StringBuilder borrow() {
+        StringBuilder sb = POOL.poll();
+        return sb != null ? sb : new StringBuilder(INITIAL_CAPACITY);
+    }
+
+    static void release(StringBuilder sb) {
+        if (sb.capacity() > MAX_POOLED_CAPACITY) {
+            return;
+        }
+        sb.setLength(0);
+        POOL.offer(sb);
+    }
+}
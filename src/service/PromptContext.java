@@ -0,0 +1,112 @@
+package service;
+
+import model.Emotion;
+
+import java.util.Arrays;
+
+/**
+ * 프롬프트에 넣을 대화 맥락 (시간순 항목 목록)
+ *
+ * - 항목은 beginEntry → append … → endEntry 로 하나씩 채운다 (String.format 없이 버퍼에 바로, 항목 밖 append 는 다음 항목에 붙음)
+ * - 예산이 모자라면 PromptBuilder 가 오래된 항목부터 빼고, 뺀 항목은 개수/감정 한 줄 요약으로 바꾼다
+ * - 버퍼는 PromptBuilder 풀에서 빌려 쓰고, 프롬프트를 만들 때(build) 돌려준다
+ *
+ * 한 스레드에서 만들고 한 번 쓰는 용도 (동기화 없음)
+ */
+public final class PromptContext {
+
+    final StringBuilder text = PromptBuilder.borrow();
+    private final String header;
+    private final String footer;
+    private int[] entryEnds = new int[16];
+    private byte[] entryEmotions = new byte[16];
+    private int entryCount;
+    private int entryStart = -1;
+
+    /**
+     * header: 항목 앞에 한 번 (예: "이전 대화 맥락:\n\n"), footer: 항목 뒤에 한 번. 둘 다 빼지 않는다
+     */
+    public PromptContext(String header, String footer) {
+        this.header = header != null ? header : "";
+        this.footer = footer != null ? footer : "";
+    }
+
+    public PromptContext beginEntry() {
+        return beginEntry(null);
+    }
+
+    // emotion: 이 항목의 감정 (생략 요약에 씀, 없으면 null)
+    public PromptContext beginEntry(Emotion emotion) {
+        if (entryStart >= 0) {
+            throw new IllegalStateException("endEntry 없이 beginEntry");
+        }
+        if (entryCount == entryEnds.length) {
+            entryEnds = Arrays.copyOf(entryEnds, entryCount * 2);
+            entryEmotions = Arrays.copyOf(entryEmotions, entryCount * 2);
+        }
+        entryEmotions[entryCount] = (byte) (emotion != null ? emotion.ordinal() : -1);
+        entryStart = text.length();
+        return this;
+    }
+
+    public PromptContext append(CharSequence value) {
+        text.append(value);
+        return this;
+    }
+
+    public PromptContext append(char value) {
+        text.append(value);
+        return this;
+    }
+
+    public PromptContext append(int value) {
+        text.append(value);
+        return this;
+    }
+
+    public PromptContext endEntry() {
+        if (entryStart < 0) {
+            throw new IllegalStateException("beginEntry 없이 endEntry");
+        }
+        entryEnds[entryCount++] = text.length();
+        entryStart = -1;
+        return this;
+    }
+
+    public int size() {
+        return entryCount;
+    }
+
+    public boolean isEmpty() {
+        return entryCount == 0;
+    }
+
+    // ===== PromptBuilder 용 =====
+
+    String header() {
+        return header;
+    }
+
+    String footer() {
+        return footer;
+    }
+
+    int entryFrom(int i) {
+        return i == 0 ? 0 : entryEnds[i - 1];
+    }
+
+    int entryTo(int i) {
+        return entryEnds[i];
+    }
+
+    // 앞쪽 count 개 항목의 감정별 개수 (ordinal 순)
+    int[] emotionCounts(int count) {
+        int[] counts = new int[Emotion.values().length];
+        for (int i = 0; i < count; i++) {
+            if (entryEmotions[i] >= 0) {
+                counts[entryEmotions[i]]++;
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,48 @@
+package service;
+
+import metrics.Metrics;
+
+/**
+ * 토큰 버킷 (분당 permitsPerMinute 개, 최대 burst 개까지 몰아서)
+ *
+ * - acquire 는 토큰이 생길 때까지 기다린다 (여러 스레드가 동시에 불러도 순서대로 자리를 예약)
+ * - permitsPerMinute <= 0 이면 제한 없음
+ * - 기다린 시간은 rate_limit_wait_seconds{name} 에 기록
+ */
+public class RateLimiter {
+
+    private final String name;
+    private final double nanosPerPermit;
+    private final double burst;
+    private double available;
+    private long refilledAt = System.nanoTime();
+
+    public RateLimiter(String name, int permitsPerMinute, int burst) {
+        this.name = name;
+        this.nanosPerPermit = permitsPerMinute > 0 ? 60_000_000_000.0 / permitsPerMinute : 0;
+        this.burst = Math.max(1, burst);
+        this.available = this.burst;
+    }
+
+    public void acquire() throws InterruptedException {
+        if (nanosPerPermit == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        long wait = reserve();
+        if (wait > 0) {
+            Log.debug(() -> "⏳ 호출 한도 대기 (" + name + "): " + wait / 1_000_000 + "ms");
+            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+        }
+        Metrics.histogram("rate_limit_wait_seconds", "name", name).recordSince(start);
+    }
+
+    // 토큰 하나를 가져가고 (모자라면 빚으로) 기다려야 할 시간(ns)을 돌려줌
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        available = Math.min(burst, available + (now - refilledAt) / nanosPerPermit);
+        refilledAt = now;
+        available -= 1;
+        return available >= 0 ? 0 : (long) (-available * nanosPerPermit);
+    }
+}
@@ -0,0 +1,272 @@
+package service;
+
+import model.Message;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 상대방별 "비슷한 지난 메시지" 찾기 (분석 맥락용)
+ *
+ * - 메시지 내용 → 해시 n-gram 벡터 (MessageSearchIndex.tokens 의 바이그램/단어를 DIMENSIONS 칸에 부호 해싱, L2 정규화)
+ * - 상대방마다 float[] 하나에 벡터를 이어 붙여 둠 → 코사인 유사도 = 내적, 한 번 훑어서 상위 k 개
+ * - 처음 물어본 상대방만 만든다 (검색 색인의 문서 번호로 저장소에서 읽음). 최근 MAX_CACHED_CONTACTS 명만 들고 있음
+ * - 상대방당 최근 MAX_VECTORS 개까지만 (넘으면 오래된 절반을 버림)
+ *
+ * 문서 번호는 MessageSearchIndex 와 같다 (저장소 추가 순서)
+ * 스레드: this 로 동기화. 처음 만드는 상대방은 잠금 밖에서 읽고, 그 사이 추가된 것만 잠금 안에서 채운다
+ */
+public class SimilarMessageIndex {
+
+    public static final int DIMENSIONS = 256;
+
+    private static final int MAX_CACHED_CONTACTS = Integer.getInteger("emotion.context.cachedContacts", 8);
+    private static final int MAX_VECTORS = Integer.getInteger("emotion.context.maxVectors", 10_000);
+    private static final int LOAD_BATCH = 4096;
+
+    // 이보다 덜 비슷하면 맥락에 넣지 않음
+    private static final float MIN_SIMILARITY = 0.15f;
+
+    private static final class Table {
+        float[] vectors = new float[DIMENSIONS * 16];
+        int[] docs = new int[16];
+        int size;
+
+        int lastDoc() {
+            return size > 0 ? docs[size - 1] : -1;
+        }
+
+        void add(int doc, String content) {
+            if (size == MAX_VECTORS) {
+                // 오래된 절반 버림
+                int keep = size / 2;
+                System.arraycopy(docs, size - keep, docs, 0, keep);
+                System.arraycopy(vectors, (size - keep) * DIMENSIONS, vectors, 0, keep * DIMENSIONS);
+                size = keep;
+            }
+            if (size == docs.length) {
+                int length = Math.min(size * 2, MAX_VECTORS);
+                docs = Arrays.copyOf(docs, length);
+                vectors = Arrays.copyOf(vectors, length * DIMENSIONS);
+            }
+            Arrays.fill(vectors, size * DIMENSIONS, (size + 1) * DIMENSIONS, 0f);
+            vectorize(content, vectors, size * DIMENSIONS);
+            docs[size++] = doc;
+        }
+    }
+
+    private final MessageSearchIndex searchIndex;
+    private final MessageStore store;
+    private final Map<Integer, Table> tables = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Table> eldest) {
+            return size() > MAX_CACHED_CONTACTS;
+        }
+    };
+
+    public SimilarMessageIndex(MessageSearchIndex searchIndex, MessageStore store) {
+        this.searchIndex = searchIndex;
+        this.store = store;
+    }
+
+    // 새 메시지 (이미 만들어 둔 상대방만 반영, 나머지는 처음 물어볼 때 읽힌다)
+    public synchronized void add(int doc, int contactId, String content) {
+        Table table = tables.get(contactId);
+        if (table != null && doc > table.lastDoc()) {
+            table.add(doc, content);
+        }
+    }
+
+    public synchronized void clear() {
+        tables.clear();
+    }
+
+    /**
+     * 상대방의 가장 최근 문서 번호 count 개 (최신순)
+     */
+    public int[] recent(int contactId, int count) {
+        Table table = table(contactId);
+        synchronized (this) {
+            int n = Math.min(count, table.size);
+            int[] docs = new int[n];
+            for (int i = 0; i < n; i++) {
+                docs[i] = table.docs[table.size - 1 - i];
+            }
+            return docs;
+        }
+    }
+
+    /**
+     * text 와 가장 비슷한 상대방 메시지 k 개의 문서 번호 (비슷한 순)
+     * exclude 에 있는 번호는 건너뜀 (이미 최근 대화로 넣은 것)
+     */
+    public int[] topK(int contactId, String text, int k, int[] exclude) {
+        float[] query = new float[DIMENSIONS];
+        if (k <= 0 || !vectorize(text, query, 0)) {
+            return new int[0];
+        }
+        Table table = table(contactId);
+
+        // 점수 오름차순 작은 힙 (맨 앞이 지금까지 k 등)
+        float[] heapScores = new float[k];
+        int[] heapDocs = new int[k];
+        int heapSize = 0;
+        synchronized (this) {
+            float[] vectors = table.vectors;
+            for (int i = 0; i < table.size; i++) {
+                int base = i * DIMENSIONS;
+                float score = 0f;
+                for (int d = 0; d < DIMENSIONS; d++) {
+                    score += query[d] * vectors[base + d];
+                }
+                if (score < MIN_SIMILARITY || contains(exclude, table.docs[i])) {
+                    continue;
+                }
+                if (heapSize < k) {
+                    heapScores[heapSize] = score;
+                    heapDocs[heapSize] = table.docs[i];
+                    siftUp(heapScores, heapDocs, heapSize++);
+                } else if (score > heapScores[0]) {
+                    heapScores[0] = score;
+                    heapDocs[0] = table.docs[i];
+                    siftDown(heapScores, heapDocs, heapSize);
+                }
+            }
+        }
+
+        // 힙에서 꺼내면 낮은 점수부터 → 뒤에서부터 채움
+        int[] result = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = heapDocs[0];
+            heapScores[0] = heapScores[i];
+            heapDocs[0] = heapDocs[i];
+            siftDown(heapScores, heapDocs, i);
+        }
+        return result;
+    }
+
+    private Table table(int contactId) {
+        synchronized (this) {
+            Table table = tables.get(contactId);
+            if (table != null) {
+                return table;
+            }
+        }
+        // 처음 보는 상대방: 잠금 밖에서 읽기 (저장은 계속 받음)
+        Table table = new Table();
+        int[] docs = searchIndex.docsOf(contactId, 0);
+        fill(table, docs, Math.max(0, docs.length - MAX_VECTORS));
+        synchronized (this) {
+            Table existing = tables.get(contactId);
+            if (existing != null) {
+                return existing;
+            }
+            // 읽는 동안 추가된 메시지
+            fill(table, searchIndex.docsOf(contactId, table.lastDoc() + 1), 0);
+            tables.put(contactId, table);
+            return table;
+        }
+    }
+
+    private void fill(Table table, int[] docs, int from) {
+        for (int i = from; i < docs.length; i += LOAD_BATCH) {
+            int[] batch = Arrays.copyOfRange(docs, i, Math.min(docs.length, i + LOAD_BATCH));
+            List<Message> messages = store.findByPositions(batch);
+            if (messages.size() != batch.length) {
+                // 도중에 지워진 경우 (clearAllData) - 번호를 맞출 수 없으니 여기까지만
+                Log.warn("⚠️ 유사 메시지 색인을 다 읽지 못했습니다 (" + messages.size() + "/" + batch.length + ")");
+                return;
+            }
+            for (int j = 0; j < batch.length; j++) {
+                table.add(batch[j], messages.get(j).getContent());
+            }
+        }
+    }
+
+    // ===== 벡터 =====
+
+    /**
+     * text 의 해시 n-gram 벡터를 out[offset..offset+DIMENSIONS) 에 더하고 정규화 (out 은 0 이어야 함)
+     * 토큰이 하나도 없으면 false
+     */
+    static boolean vectorize(String text, float[] out, int offset) {
+        List<String> tokens = MessageSearchIndex.tokens(text);
+        if (tokens.isEmpty()) {
+            return false;
+        }
+        for (String token : tokens) {
+            int h = mix(token.hashCode());
+            // 아래 8비트 = 칸, 다음 비트 = 부호 (충돌이 한쪽으로 쌓이지 않게)
+            out[offset + (h & (DIMENSIONS - 1))] += (h & DIMENSIONS) != 0 ? 1f : -1f;
+        }
+        double norm = 0;
+        for (int d = 0; d < DIMENSIONS; d++) {
+            norm += out[offset + d] * out[offset + d];
+        }
+        if (norm == 0) {
+            return false;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int d = 0; d < DIMENSIONS; d++) {
+            out[offset + d] *= scale;
+        }
+        return true;
+    }
+
+    // String.hashCode 는 아래 비트가 고르지 않아서 한 번 섞음 (murmur3 fmix32)
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static boolean contains(int[] docs, int doc) {
+        for (int d : docs) {
+            if (d == doc) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void siftUp(float[] scores, int[] docs, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) {
+                return;
+            }
+            swap(scores, docs, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(float[] scores, int[] docs, int size) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+            if (scores[i] <= scores[smallest]) {
+                return;
+            }
+            swap(scores, docs, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(float[] scores, int[] docs, int a, int b) {
+        float s = scores[a];
+        scores[a] = scores[b];
+        scores[b] = s;
+        int d = docs[a];
+        docs[a] = docs[b];
+        docs[b] = d;
+    }
+}
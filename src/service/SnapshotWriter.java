@@ -0,0 +1,197 @@
+package service;
+
+import metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 파일 전체를 다시 쓰는 저장소용 스냅샷 기록기
+ *
+ * - requestWrite(): 디바운스. debounceMillis 안에 들어온 요청은 스냅샷 1번으로 합쳐짐
+ * - 기록: 같은 폴더의 임시 파일에 direct buffer + FileChannel 로 쓰고 force 한 뒤
+ *   ATOMIC_MOVE 로 교체하고 폴더도 force (교체 자체가 디스크에 남게). 도중에 죽어도 기존 파일은 온전히 남는다.
+ * - 요청마다 세대 번호를 올리고, 기록이 끝나면 시작할 때 본 세대까지 반영된 것으로 친다
+ *   → flush() 는 부른 시점의 세대가 기록될 때까지 돌아오지 않는다 (진행 중인 예약 기록이 있어도)
+ */
+public class SnapshotWriter implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final Path target;
+    private final Path temp;
+    private final long debounceMillis;
+    private final Supplier<? extends Iterable<String>> source;
+    private final String metricName;
+    private final ScheduledExecutorService scheduler;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Object ioLock = new Object();
+
+    private ScheduledFuture<?> pending;
+    // requestWrite 횟수 / 디스크에 반영된 세대 (this 로 보호)
+    private long requestedGeneration;
+    private long writtenGeneration;
+
+    public SnapshotWriter(Path target, long debounceMillis, Supplier<? extends Iterable<String>> source, String metricName) {
+        this.target = target;
+        this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+        this.debounceMillis = debounceMillis;
+        this.source = source;
+        this.metricName = metricName;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "snapshot-" + target.getFileName());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // 저장 예약 (이미 예약돼 있으면 그 예약에 합쳐짐)
+    public synchronized void requestWrite() {
+        requestedGeneration++;
+        if (pending != null && !pending.isDone()) {
+            return;
+        }
+        pending = scheduler.schedule(this::runScheduled, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void runScheduled() {
+        // 기록 도중 들어온 변경은 새 예약으로 잡히도록 먼저 비워둔다
+        synchronized (this) {
+            pending = null;
+        }
+        writeQuietly();
+    }
+
+    // 지금까지 요청된 저장이 디스크에 반영될 때까지 대기 (아직 안 됐으면 여기서 기록)
+    public void flush() {
+        long target;
+        synchronized (this) {
+            target = requestedGeneration;
+            if (pending != null) {
+                pending.cancel(false);
+                pending = null;
+            }
+        }
+        // 실행 중인 기록이 있으면 끝난 뒤에 확인 (그 기록이 target 을 덮었으면 다시 쓰지 않음)
+        synchronized (ioLock) {
+            boolean written;
+            synchronized (this) {
+                written = writtenGeneration >= target;
+            }
+            if (!written) {
+                writeQuietly();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeQuietly() {
+        try {
+            writeNow();
+        } catch (IOException e) {
+            Metrics.counter(metricName + "_failures_total").increment();
+            Log.error("❌ 스냅샷 저장 실패 (" + target + "): " + e.getMessage(), e);
+        }
+    }
+
+    // 스케줄러 스레드와 flush() 호출 스레드가 겹치지 않도록 직렬화
+    public void writeNow() throws IOException {
+        synchronized (ioLock) {
+            // source 를 읽기 전에 세대를 봐야 그 세대까지의 변경이 이번 기록에 들어간다
+            long generation;
+            synchronized (this) {
+                generation = requestedGeneration;
+            }
+            writeSnapshot();
+            synchronized (this) {
+                writtenGeneration = Math.max(writtenGeneration, generation);
+            }
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        long start = System.nanoTime();
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.clear();
+            for (String line : source.get()) {
+                encode(channel, encoder, CharBuffer.wrap(line));
+                encode(channel, encoder, CharBuffer.wrap(LINE_SEPARATOR));
+            }
+            encoder.encode(CharBuffer.allocate(0), buffer, true);
+            encoder.flush(buffer);
+            drain(channel);
+            channel.force(true);
+        }
+
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (parent != null) {
+            forceDirectory(parent);
+        }
+        Metrics.histogram(metricName + "_seconds").recordSince(start);
+    }
+
+    // 폴더 항목(이름 교체)을 디스크에 내림. 폴더를 열 수 없는 OS(Windows)에서는 건너뜀
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | UnsupportedOperationException e) {
+            Log.debug(() -> "폴더 force 건너뜀 (" + directory + "): " + e.getMessage());
+        }
+    }
+
+    private void encode(FileChannel channel, CharsetEncoder encoder, CharBuffer chars) throws IOException {
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, false);
+            if (result.isOverflow()) {
+                drain(channel);
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void drain(FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
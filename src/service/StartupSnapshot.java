@@ -0,0 +1,372 @@
+package service;
+
+import metrics.Metrics;
+import model.Emotion;
+import model.Message;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 시작 스냅샷 (<데이터>.snapshot): 전체 기록을 다 불러오기 전에 기록/통계 탭을 바로 그리기 위한 요약본
+ *
+ * - 담는 것: 전체/상대방별 감정 통계(EmotionStats 그대로, 개수/강도 합/백분위), 상대방별 최근 RECENT_PER_CONTACT 개,
+ *   상대방 목록, 오늘 메시지 수, 그리고 스냅샷을 만든 때의 데이터 파일 길이
+ * - 시작: 스냅샷을 읽고 데이터 파일에서 그 길이 뒤에 덧붙은 줄(꼬리)만 더 읽어 반영한다
+ * - 데이터 파일이 짧아졌거나(삭제) 길이 앞쪽 JOURNAL_CHECK_BYTES 가 달라졌거나(바뀜) 체크섬이 틀리면 버림
+ *   → 전체 기록을 다 불러올 때까지 불러오는 중 표시 (예전 방식)
+ * - 텍스트 저장소만 (덧붙이기만 하는 파일이라 꼬리를 이어 읽을 수 있음)
+ *
+ * 만든 뒤에는 바꾸지 않음 (불러온 스레드 → FX 스레드로 넘겨서 읽기만)
+ */
+public class StartupSnapshot implements HistoryOverview {
+
+    public static final String SUFFIX = ".snapshot";
+    public static final int RECENT_PER_CONTACT = Integer.getInteger("emotion.startup.recent", 20);
+
+    private static final int MAGIC = 0x45534E50;   // "ESNP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int JOURNAL_CHECK_BYTES = 4096;
+
+    private static final class Recent {
+        final int position;
+        final Message message;
+
+        Recent(int position, Message message) {
+            this.position = position;
+            this.message = message;
+        }
+    }
+
+    private final ContactDictionary dictionary;
+    private final EmotionStats total = new EmotionStats();
+    private final ContactStatsTable byContact = new ContactStatsTable();
+    // 상대방 이름 → 최근 메시지 (오래된 것 먼저)
+    private final Map<String, ArrayDeque<Recent>> recent = new LinkedHashMap<>();
+    private int count;
+    private long day;
+    private int dayCount;
+    private long journalLength;
+    private long journalCheck;
+
+    private StartupSnapshot(ContactDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    // ===== 만들기 (DataManager.saveStartupSnapshot) =====
+
+    /**
+     * history 는 journal 의 앞 journalLength 바이트와 같은 기록이어야 한다 (TextMessageStore 가 짝을 맞춰 넘김)
+     */
+    static StartupSnapshot capture(MessageLog.Snapshot history, ContactDictionary dictionary,
+                                   Path journal, long journalLength) throws IOException {
+        StartupSnapshot snapshot = new StartupSnapshot(dictionary);
+        ParallelStats.collect(history, snapshot.total, snapshot.byContact);
+        snapshot.count = history.size();
+        snapshot.day = LocalDate.now().toEpochDay();
+
+        // 뒤에서부터: 상대방별 최근 메시지 + 오늘 메시지 수
+        int[] taken = new int[Math.max(1, history.contactIdBound())];
+        Map<String, ArrayDeque<Recent>> newestFirst = new LinkedHashMap<>();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            if (history.epochDay(i) == snapshot.day) {
+                snapshot.dayCount++;
+            }
+            int contactId = history.contactId(i);
+            if (taken[contactId] < RECENT_PER_CONTACT) {
+                taken[contactId]++;
+                newestFirst.computeIfAbsent(history.contactName(contactId), name -> new ArrayDeque<>())
+                    .addFirst(new Recent(i, history.get(i)));
+            }
+        }
+        snapshot.recent.putAll(newestFirst);
+        snapshot.journalLength = journalLength;
+        snapshot.journalCheck = journalCheck(journal, journalLength);
+        return snapshot;
+    }
+
+    // 임시 파일에 쓰고 fsync 후 원자적 교체
+    void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        CRC32 crc = new CRC32();
+        try (OutputStream raw = Files.newOutputStream(temp);
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(raw, 1 << 16), crc);
+             DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(Emotion.values().length);
+            out.writeLong(journalLength);
+            out.writeLong(journalCheck);
+            out.writeInt(count);
+            out.writeLong(day);
+            out.writeInt(dayCount);
+            total.writeTo(out);
+            out.writeInt(recent.size());
+            for (Map.Entry<String, ArrayDeque<Recent>> entry : recent.entrySet()) {
+                String name = entry.getKey();
+                out.writeUTF(name);
+                EmotionStats stats = byContact.find(dictionary.find(name));
+                (stats != null ? stats : new EmotionStats()).writeTo(out);
+                out.writeInt(entry.getValue().size());
+                for (Recent item : entry.getValue()) {
+                    out.writeInt(item.position);
+                    byte[] line = TextMessageStore.messageToString(item.message).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(line.length);
+                    out.write(line);
+                }
+            }
+            out.flush();
+            out.writeLong(crc.getValue());
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ===== 불러오기 (MainApp 시작) =====
+
+    /**
+     * 배경 스레드에서 읽고 꼬리까지 반영. 없거나 맞지 않으면 null
+     */
+    public static CompletableFuture<StartupSnapshot> loadAsync() {
+        CompletableFuture<StartupSnapshot> future = new CompletableFuture<>();
+        if (!"text".equalsIgnoreCase(Stores.MESSAGE_STORE)) {
+            future.complete(null);
+            return future;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                Path journal = Paths.get(Stores.DATA_FILE);
+                future.complete(load(Paths.get(Stores.DATA_FILE + SUFFIX), journal, Stores.contactDictionary()));
+            } catch (Throwable e) {
+                Log.warn("⚠️ 시작 스냅샷을 쓰지 못했습니다: " + e.getMessage());
+                future.complete(null);
+            }
+        }, "snapshot-load");
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    static StartupSnapshot load(Path file, Path journal, ContactDictionary dictionary) {
+        if (!Files.exists(file)) {
+            Metrics.counter("startup_snapshot_loads_total", "result", "missing").increment();
+            return null;
+        }
+        long start = System.nanoTime();
+        StartupSnapshot snapshot = read(file, journal, dictionary);
+        if (snapshot == null) {
+            Metrics.counter("startup_snapshot_loads_total", "result", "invalid").increment();
+            return null;
+        }
+        int tail;
+        try {
+            tail = snapshot.replayTail(journal);
+        } catch (IOException e) {
+            Log.warn("⚠️ 시작 스냅샷 뒤 기록을 읽지 못해 버립니다: " + e.getMessage());
+            Metrics.counter("startup_snapshot_loads_total", "result", "invalid").increment();
+            return null;
+        }
+        Metrics.counter("startup_snapshot_loads_total", "result", "ok").increment();
+        Metrics.counter("startup_snapshot_tail_messages_total").add(tail);
+        Metrics.histogram("startup_snapshot_load_seconds").recordSince(start);
+        Log.info("⚡ 시작 스냅샷: 메시지 " + snapshot.count + "개 (뒤에 추가된 " + tail + "개 반영, "
+            + (System.nanoTime() - start) / 1_000_000 + "ms)");
+        return snapshot;
+    }
+
+    private static StartupSnapshot read(Path file, Path journal, ContactDictionary dictionary) {
+        CRC32 crc = new CRC32();
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+             CheckedInputStream checked = new CheckedInputStream(raw, crc);
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readInt() != Emotion.values().length) {
+                Log.warn("⚠️ 시작 스냅샷 형식이 달라 쓰지 않습니다: " + file);
+                return null;
+            }
+            StartupSnapshot snapshot = new StartupSnapshot(dictionary);
+            snapshot.journalLength = in.readLong();
+            snapshot.journalCheck = in.readLong();
+            snapshot.count = in.readInt();
+            snapshot.day = in.readLong();
+            snapshot.dayCount = in.readInt();
+            snapshot.total.readFrom(in);
+            int contacts = in.readInt();
+            for (int c = 0; c < contacts; c++) {
+                String name = in.readUTF();
+                snapshot.byContact.get(dictionary.idOf(name)).readFrom(in);
+                int size = in.readInt();
+                ArrayDeque<Recent> items = new ArrayDeque<>(size);
+                for (int i = 0; i < size; i++) {
+                    int position = in.readInt();
+                    byte[] line = new byte[in.readInt()];
+                    in.readFully(line);
+                    Message message = TextMessageStore.stringToMessage(new String(line, StandardCharsets.UTF_8));
+                    if (message == null) {
+                        throw new IOException("메시지를 읽을 수 없음");
+                    }
+                    items.addLast(new Recent(position, message));
+                }
+                snapshot.recent.put(name, items);
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                Log.warn("⚠️ 시작 스냅샷 체크섬이 맞지 않아 쓰지 않습니다: " + file);
+                return null;
+            }
+            if (!Files.exists(journal) || Files.size(journal) < snapshot.journalLength
+                    || journalCheck(journal, snapshot.journalLength) != snapshot.journalCheck) {
+                Log.warn("⚠️ 데이터 파일이 스냅샷 이후 바뀌어 쓰지 않습니다: " + journal);
+                return null;
+            }
+            return snapshot;
+        } catch (EOFException e) {
+            Log.warn("⚠️ 시작 스냅샷이 잘려 있어 쓰지 않습니다: " + file);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            Log.warn("⚠️ 시작 스냅샷을 읽지 못했습니다: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 스냅샷 뒤에 덧붙은 줄을 반영하고 그 개수를 돌려줌
+    private int replayTail(Path journal) throws IOException {
+        long today = LocalDate.now().toEpochDay();
+        if (day != today) {
+            // 다른 날 만든 스냅샷: 오늘 수는 꼬리에서만 센다
+            day = today;
+            dayCount = 0;
+        }
+        int replayed = 0;
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ)) {
+            channel.position(journalLength);
+            BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8), 1 << 16);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Message message = TextMessageStore.stringToMessage(line);
+                if (message != null) {
+                    add(message);
+                    replayed++;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    private void add(Message message) {
+        int contactId = dictionary.idOf(message.getContactName());
+        total.accept(message.getEmotion(), message.getIntensity());
+        byContact.get(contactId).accept(message.getEmotion(), message.getIntensity());
+        if (message.getTimestamp().toLocalDate().toEpochDay() == day) {
+            dayCount++;
+        }
+        ArrayDeque<Recent> items = recent.computeIfAbsent(message.getContactName(), name -> new ArrayDeque<>());
+        items.addLast(new Recent(count++, message));
+        if (items.size() > RECENT_PER_CONTACT) {
+            items.removeFirst();
+        }
+    }
+
+    // 데이터 파일 [length - JOURNAL_CHECK_BYTES, length) 의 CRC32 (파일이 통째로 바뀌었는지 확인)
+    private static long journalCheck(Path journal, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        if (length == 0) {
+            return crc.getValue();
+        }
+        int size = (int) Math.min(JOURNAL_CHECK_BYTES, length);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ)) {
+            long position = length - size;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    throw new EOFException();
+                }
+            }
+        }
+        buffer.flip();
+        crc.update(buffer);
+        return crc.getValue();
+    }
+
+    // ===== 조회 (HistoryOverview) =====
+
+    @Override
+    public int getTotalMessageCount() {
+        return count;
+    }
+
+    // 오늘 = 스냅샷을 불러온 날
+    @Override
+    public int getTodayMessageCount() {
+        return dayCount;
+    }
+
+    @Override
+    public void collectStats(EmotionStats total, ContactStatsTable byContact) {
+        total.merge(this.total);
+        if (byContact != null) {
+            byContact.merge(this.byContact);
+        }
+    }
+
+    @Override
+    public ContactDictionary getContactDictionary() {
+        return dictionary;
+    }
+
+    // 상대방별 최근 목록을 합쳐 최신순으로 (count 가 RECENT_PER_CONTACT 이하면 전체 최근과 같음)
+    @Override
+    public List<Message> getRecentMessages(int count) {
+        List<Recent> all = new ArrayList<>();
+        for (ArrayDeque<Recent> items : recent.values()) {
+            all.addAll(items);
+        }
+        all.sort((a, b) -> Integer.compare(b.position, a.position));
+        List<Message> messages = new ArrayList<>(Math.min(count, all.size()));
+        for (int i = 0; i < all.size() && i < count; i++) {
+            messages.add(all.get(i).message);
+        }
+        return messages;
+    }
+
+    @Override
+    public Set<String> getAllContactNames() {
+        return new HashSet<>(recent.keySet());
+    }
+}
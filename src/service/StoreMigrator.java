@@ -0,0 +1,104 @@
+package service;
+
+import model.Contact;
+import model.Message;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 저장소 간 데이터 옮기기 도구
+ *
+ * 사용법:
+ *   java -cp ... service.StoreMigrator messages text h2 [--replace]
+ *   java -cp ... service.StoreMigrator contacts kv h2 [--replace]
+ *
+ * 대상 저장소에 이미 데이터가 있으면 --replace 를 줘야 비우고 옮긴다.
+ * 원본은 건드리지 않는다. 경로는 Stores 의 설정(-Demotion.h2.path 등)을 그대로 쓴다.
+ */
+public final class StoreMigrator {
+
+    private static final int BATCH = 10_000;
+
+    private StoreMigrator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("사용법: StoreMigrator messages|contacts <from> <to> [--replace]");
+            System.err.println("  messages: text | h2");
+            System.err.println("  contacts: kv | text | h2");
+            System.exit(2);
+        }
+        boolean replace = args.length > 3 && "--replace".equals(args[3]);
+
+        if ("messages".equals(args[0])) {
+            migrateMessages(args[1], args[2], replace);
+        } else if ("contacts".equals(args[0])) {
+            migrateContacts(args[1], args[2], replace);
+        } else {
+            System.err.println("❌ 알 수 없는 대상: " + args[0]);
+            System.exit(2);
+        }
+    }
+
+    public static int migrateMessages(String from, String to, boolean replace) throws SQLException {
+        if (from.equalsIgnoreCase(to)) {
+            throw new IllegalArgumentException("원본과 대상이 같습니다: " + from);
+        }
+        long start = System.nanoTime();
+        try (MessageStore source = Stores.createMessageStore(from);
+             MessageStore target = Stores.createMessageStore(to)) {
+
+            if (target.count() > 0) {
+                if (!replace) {
+                    throw new IllegalStateException("대상 저장소(" + to + ")에 이미 메시지 "
+                        + target.count() + "개가 있습니다. --replace 로 덮어쓰세요.");
+                }
+                target.clear().join();
+            }
+
+            List<Message> messages = source.findAll();
+            for (int i = 0; i < messages.size(); i += BATCH) {
+                target.appendAll(messages.subList(i, Math.min(messages.size(), i + BATCH))).join();
+            }
+            target.flush().join();
+
+            int copied = target.count();
+            if (copied != messages.size()) {
+                throw new IllegalStateException("옮긴 개수가 다릅니다: " + messages.size() + " → " + copied);
+            }
+            Log.info(String.format("✅ 메시지 %d개 옮김 (%s → %s, %.1f초)",
+                copied, from, to, (System.nanoTime() - start) / 1e9));
+            return copied;
+        }
+    }
+
+    public static int migrateContacts(String from, String to, boolean replace) throws IOException, SQLException {
+        if (from.equalsIgnoreCase(to)) {
+            throw new IllegalArgumentException("원본과 대상이 같습니다: " + from);
+        }
+        try (ContactStore source = Stores.createContactStore(from);
+             ContactStore target = Stores.createContactStore(to)) {
+
+            List<Contact> existing = target.loadAll();
+            if (!existing.isEmpty()) {
+                if (!replace) {
+                    throw new IllegalStateException("대상 저장소(" + to + ")에 이미 연락처 "
+                        + existing.size() + "개가 있습니다. --replace 로 덮어쓰세요.");
+                }
+                target.clear();
+            }
+
+            List<Contact> contacts = source.loadAll();
+            for (Contact contact : contacts) {
+                target.put(contact);
+            }
+            target.flush();
+
+            Log.info("✅ 연락처 " + contacts.size() + "개 옮김 (" + from + " → " + to + ")");
+            return contacts.size();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+
+/**
+ * 설정(-D 시스템 속성)에 따라 저장소 구현을 고른다.
+ *
+ * - emotion.store          : 메시지 저장소 text (기본, emotion_data.txt) | h2
+ * - emotion.contacts.store : 연락처 저장소 kv (기본, data/contacts.kv) | text (data/contacts.txt) | h2
+ * - emotion.h2.path        : H2 DB 파일 경로 (확장자 제외, 기본 data/emotion)
+ */
+public final class Stores {
+
+    public static final String DATA_FILE = "emotion_data.txt";
+    public static final String CONTACTS_FILE = "data/contacts.txt";
+    public static final String CONTACTS_KV_FILE = "data/contacts.kv";
+    public static final String CONTACT_IDS_FILE = "data/contact_ids.txt";
+    public static final String OCR_CACHE_FILE = "data/ocr_cache.bin";
+
+    public static final String MESSAGE_STORE = System.getProperty("emotion.store", "text");
+    public static final String CONTACT_STORE = System.getProperty("emotion.contacts.store", "kv");
+    public static final Path H2_PATH = Paths.get(System.getProperty("emotion.h2.path", "data/emotion"));
+
+    // 그룹 커밋: 이 시간(ms) 동안 또는 이 개수까지 모아서 한 번에 기록
+    public static final long COMMIT_WINDOW_MS = Long.getLong("emotion.commit.windowMs", 2);
+    public static final int COMMIT_MAX_BATCH = Integer.getInteger("emotion.commit.maxBatch", 512);
+
+    // 연달아 수정해도 이 시간(ms) 안의 변경은 스냅샷 1번으로 저장 (text 연락처 저장소)
+    public static final long SNAPSHOT_DEBOUNCE_MS = Long.getLong("emotion.snapshot.debounceMs", 200);
+
+    private static ContactDictionary contactDictionary;
+
+    private Stores() {
+    }
+
+    // 상대방 이름 ↔ id 사전 (프로세스에 하나, 실행 간 id 유지)
+    public static synchronized ContactDictionary contactDictionary() {
+        if (contactDictionary == null) {
+            contactDictionary = new ContactDictionary(Paths.get(CONTACT_IDS_FILE));
+        }
+        return contactDictionary;
+    }
+
+    // 설정대로 열고, 실패하면 기본 텍스트 저장소로 (앱 시작용)
+    public static MessageStore openMessageStore() {
+        try {
+            return createMessageStore(MESSAGE_STORE);
+        } catch (SQLException | IllegalArgumentException e) {
+            Log.error("❌ 메시지 저장소(" + MESSAGE_STORE + ")를 열 수 없어 텍스트 저장소를 사용합니다: " + e.getMessage(), e);
+            return createTextMessageStore();
+        }
+    }
+
+    public static ContactStore openContactStore() {
+        try {
+            return createContactStore(CONTACT_STORE);
+        } catch (IOException | SQLException | IllegalArgumentException e) {
+            Log.error("❌ 연락처 저장소(" + CONTACT_STORE + ")를 열 수 없어 텍스트 저장소를 사용합니다: " + e.getMessage(), e);
+            return new TextContactStore(Paths.get(CONTACTS_FILE), SNAPSHOT_DEBOUNCE_MS);
+        }
+    }
+
+    // 지정한 구현 그대로 연다 (대체 없음, 마이그레이션 도구용)
+    public static MessageStore createMessageStore(String kind) throws SQLException {
+        switch (kind.toLowerCase()) {
+            case "text":
+                return createTextMessageStore();
+            case "h2":
+                return new H2MessageStore(H2_PATH, COMMIT_MAX_BATCH, contactDictionary());
+            default:
+                throw new IllegalArgumentException("알 수 없는 메시지 저장소: " + kind);
+        }
+    }
+
+    public static ContactStore createContactStore(String kind) throws IOException, SQLException {
+        switch (kind.toLowerCase()) {
+            case "kv":
+                return new KvContactStore(Paths.get(CONTACTS_KV_FILE), Paths.get(CONTACTS_FILE));
+            case "text":
+                return new TextContactStore(Paths.get(CONTACTS_FILE), SNAPSHOT_DEBOUNCE_MS);
+            case "h2":
+                return new H2ContactStore(H2_PATH);
+            default:
+                throw new IllegalArgumentException("알 수 없는 연락처 저장소: " + kind);
+        }
+    }
+
+    private static MessageStore createTextMessageStore() {
+        return new TextMessageStore(DATA_FILE, COMMIT_WINDOW_MS, COMMIT_MAX_BATCH, contactDictionary());
+    }
+}
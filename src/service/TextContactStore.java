@@ -0,0 +1,161 @@
+package service;
+
+import model.Contact;
+import model.MBTI;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 기존 contacts.txt 형식 저장소 (한 줄에 연락처 1개, '|' 구분)
+ * 변경이 있으면 파일 전체를 SnapshotWriter 로 다시 쓴다.
+ */
+public class TextContactStore implements ContactStore {
+
+    private final Path file;
+    private final ConcurrentSkipListMap<String, Contact> contacts = new ConcurrentSkipListMap<>();
+    private final SnapshotWriter snapshotWriter;
+
+    public TextContactStore(Path file, long debounceMillis) {
+        this.file = file;
+        this.snapshotWriter = new SnapshotWriter(file, debounceMillis, this::snapshotLines, "contacts_save");
+        load();
+    }
+
+    @Override
+    public List<Contact> loadAll() {
+        return new ArrayList<>(contacts.values());
+    }
+
+    @Override
+    public void put(Contact contact) {
+        contacts.put(contact.getName(), contact);
+        snapshotWriter.requestWrite();
+    }
+
+    @Override
+    public void remove(String name) {
+        if (contacts.remove(name) != null) {
+            snapshotWriter.requestWrite();
+        }
+    }
+
+    @Override
+    public void clear() {
+        contacts.clear();
+        snapshotWriter.requestWrite();
+    }
+
+    @Override
+    public List<String> namesWithPrefix(String prefix, int limit) {
+        List<String> names = new ArrayList<>();
+        for (String name : contacts.tailMap(prefix, true).keySet()) {
+            if (!name.startsWith(prefix) || names.size() >= limit) {
+                break;
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    @Override
+    public void flush() {
+        snapshotWriter.flush();
+    }
+
+    @Override
+    public void close() {
+        snapshotWriter.close();
+    }
+
+    private List<String> snapshotLines() {
+        List<String> lines = new ArrayList<>(contacts.size());
+        for (Contact contact : contacts.values()) {
+            lines.add(contactToString(contact));
+        }
+        return lines;
+    }
+
+    private void load() {
+        File source = file.toFile();
+        if (!source.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8))) {
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Contact contact = stringToContact(line);
+                if (contact != null) {
+                    contacts.put(contact.getName(), contact);
+                }
+            }
+
+        } catch (IOException e) {
+            Log.error("❌ 연락처 로드 실패: " + e.getMessage(), e);
+        }
+    }
+
+    static String contactToString(Contact contact) {
+        String name = contact.getName().replace("|", "｜");
+        String mbti = contact.getMbti().name();
+        String notes = contact.getNotes().replace("|", "｜").replace("\n", "\\n");
+        String profile = (contact.getAutoGeneratedProfile() != null ?
+            contact.getAutoGeneratedProfile() : "").replace("|", "｜").replace("\n", "\\n"); // 🆕
+        String createdAt = contact.getCreatedAt().toString();
+        String updatedAt = contact.getUpdatedAt().toString();
+        String summary = (contact.getConversationSummary() != null ?
+            contact.getConversationSummary() : "").replace("|", "｜").replace("\n", "\\n");
+
+        return String.format("%s|%s|%s|%s|%s|%s|%s|%d",
+            name, mbti, notes, profile, createdAt, updatedAt,
+            summary, contact.getSummaryMessageCount()); // 🆕 대화 요약 추가
+    }
+
+    static Contact stringToContact(String str) {
+        try {
+            String[] parts = str.split("\\|");
+            if (parts.length < 3) {
+                return null;
+            }
+
+            String name = parts[0].replace("｜", "|");
+            MBTI mbti = MBTI.valueOf(parts[1]);
+            String notes = parts[2].replace("｜", "|").replace("\\n", "\n");
+
+            Contact contact = new Contact(name, mbti, notes);
+
+            // 🆕 자동 프로필 로드
+            if (parts.length >= 4 && !parts[3].isEmpty()) {
+                String profile = parts[3].replace("｜", "|").replace("\\n", "\n");
+                contact.setAutoGeneratedProfile(profile);
+            }
+
+            // 🔧 인덱스 변경 (profile이 추가되어서 +1)
+            if (parts.length >= 6) {
+                contact.setCreatedAt(LocalDateTime.parse(parts[4]));
+                contact.setUpdatedAt(LocalDateTime.parse(parts[5]));
+            }
+
+            // 🆕 대화 요약 (예전 형식엔 없음)
+            if (parts.length >= 8 && !parts[6].isEmpty()) {
+                LocalDateTime updatedAt = contact.getUpdatedAt();
+                contact.setConversationSummary(parts[6].replace("｜", "|").replace("\\n", "\n"),
+                    Integer.parseInt(parts[7]));
+                contact.setUpdatedAt(updatedAt);
+            }
+
+            return contact;
+
+        } catch (Exception e) {
+            Log.warn("⚠️ 연락처 파싱 실패: " + e.getMessage());
+            return null;
+        }
+    }
+}
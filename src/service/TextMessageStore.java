@@ -0,0 +1,336 @@
+package service;
+
+import metrics.Metrics;
+import model.Emotion;
+import model.Message;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 기존 emotion_data.txt 형식 저장소 (한 줄에 메시지 1개, '|' 구분)
+ *
+ * 전체 기록을 메모리(MessageLog)에 들고 조회/집계는 자바에서 처리한다.
+ * 파일에는 GroupCommitWriter 로 묶어서 덧붙인다.
+ */
+public class TextMessageStore implements MessageStore {
+
+    private static final int LOAD_BATCH = 4096;
+
+    private final String dataFile;
+    private final ContactDictionary dictionary;
+    private final MessageLog messageHistory;
+    private final Object appendLock = new Object();
+    private final GroupCommitWriter writer;
+
+    public TextMessageStore(String dataFile, long commitWindowMillis, int commitMaxBatch) {
+        this(dataFile, commitWindowMillis, commitMaxBatch, new ContactDictionary());
+    }
+
+    public TextMessageStore(String dataFile, long commitWindowMillis, int commitMaxBatch,
+                            ContactDictionary dictionary) {
+        this.dataFile = dataFile;
+        this.dictionary = dictionary;
+        this.messageHistory = new MessageLog(dictionary);
+        loadData();
+        this.writer = new GroupCommitWriter(Paths.get(dataFile), commitWindowMillis, commitMaxBatch);
+        Metrics.gauge("data_offheap_bytes", this::offHeapBytes);
+    }
+
+    @Override
+    public CompletableFuture<Void> append(Message message) {
+        // 메모리 순서와 파일 순서를 맞추기 위해 추가와 제출을 함께 묶음
+        synchronized (appendLock) {
+            messageHistory.append(message);
+            return writer.submit(messageToString(message));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> appendAll(Collection<Message> messages) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(messages.size());
+        synchronized (appendLock) {
+            messageHistory.appendAll(messages);
+            for (Message message : messages) {
+                futures.add(writer.submit(messageToString(message)));
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    @Override
+    public CompletableFuture<Void> flush() {
+        return writer.flush();
+    }
+
+    @Override
+    public CompletableFuture<Void> clear() {
+        synchronized (appendLock) {
+            messageHistory.clear();
+            return writer.truncate();
+        }
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+
+    // 메모리 기록과 파일 길이를 짝지어 잡는다 (그동안만 추가를 막고, 요약 만들기는 락 밖에서)
+    @Override
+    public StartupSnapshot captureSnapshot() throws IOException {
+        MessageLog.Snapshot history;
+        long length;
+        synchronized (appendLock) {
+            writer.flush().join();
+            history = messageHistory.snapshot();
+            Path file = Paths.get(dataFile);
+            length = Files.exists(file) ? Files.size(file) : 0;
+        }
+        return StartupSnapshot.capture(history, dictionary, Paths.get(dataFile), length);
+    }
+
+    @Override
+    public Path sidecarFile(String suffix) {
+        return Paths.get(dataFile + suffix);
+    }
+
+    @Override
+    public ContactDictionary contactDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public List<Message> findAll() {
+        return new ArrayList<>(messageHistory.snapshot());
+    }
+
+    @Override
+    public List<Message> findBetween(LocalDateTime from, LocalDateTime to) {
+        MessageLog.Snapshot history = messageHistory.snapshot();
+        long fromNanos = MessageLog.toNanos(from);
+        long toNanos = MessageLog.toNanos(to);
+        List<Message> result = new ArrayList<>();
+        for (int i = 0; i < history.size(); i++) {
+            long t = history.timestampNanos(i);
+            if (t >= fromNanos && t < toNanos) {
+                result.add(history.get(i));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Message> findByEmotion(Emotion emotion) {
+        MessageLog.Snapshot history = messageHistory.snapshot();
+        List<Message> result = new ArrayList<>();
+        for (int i = 0; i < history.size(); i++) {
+            if (history.emotion(i) == emotion) {
+                result.add(history.get(i));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Message> findByContact(String contactName, int limit) {
+        MessageLog.Snapshot history = messageHistory.snapshot();
+        int contactId = history.contactIdOf(contactName);
+        if (contactId < 0) {
+            return new ArrayList<>();
+        }
+
+        // 뒤에서부터 찾아 최근 limit개만 Message 로 만든다
+        int wanted = limit <= 0 ? Integer.MAX_VALUE : limit;
+        List<Message> result = new ArrayList<>();
+        for (int i = history.size() - 1; i >= 0 && result.size() < wanted; i--) {
+            if (history.contactId(i) == contactId) {
+                result.add(history.get(i));
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    @Override
+    public List<Message> findRecent(int count) {
+        List<Message> history = messageHistory.snapshot();
+        int size = history.size();
+        int startIndex = Math.max(0, size - count);
+
+        List<Message> recent = new ArrayList<>(history.subList(startIndex, size));
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    @Override
+    public List<Message> findByPositions(int[] positions) {
+        MessageLog.Snapshot history = messageHistory.snapshot();
+        List<Message> result = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            if (position >= 0 && position < history.size()) {
+                result.add(history.get(position));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Set<String> contactNames() {
+        MessageLog.Snapshot history = messageHistory.snapshot();
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < history.contactCount(); i++) {
+            names.add(history.contactName(history.presentContactId(i)));
+        }
+        return names;
+    }
+
+
+    @Override
+    public Map<Emotion, Integer> countByEmotion() {
+        EmotionStats stats = new EmotionStats();
+        collectStats(stats, null);
+        Map<Emotion, Integer> distribution = new EnumMap<>(Emotion.class);
+        for (Emotion emotion : Emotion.values()) {
+            if (stats.count(emotion) > 0) {
+                distribution.put(emotion, (int) stats.count(emotion));
+            }
+        }
+        return distribution;
+    }
+
+    @Override
+    public double averageIntensity() {
+        EmotionStats stats = new EmotionStats();
+        collectStats(stats, null);
+        return stats.averageIntensity();
+    }
+
+    @Override
+    public void scan(RowVisitor visitor) {
+        MessageLog.Snapshot history = messageHistory.snapshot();
+        for (int i = 0; i < history.size(); i++) {
+            visitor.visit(history.timestampNanos(i), history.emotion(i).ordinal(),
+                history.intensity(i), history.contactId(i));
+        }
+    }
+
+    @Override
+    public void collectStats(EmotionStats total, ContactStatsTable byContact) {
+        // 기록이 크면 fork-join 으로 나눠서 (작으면 ParallelStats 가 알아서 순차)
+        ParallelStats.collect(messageHistory.snapshot(), total, byContact);
+    }
+
+    @Override
+    public int count() {
+        return messageHistory.size();
+    }
+
+    @Override
+    public int countBetween(LocalDateTime from, LocalDateTime to) {
+        MessageLog.Snapshot history = messageHistory.snapshot();
+        long fromNanos = MessageLog.toNanos(from);
+        long toNanos = MessageLog.toNanos(to);
+        int count = 0;
+        for (int i = 0; i < history.size(); i++) {
+            long t = history.timestampNanos(i);
+            if (t >= fromNanos && t < toNanos) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // 힙 밖에 잡아둔 기록 크기 (게이지용)
+    public long offHeapBytes() {
+        return messageHistory.snapshot().offHeapBytes();
+    }
+
+    private void loadData() {
+        File file = new File(dataFile);
+
+        if (!file.exists()) {
+            Log.info("📄 데이터 파일이 없습니다. 새로 시작합니다.");
+            return;
+        }
+
+        long start = System.nanoTime();
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+
+            String line;
+            int loadCount = 0;
+            // 읽는 대로 LOAD_BATCH 개씩 MessageLog 로 옮김 (전체 기록을 Message 객체로 한꺼번에 들지 않음)
+            List<Message> loaded = new ArrayList<>(LOAD_BATCH);
+
+            while ((line = reader.readLine()) != null) {
+                Message msg = stringToMessage(line);
+                if (msg != null) {
+                    loaded.add(msg);
+                    loadCount++;
+                    if (loaded.size() == LOAD_BATCH) {
+                        messageHistory.appendAll(loaded);
+                        loaded.clear();
+                    }
+                }
+            }
+            messageHistory.appendAll(loaded);
+
+            Log.info("✅ " + loadCount + "개의 메시지를 불러왔습니다.");
+
+        } catch (IOException e) {
+            Log.error("❌ 데이터 로드 실패: " + e.getMessage(), e);
+        }
+        Metrics.histogram("data_load_seconds").recordSince(start);
+    }
+
+    // 🆕 contactName 포함하여 저장
+    public static String messageToString(Message msg) {
+        String content = msg.getContent().replace("|", "｜");
+        String response = msg.getRecommendedResponse().replace("|", "｜");
+        String contactName = msg.getContactName().replace("|", "｜");
+
+        return String.format("%s|%s|%.3f|%s|%s|%s",
+            msg.getTimestamp().toString(),
+            msg.getEmotion().name(),
+            msg.getIntensity(),
+            content,
+            response,
+            contactName);
+    }
+
+    // 🆕 contactName 포함하여 로드 (하위 호환성 유지)
+    public static Message stringToMessage(String str) {
+        try {
+            String[] parts = str.split("\\|");
+
+            if (parts.length < 5) {
+                Metrics.counter("data_parse_failures_total").increment();
+                Log.warn("⚠️ 잘못된 데이터 형식: " + str);
+                return null;
+            }
+
+            LocalDateTime timestamp = LocalDateTime.parse(parts[0]);
+            Emotion emotion = Emotion.valueOf(parts[1]);
+            double intensity = Double.parseDouble(parts[2]);
+            String content = parts[3].replace("｜", "|");
+            String response = parts[4].replace("｜", "|");
+            String contactName = parts.length > 5 ? parts[5].replace("｜", "|") : "알 수 없음";
+
+            Message msg = new Message(content, emotion, intensity, response, contactName);
+            msg.setTimestamp(timestamp);
+            return msg;
+
+        } catch (Exception e) {
+            Metrics.counter("data_parse_failures_total").increment();
+            Log.warn("⚠️ 메시지 파싱 실패: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package service;
+
+/**
+ * 프롬프트 토큰 수 어림 (API 를 부르지 않고 글자 종류로 센다)
+ *
+ * - 한글 음절/한자: 글자당 1
+ * - 영문/숫자 연속 구간: 4글자당 1 (올림)
+ * - 이모지 등 BMP 밖 문자: 2, 그 밖의 기호/문장부호: 1, 공백은 0
+ *
+ * Gemini 토크나이저 결과보다 조금 크게 나오는 쪽으로 잡았다 (예산을 넘지 않게)
+ */
+public final class TokenEstimator {
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(CharSequence text) {
+        return text == null ? 0 : estimate(text, 0, text.length());
+    }
+
+    // text[from, to) 만 (조각마다 문자열을 만들지 않게)
+    public static int estimate(CharSequence text, int from, int to) {
+        int tokens = 0;
+        int length = to;
+        int i = from;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c < 128 && Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < length && text.charAt(i) < 128 && Character.isLetterOrDigit(text.charAt(i))) {
+                    i++;
+                }
+                tokens += (i - start + 3) / 4;
+                continue;
+            }
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                tokens += 2;
+                i += 2;
+                continue;
+            }
+            if (!Character.isWhitespace(c)) {
+                tokens++;
+            }
+            i++;
+        }
+        return tokens;
+    }
+}